@@ -0,0 +1,372 @@
+package sosModHooks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Estimates how much memory a mod's textures and sounds take once the game has decoded them.
+ *
+ * Only headers are read, through a few small positional reads per file: the PNG IHDR chunk
+ * for width and height, the WAV fmt and data chunks, and the Vorbis identification header
+ * plus the granule position of the last Ogg page for the sample count. Textures are counted
+ * as 4 bytes per pixel since the game uploads them as RGBA8, sounds as 16-bit PCM.
+ * JPEG and MP3 files only count towards the file size.
+ *
+ * Other files, such as script JARs and config files, are recorded too so duplicate content
+ * can be found in them, but they don't count towards a mod's asset totals.
+ */
+public final class AssetMemoryEstimator {
+
+    private static final int HEAD_SIZE = 4096;
+    private static final int OGG_TAIL_SIZE = 65536;
+    private static final int MAX_WAV_CHUNKS = 64;
+
+    /** Separates the JAR file from the entry name in a recorded source location. */
+    public static final String JAR_SEPARATOR = "!/";
+
+    private static AssetMemoryEstimator instance;
+
+    private final Map<String, ModAssetCost> costs = new ConcurrentHashMap<>();
+
+    private AssetMemoryEstimator() {
+    }
+
+    public static synchronized AssetMemoryEstimator getInstance() {
+        if (instance == null) {
+            instance = new AssetMemoryEstimator();
+        }
+        return instance;
+    }
+
+    /**
+     * Random access to the bytes of an asset.
+     */
+    interface Source {
+        /**
+         * Read up to length bytes at position.
+         *
+         * @return the number of bytes read, less than length at the end of the data
+         */
+        int read(long position, byte[] buffer, int length) throws IOException;
+
+        long size();
+    }
+
+    /**
+     * Record an asset file found in a mod folder.
+     */
+    public void recordFile(String modId, String assetPath, File file) {
+        recordFile(modId, assetPath, file, file.length());
+    }
+
+    /**
+     * Record an asset file whose size is already known, for example from a directory walk.
+     */
+    public void recordFile(String modId, String assetPath, File file, long fileSize) {
+        long decoded = 0;
+        if (isTexture(assetPath) || isAudio(assetPath)) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                FileChannel channel = raf.getChannel();
+                long size = channel.size();
+                decoded = estimate(assetPath, new Source() {
+                    @Override
+                    public int read(long position, byte[] buffer, int length) throws IOException {
+                        ByteBuffer dst = ByteBuffer.wrap(buffer, 0, length);
+                        while (dst.hasRemaining()) {
+                            int n = channel.read(dst, position + dst.position());
+                            if (n < 0) {
+                                break;
+                            }
+                        }
+                        return dst.position();
+                    }
+
+                    @Override
+                    public long size() {
+                        return size;
+                    }
+                });
+            } catch (IOException e) {
+                // Silently fail - unreadable files count as unmeasured
+            }
+        }
+        costFor(modId).add(assetPath, file.getAbsolutePath(), fileSize, decoded);
+    }
+
+    /**
+     * Record an asset inside a mod JAR. Entries are compressed, so only their head is read
+     * and Ogg lengths come from the nominal bitrate instead of the last page.
+     */
+    public void recordEntry(String modId, String assetPath, JarFile jar, JarEntry entry) {
+        long size = Math.max(0, entry.getSize());
+        long decoded = 0;
+        if (isTexture(assetPath) || isAudio(assetPath)) {
+            try (InputStream in = jar.getInputStream(entry)) {
+                byte[] head = new byte[HEAD_SIZE];
+                int headLength = 0;
+                int n;
+                while (headLength < head.length && (n = in.read(head, headLength, head.length - headLength)) > 0) {
+                    headLength += n;
+                }
+                decoded = estimate(assetPath, headSource(head, headLength, size));
+            } catch (IOException e) {
+                // Silently fail - unreadable entries count as unmeasured
+            }
+        }
+        costFor(modId).add(assetPath, jar.getName() + JAR_SEPARATOR + entry.getName(), size, decoded);
+    }
+
+    /**
+     * Record an asset whose sizes were measured before, such as from a saved mod index.
+     */
+    void restore(String modId, String assetPath, String source, long fileSize, long decoded) {
+        costFor(modId).add(assetPath, source, fileSize, decoded);
+    }
+
+    public ModAssetCost getCost(String modId) {
+        return costs.get(modId);
+    }
+
+    public Map<String, ModAssetCost> getCosts() {
+        return costs;
+    }
+
+    public void remove(String modId) {
+        costs.remove(modId);
+    }
+
+    private ModAssetCost costFor(String modId) {
+        return costs.computeIfAbsent(modId, ModAssetCost::new);
+    }
+
+    /**
+     * Whether a file is an image or sound the game decodes, as opposed to a file that is only
+     * recorded for duplicate detection.
+     */
+    static boolean isAsset(String path) {
+        String lower = path.toLowerCase();
+        return lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg")
+            || lower.endsWith(".wav") || lower.endsWith(".mp3") || lower.endsWith(".ogg");
+    }
+
+    static boolean isTexture(String path) {
+        return path.regionMatches(true, path.length() - 4, ".png", 0, 4);
+    }
+
+    static boolean isAudio(String path) {
+        return path.regionMatches(true, path.length() - 4, ".ogg", 0, 4)
+            || path.regionMatches(true, path.length() - 4, ".wav", 0, 4);
+    }
+
+    static Source headSource(byte[] head, int headLength, long size) {
+        return new Source() {
+            @Override
+            public int read(long position, byte[] buffer, int length) {
+                if (position >= headLength) {
+                    return 0;
+                }
+                int n = (int) Math.min(length, headLength - position);
+                System.arraycopy(head, (int) position, buffer, 0, n);
+                return n;
+            }
+
+            @Override
+            public long size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Decoded size in bytes of a PNG, WAV or Ogg Vorbis asset, or 0 if it can't be read.
+     */
+    static long estimate(String path, Source source) throws IOException {
+        String lower = path.toLowerCase();
+        if (lower.endsWith(".png")) {
+            return estimatePng(source);
+        } else if (lower.endsWith(".wav")) {
+            return estimateWav(source);
+        } else if (lower.endsWith(".ogg")) {
+            return estimateOgg(source);
+        }
+        return 0;
+    }
+
+    private static long estimatePng(Source source) throws IOException {
+        // Signature, then IHDR: length, type, width, height, bit depth, color type
+        byte[] b = new byte[26];
+        if (source.read(0, b, b.length) < b.length
+                || (b[0] & 0xFF) != 0x89 || b[1] != 'P' || b[2] != 'N' || b[3] != 'G'
+                || b[12] != 'I' || b[13] != 'H' || b[14] != 'D' || b[15] != 'R') {
+            return 0;
+        }
+        long width = intBE(b, 16) & 0xFFFFFFFFL;
+        long height = intBE(b, 20) & 0xFFFFFFFFL;
+        return width * height * 4;
+    }
+
+    private static long estimateWav(Source source) throws IOException {
+        byte[] b = new byte[24];
+        if (source.read(0, b, 12) < 12 || b[0] != 'R' || b[1] != 'I' || b[2] != 'F' || b[3] != 'F'
+                || b[8] != 'W' || b[9] != 'A' || b[10] != 'V' || b[11] != 'E') {
+            return 0;
+        }
+
+        int channels = 0;
+        int bitsPerSample = 0;
+        long position = 12;
+        for (int chunk = 0; chunk < MAX_WAV_CHUNKS && source.read(position, b, 8) == 8; chunk++) {
+            long chunkSize = intLE(b, 4) & 0xFFFFFFFFL;
+            if (b[0] == 'f' && b[1] == 'm' && b[2] == 't' && b[3] == ' ') {
+                if (source.read(position + 8, b, 16) < 16) {
+                    return 0;
+                }
+                channels = shortLE(b, 2);
+                bitsPerSample = shortLE(b, 14);
+            } else if (b[0] == 'd' && b[1] == 'a' && b[2] == 't' && b[3] == 'a') {
+                if (channels == 0 || bitsPerSample == 0) {
+                    return 0;
+                }
+                long frames = chunkSize / (channels * ((bitsPerSample + 7) / 8));
+                return frames * channels * 2;
+            }
+            // Chunks are padded to an even size
+            position += 8 + chunkSize + (chunkSize & 1);
+        }
+        return 0;
+    }
+
+    private static long estimateOgg(Source source) throws IOException {
+        byte[] b = new byte[27 + 255 + 28];
+        int n = source.read(0, b, b.length);
+        if (n < 27 || b[0] != 'O' || b[1] != 'g' || b[2] != 'g' || b[3] != 'S') {
+            return 0;
+        }
+        // The first packet follows the segment table and is the Vorbis identification header
+        int packet = 27 + (b[26] & 0xFF);
+        if (n < packet + 28 || b[packet] != 1 || b[packet + 1] != 'v' || b[packet + 6] != 's') {
+            return 0;
+        }
+        int channels = b[packet + 11] & 0xFF;
+        long sampleRate = intLE(b, packet + 12) & 0xFFFFFFFFL;
+        long nominalBitrate = intLE(b, packet + 20);
+
+        long samples = lastGranule(source);
+        if (samples <= 0 && nominalBitrate > 0 && sampleRate > 0) {
+            // No access to the last page, estimate the length from the bitrate
+            samples = source.size() * 8 * sampleRate / nominalBitrate;
+        }
+        return Math.max(0, samples) * channels * 2;
+    }
+
+    /**
+     * Granule position of the last Ogg page, which is the stream's length in samples per channel.
+     */
+    private static long lastGranule(Source source) throws IOException {
+        long size = source.size();
+        int tailLength = (int) Math.min(size, OGG_TAIL_SIZE);
+        byte[] tail = new byte[tailLength];
+        int n = source.read(size - tailLength, tail, tailLength);
+        if (n < tailLength) {
+            return -1;
+        }
+        for (int i = tailLength - 14; i >= 0; i--) {
+            if (tail[i] == 'O' && tail[i + 1] == 'g' && tail[i + 2] == 'g' && tail[i + 3] == 'S') {
+                return longLE(tail, i + 6);
+            }
+        }
+        return -1;
+    }
+
+    private static int intBE(byte[] b, int i) {
+        return ((b[i] & 0xFF) << 24) | ((b[i + 1] & 0xFF) << 16) | ((b[i + 2] & 0xFF) << 8) | (b[i + 3] & 0xFF);
+    }
+
+    private static int intLE(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+    }
+
+    private static int shortLE(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8);
+    }
+
+    private static long longLE(byte[] b, int i) {
+        return (intLE(b, i) & 0xFFFFFFFFL) | ((long) intLE(b, i + 4) << 32);
+    }
+
+    /**
+     * Asset memory totals of one mod, plus the location, size and decoded cost of every
+     * recorded file, assets and files kept only for duplicate detection alike.
+     */
+    public static final class ModAssetCost {
+        private final String modId;
+        private int textureCount = 0;
+        private long textureBytes = 0;
+        private int audioCount = 0;
+        private long audioBytes = 0;
+        private long fileBytes = 0;
+
+        // Per asset, parallel arrays indexed in scan order
+        private int[] pathIds = new int[16];
+        private int[] sourceIds = new int[16];
+        private long[] fileSizes = new long[16];
+        private long[] decodedSizes = new long[16];
+        private int assetCount = 0;
+
+        ModAssetCost(String modId) {
+            this.modId = modId;
+        }
+
+        synchronized void add(String assetPath, String source, long fileSize, long decoded) {
+            if (assetCount == pathIds.length) {
+                pathIds = Arrays.copyOf(pathIds, assetCount * 2);
+                sourceIds = Arrays.copyOf(sourceIds, assetCount * 2);
+                fileSizes = Arrays.copyOf(fileSizes, assetCount * 2);
+                decodedSizes = Arrays.copyOf(decodedSizes, assetCount * 2);
+            }
+            pathIds[assetCount] = PathStore.getInstance().intern(assetPath);
+            sourceIds[assetCount] = PathStore.getInstance().intern(source);
+            fileSizes[assetCount] = fileSize;
+            decodedSizes[assetCount] = decoded;
+            assetCount++;
+
+            if (isAsset(assetPath)) {
+                fileBytes += fileSize;
+            }
+            if (decoded > 0 && isTexture(assetPath)) {
+                textureCount++;
+                textureBytes += decoded;
+            } else if (decoded > 0) {
+                audioCount++;
+                audioBytes += decoded;
+            }
+        }
+
+        public String getModId() { return modId; }
+        public synchronized int getTextureCount() { return textureCount; }
+        /** Decoded texture size, 4 bytes per pixel. */
+        public synchronized long getTextureBytes() { return textureBytes; }
+        public synchronized int getAudioCount() { return audioCount; }
+        /** Decoded sound size as 16-bit PCM. */
+        public synchronized long getAudioBytes() { return audioBytes; }
+        /** Size of the mod's image and sound files on disk, see {@link #isAsset(String)}. */
+        public synchronized long getFileBytes() { return fileBytes; }
+        public synchronized long getTotalBytes() { return textureBytes + audioBytes; }
+        /** Number of recorded files, including those kept only for duplicate detection. */
+        public synchronized int getAssetCount() { return assetCount; }
+        public synchronized String getAssetPath(int index) { return PathStore.getInstance().get(pathIds[index]); }
+        /** File on disk, or JAR file and entry name joined by {@link #JAR_SEPARATOR}. */
+        public synchronized String getSource(int index) { return PathStore.getInstance().get(sourceIds[index]); }
+        public synchronized long getFileSize(int index) { return fileSizes[index]; }
+        public synchronized long getDecodedSize(int index) { return decodedSizes[index]; }
+    }
+}
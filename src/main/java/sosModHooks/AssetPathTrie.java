@@ -0,0 +1,287 @@
+package sosModHooks;
+
+import snake2d.util.sets.ArrayListGrower;
+import snake2d.util.sets.LIST;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Asset paths of all mods, split into a tree by '/' so wildcard declarations can be matched
+ * against concrete paths.
+ *
+ * A path segment containing '*' or '?' is a glob: "*" and "*.png" match one segment, "**"
+ * matches any number of segments. A node holds the mods that declared exactly its path;
+ * glob nodes hang off their parent next to the concrete children. Overlaps are found in one
+ * walk over the concrete paths that follows the matching glob branches alongside, so a glob
+ * in a middle segment, as in "sprite/{@literal *}/human.png", is matched against
+ * "sprite/race/human.png".
+ */
+public final class AssetPathTrie {
+
+    public static final String ANY_DEPTH = "**";
+
+    /**
+     * Receives paths that more than one mod covers.
+     */
+    public interface OverlapVisitor {
+        /**
+         * @param path the concrete path, or the glob when only wildcards overlap
+         * @param owners the mods covering the path, each once
+         * @param wildcard whether path is a glob
+         */
+        void overlap(String path, LIST<String> owners, boolean wildcard);
+    }
+
+    private final Node root = new Node("");
+    private int size = 0;
+
+    /**
+     * Add a path or glob declared by a mod.
+     */
+    public void add(String path, String modId) {
+        Node node = root;
+        int start = 0;
+        int length = path.length();
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                node = node.child(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        for (int i = 0; i < node.owners.size(); i++) {
+            if (node.owners.get(i).equals(modId)) {
+                return;
+            }
+        }
+        node.owners.add(modId);
+        size++;
+    }
+
+    /**
+     * Number of distinct (path, mod) declarations.
+     */
+    public int size() {
+        return size;
+    }
+
+    public static boolean isGlob(String path) {
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0;
+    }
+
+    /**
+     * Visit every concrete path covered by more than one mod, and every glob that overlaps
+     * another mod's glob without any concrete path in between.
+     */
+    public void forEachOverlap(OverlapVisitor visitor) {
+        walk(root, "", Collections.emptyList(), new ArrayList<>(), false, visitor);
+    }
+
+    /**
+     * Walk the declarations below a node.
+     *
+     * @param shadows nodes in glob branches that cover the same paths as node, such as the
+     *                "race" node under a "*" glob for the node of "sprite/race"
+     * @param anyDepthOwners owners of every "**" glob above this level
+     * @param inGlob whether node's path already contains a glob
+     */
+    private void walk(Node node, String path, List<Node> shadows, List<LIST<String>> anyDepthOwners,
+                      boolean inGlob, OverlapVisitor visitor) {
+        int pushed = 0;
+        for (Node shadow : shadows) {
+            Node anyDepth = shadow.glob(ANY_DEPTH);
+            if (anyDepth != null) {
+                anyDepthOwners.add(anyDepth.owners);
+                pushed++;
+            }
+        }
+        // Pushed last, so sibling globs can leave it out below
+        Node anyDepth = node.glob(ANY_DEPTH);
+        if (anyDepth != null) {
+            anyDepthOwners.add(anyDepth.owners);
+            pushed++;
+        }
+
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                String childPath = path + "/" + child.segment;
+                List<Node> childShadows = shadowsOf(child.segment, node, shadows);
+                if (!child.owners.isEmpty()) {
+                    Set<String> owners = new LinkedHashSet<>();
+                    addAll(child.owners, owners);
+                    for (Node shadow : childShadows) {
+                        addAll(shadow.owners, owners);
+                    }
+                    for (LIST<String> inherited : anyDepthOwners) {
+                        addAll(inherited, owners);
+                    }
+                    if (owners.size() > 1) {
+                        visitor.overlap(childPath, toList(owners), inGlob);
+                    }
+                }
+                walk(child, childPath, childShadows, anyDepthOwners, inGlob, visitor);
+            }
+        }
+
+        if (node.globs != null) {
+            // Each overlapping pair of sibling globs is reported once, from the first of the two
+            int ancestors = anyDepth != null ? anyDepthOwners.size() - 1 : anyDepthOwners.size();
+            for (int k = 0; k < node.globs.size(); k++) {
+                Node glob = node.globs.get(k);
+                Set<String> owners = new LinkedHashSet<>();
+                addAll(glob.owners, owners);
+                for (int other = k + 1; other < node.globs.size(); other++) {
+                    if (globsOverlap(glob.segment, node.globs.get(other).segment)) {
+                        addAll(node.globs.get(other).owners, owners);
+                    }
+                }
+                for (int i = 0; i < ancestors; i++) {
+                    addAll(anyDepthOwners.get(i), owners);
+                }
+                if (owners.size() > 1) {
+                    visitor.overlap(path + "/" + glob.segment, toList(owners), true);
+                }
+                if (glob != anyDepth) {
+                    walk(glob, path + "/" + glob.segment, Collections.emptyList(), anyDepthOwners, true, visitor);
+                }
+            }
+        }
+
+        for (int i = 0; i < pushed; i++) {
+            anyDepthOwners.remove(anyDepthOwners.size() - 1);
+        }
+    }
+
+    /**
+     * Nodes in glob branches that cover a concrete child segment of node: the globs of node
+     * and its shadows that match the segment, and the shadows' own children of that name.
+     */
+    private static List<Node> shadowsOf(String segment, Node node, List<Node> shadows) {
+        List<Node> found = null;
+        for (int i = -1; i < shadows.size(); i++) {
+            Node source = i < 0 ? node : shadows.get(i);
+            if (i >= 0 && source.children != null) {
+                Node child = source.children.get(segment);
+                if (child != null) {
+                    found = add(found, child);
+                }
+            }
+            if (source.globs != null) {
+                for (Node glob : source.globs) {
+                    if (!glob.segment.equals(ANY_DEPTH) && matches(glob.segment, segment)) {
+                        found = add(found, glob);
+                    }
+                }
+            }
+        }
+        return found != null ? found : Collections.emptyList();
+    }
+
+    private static List<Node> add(List<Node> nodes, Node node) {
+        if (nodes == null) {
+            nodes = new ArrayList<>(2);
+        }
+        nodes.add(node);
+        return nodes;
+    }
+
+    /**
+     * Whether two globs on the same level can match the same segment. Only checked loosely:
+     * patterns other than "*" and "**" are assumed to overlap when they're equal.
+     */
+    private static boolean globsOverlap(String a, String b) {
+        return a.equals(b) || a.equals("*") || b.equals("*") || a.equals(ANY_DEPTH) || b.equals(ANY_DEPTH);
+    }
+
+    /**
+     * Match one path segment against a glob with '*' and '?'.
+     */
+    static boolean matches(String glob, String segment) {
+        int g = 0;
+        int s = 0;
+        int star = -1;
+        int starMatch = 0;
+        while (s < segment.length()) {
+            if (g < glob.length() && (glob.charAt(g) == '?' || glob.charAt(g) == segment.charAt(s))) {
+                g++;
+                s++;
+            } else if (g < glob.length() && glob.charAt(g) == '*') {
+                star = g++;
+                starMatch = s;
+            } else if (star >= 0) {
+                g = star + 1;
+                s = ++starMatch;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == glob.length();
+    }
+
+    private static void addAll(LIST<String> owners, Set<String> out) {
+        for (int i = 0; i < owners.size(); i++) {
+            out.add(owners.get(i));
+        }
+    }
+
+    private static LIST<String> toList(Set<String> owners) {
+        ArrayListGrower<String> list = new ArrayListGrower<>();
+        for (String owner : owners) {
+            list.add(owner);
+        }
+        return list;
+    }
+
+    private static final class Node {
+        final String segment;
+        final ArrayListGrower<String> owners = new ArrayListGrower<>();
+        // Created on first use, most nodes are leaves
+        Map<String, Node> children;
+        List<Node> globs;
+
+        Node(String segment) {
+            this.segment = segment;
+        }
+
+        Node child(String segment) {
+            if (isGlob(segment)) {
+                Node glob = glob(segment);
+                if (glob == null) {
+                    if (globs == null) {
+                        globs = new ArrayList<>(2);
+                    }
+                    glob = new Node(segment);
+                    globs.add(glob);
+                }
+                return glob;
+            }
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(segment, Node::new);
+        }
+
+        Node glob(String segment) {
+            if (globs != null) {
+                for (Node glob : globs) {
+                    if (glob.segment.equals(segment)) {
+                        return glob;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
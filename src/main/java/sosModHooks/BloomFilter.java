@@ -0,0 +1,124 @@
+package sosModHooks;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Fixed-size Bloom filter over strings.
+ * A negative answer is exact; a positive answer has to be confirmed against the real set.
+ */
+public final class BloomFilter {
+
+    private final long[] bits;
+    private final int hashCount;
+
+    private BloomFilter(long[] bits, int hashCount) {
+        this.bits = bits;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Create a filter sized for the expected number of entries and false positive rate.
+     */
+    public static BloomFilter create(int expectedEntries, double falsePositiveRate) {
+        int entries = Math.max(1, expectedEntries);
+        long bitCount = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, (bitCount + 63) >>> 6));
+        int hashCount = Math.max(1, (int) Math.round((double) words * 64 / entries * Math.log(2)));
+        return new BloomFilter(new long[words], Math.min(hashCount, 16));
+    }
+
+    /**
+     * Create a filter with an exact size, so filters built separately can be compared with
+     * {@link #sharedBitCount(BloomFilter)}.
+     */
+    public static BloomFilter withSize(int words, int hashCount) {
+        return new BloomFilter(new long[Math.max(1, words)], Math.max(1, hashCount));
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public boolean mightContain(String value) {
+        return mightContainHash(hash(value));
+    }
+
+    /**
+     * Add a value by its precomputed {@link #hash(String)}.
+     */
+    public void addHash(long hash) {
+        long bitCount = (long) bits.length << 6;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContainHash(long hash) {
+        long bitCount = (long) bits.length << 6;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of bits set in both filters. Two filters of the same size and hash count
+     * with no shared bit have no value in common.
+     */
+    public int sharedBitCount(BloomFilter other) {
+        if (other.bits.length != bits.length || other.hashCount != hashCount) {
+            throw new IllegalArgumentException("Bloom filters have different shapes");
+        }
+        int shared = 0;
+        for (int i = 0; i < bits.length; i++) {
+            shared += Long.bitCount(bits[i] & other.bits[i]);
+        }
+        return shared;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(hashCount);
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    public static BloomFilter readFrom(DataInputStream in) throws IOException {
+        int hashCount = in.readInt();
+        int words = in.readInt();
+        if (hashCount < 1 || words < 1) {
+            throw new IOException("Corrupt Bloom filter");
+        }
+        long[] bits = new long[words];
+        for (int i = 0; i < words; i++) {
+            bits[i] = in.readLong();
+        }
+        return new BloomFilter(bits, hashCount);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a string's chars, followed by a final avalanche step.
+     */
+    public static long hash(CharSequence value) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
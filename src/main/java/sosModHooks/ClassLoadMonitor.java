@@ -0,0 +1,574 @@
+package sosModHooks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Per-mod class loading timeline.
+ *
+ * Every registered mod JAR is matched to the class loader that serves it. A background
+ * sampler then asks that loader which of the JAR's classes it has loaded so far, and
+ * records each change as an event in a fixed-size buffer of primitive arrays. The JVM-wide
+ * {@link ClassLoadingMXBean} count is sampled alongside as the global baseline.
+ *
+ * The sampler only tells when a mod's classes were loaded, not what they cost. With
+ * sosModHooks.classLoading.profile=true every class of a mod JAR is additionally loaded into
+ * a throwaway loader when the mod is registered: each class is defined under a timer, then
+ * initialized under a timer, which gives the mod's definition and static initializer cost.
+ * The mod's real classes are left alone, so an initializer that fails this early can't break
+ * the mod; it is counted as an init failure instead. Initializers still run once more than
+ * usual, so profiling is meant for diagnosis, not for everyday play.
+ *
+ * Asking a loader for its loaded classes needs reflective access to java.lang.ClassLoader.
+ * On Java 16 and later that requires --add-opens java.base/java.lang=ALL-UNNAMED; without it
+ * only the JVM-wide count is sampled, while profiling still works.
+ */
+public final class ClassLoadMonitor {
+
+    private static final int EVENT_CAPACITY = 4096;
+    private static final long FAST_SAMPLE_MILLIS = 250;
+    private static final long SLOW_SAMPLE_MILLIS = 5000;
+    private static final long FAST_SAMPLE_PERIOD_MILLIS = 120_000;
+
+    private static ClassLoadMonitor instance;
+
+    private final ClassLoadingMXBean classLoadingBean = ManagementFactory.getClassLoadingMXBean();
+    private final long startNanos = System.nanoTime();
+    private final List<ModClasses> mods = new ArrayList<>();
+    private Method findLoadedClass;
+
+    // Event buffer: one slot per observed change, oldest overwritten first
+    private final long[] eventTimes = new long[EVENT_CAPACITY];
+    private final int[] eventMods = new int[EVENT_CAPACITY];
+    private final int[] eventClassCounts = new int[EVENT_CAPACITY];
+    private final long[] eventNanos = new long[EVENT_CAPACITY];
+    private int eventCount = 0;
+
+    private long lastJvmLoadedCount = -1;
+    private Thread sampler;
+
+    // Rebuilt whenever a registration or sample changes a mod, read without locking
+    private volatile List<ModClassLoadCost> costTable = Collections.emptyList();
+    private volatile Map<String, ModClassLoadCost> costsByMod = Collections.emptyMap();
+
+    private ClassLoadMonitor() {
+        try {
+            findLoadedClass = ClassLoader.class.getDeclaredMethod("findLoadedClass", String.class);
+            findLoadedClass.setAccessible(true);
+        } catch (Exception e) {
+            // Fall back to JVM-wide counts only
+            System.out.println("sosModHooks: Per-mod class loading timeline unavailable (" + e.getClass().getSimpleName()
+                + "); on Java 16+ start the game with --add-opens java.base/java.lang=ALL-UNNAMED");
+            findLoadedClass = null;
+        }
+    }
+
+    public static synchronized ClassLoadMonitor getInstance() {
+        if (instance == null) {
+            instance = new ClassLoadMonitor();
+        }
+        return instance;
+    }
+
+    /**
+     * Whether per-mod attribution is possible, as opposed to JVM-wide counts only.
+     */
+    public boolean isPerModTrackingAvailable() {
+        return findLoadedClass != null;
+    }
+
+    /**
+     * Start tracking the classes of one mod JAR.
+     */
+    public synchronized void registerModJar(String modId, File jarFile) {
+        for (ModClasses mod : mods) {
+            if (mod.modId.equals(modId) && mod.jarFile.equals(jarFile)) {
+                return;
+            }
+        }
+
+        try {
+            ModClasses mod = new ModClasses(mods.size(), modId, jarFile, readClassNames(jarFile), findLoaderFor(jarFile));
+            mods.add(mod);
+
+            // Classes loaded before registration count, but when they were loaded is unknown
+            if (findLoadedClass != null) {
+                long now = System.nanoTime() - startNanos;
+                int alreadyLoaded = mod.collectNewlyLoaded(findLoadedClass, now);
+                if (alreadyLoaded > 0) {
+                    recordEvent(now, mod.index, alreadyLoaded, 0);
+                }
+            }
+
+            if (ModHooksConfig.getInstance().getBoolean("sosModHooks.classLoading.profile", false)) {
+                profileDefinitions(mod);
+            }
+            rebuildCostTable();
+        } catch (Exception e) {
+            System.err.println("sosModHooks: Could not track class loading for " + jarFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The mod whose registered JAR a class was loaded from, or null.
+     */
+    public synchronized String findModFor(Class<?> type) {
+        try {
+            java.security.CodeSource source = type.getProtectionDomain().getCodeSource();
+            if (source == null || source.getLocation() == null) {
+                return null;
+            }
+            File location = new File(source.getLocation().toURI());
+            for (ModClasses mod : mods) {
+                if (mod.jarFile.getAbsoluteFile().equals(location.getAbsoluteFile())) {
+                    return mod.modId;
+                }
+            }
+        } catch (Exception e) {
+            // Unknown origin
+        }
+        return null;
+    }
+
+    /**
+     * Start the background sampler. Sampling is fast during startup and slows down afterwards.
+     */
+    public synchronized void start() {
+        if (sampler != null) {
+            return;
+        }
+
+        sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    sample();
+                    long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+                    Thread.sleep(elapsedMillis < FAST_SAMPLE_PERIOD_MILLIS ? FAST_SAMPLE_MILLIS : SLOW_SAMPLE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    // Keep sampling - a single bad loader shouldn't stop the timeline
+                }
+            }
+        }, "sosModHooks-classload-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Take one sample now. Called by the sampler thread and at phase boundaries.
+     * Records which classes were loaded since the last sample, without a cost.
+     *
+     * The loaders are asked outside the monitor's lock, so readers such as the overlay never
+     * wait for a sample; only the classes found are recorded under it.
+     */
+    public void sample() {
+        ModClasses[] tracked;
+        synchronized (this) {
+            lastJvmLoadedCount = classLoadingBean.getTotalLoadedClassCount();
+            if (findLoadedClass == null) {
+                return;
+            }
+            tracked = mods.toArray(new ModClasses[0]);
+        }
+
+        int[][] found = new int[tracked.length][];
+        boolean any = false;
+        for (int i = 0; i < tracked.length; i++) {
+            found[i] = tracked[i].probe(findLoadedClass);
+            any |= found[i].length > 0;
+        }
+        if (!any) {
+            return;
+        }
+
+        synchronized (this) {
+            long now = System.nanoTime() - startNanos;
+            boolean changed = false;
+            for (int i = 0; i < tracked.length; i++) {
+                int count = tracked[i].markLoaded(found[i], now);
+                if (count > 0) {
+                    recordEvent(now, tracked[i].index, count, 0);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                rebuildCostTable();
+            }
+        }
+    }
+
+    /**
+     * JVM-wide number of classes loaded since startup, as of the last sample.
+     */
+    public synchronized long getJvmLoadedClassCount() {
+        return lastJvmLoadedCount >= 0 ? lastJvmLoadedCount : classLoadingBean.getTotalLoadedClassCount();
+    }
+
+    /**
+     * Number of events currently held in the buffer.
+     */
+    public synchronized int getEventCount() {
+        return Math.min(eventCount, EVENT_CAPACITY);
+    }
+
+    /**
+     * Replay the buffered events, oldest first.
+     */
+    public synchronized void visitEvents(EventVisitor visitor) {
+        int count = Math.min(eventCount, EVENT_CAPACITY);
+        int first = eventCount - count;
+        for (int i = first; i < eventCount; i++) {
+            int slot = i % EVENT_CAPACITY;
+            visitor.event(eventTimes[slot], mods.get(eventMods[slot]).modId, eventClassCounts[slot], eventNanos[slot]);
+        }
+    }
+
+    /**
+     * Per-mod startup cost, most expensive first, as of the last change.
+     */
+    public List<ModClassLoadCost> getCostTable() {
+        return costTable;
+    }
+
+    /**
+     * Get the startup cost row for one mod, or null if none of its JARs are tracked.
+     */
+    public ModClassLoadCost getCost(String modId) {
+        return costsByMod.get(modId);
+    }
+
+    private void rebuildCostTable() {
+        Map<String, ModClassLoadCost> byMod = new HashMap<>();
+        List<ModClassLoadCost> rows = new ArrayList<>();
+        for (ModClasses mod : mods) {
+            ModClassLoadCost row = byMod.get(mod.modId);
+            if (row == null) {
+                row = new ModClassLoadCost(mod.modId);
+                byMod.put(mod.modId, row);
+                rows.add(row);
+            }
+            row.add(mod);
+        }
+
+        Collections.sort(rows, (a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+        costsByMod = byMod;
+        costTable = Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Print the per-mod startup cost table to the console.
+     */
+    public void printCostTable() {
+        List<ModClassLoadCost> rows = getCostTable();
+        System.out.println("sosModHooks: Class loading cost per mod (JVM total: " + getJvmLoadedClassCount() + " classes)");
+        System.out.println(String.format("  %-32s %8s %8s %10s %10s %10s %8s", "Mod", "Loaded", "In JAR", "First ms", "Define ms", "Init ms", "Failed"));
+        for (ModClassLoadCost row : rows) {
+            System.out.println(String.format("  %-32s %8d %8d %10s %10s %10s %8s",
+                row.modId, row.loadedClasses, row.totalClasses,
+                row.firstLoadNanos < 0 ? "-" : String.format("%.1f", row.firstLoadNanos / 1e6),
+                row.profiled ? String.format("%.1f", row.definitionNanos / 1e6) : "-",
+                row.profiled ? String.format("%.1f", row.initNanos / 1e6) : "-",
+                row.profiled ? Integer.toString(row.initFailures) : "-"));
+        }
+    }
+
+    private void recordEvent(long time, int modIndex, int classCount, long nanos) {
+        int slot = eventCount % EVENT_CAPACITY;
+        eventTimes[slot] = time;
+        eventMods[slot] = modIndex;
+        eventClassCounts[slot] = classCount;
+        eventNanos[slot] = nanos;
+        eventCount++;
+        FlightRecorder.getInstance().record(FlightRecorder.Kind.CLASS_LOAD, mods.get(modIndex).modId,
+            startNanos + time - nanos, nanos, classCount);
+    }
+
+    private void profileDefinitions(ModClasses mod) {
+        long now = System.nanoTime() - startNanos;
+        long defineNanos = 0;
+        long initNanos = 0;
+        int defined = 0;
+        int failed = 0;
+
+        try (IsolatedLoader loader = new IsolatedLoader(mod.jarFile, mod.loader)) {
+            Class<?>[] classes = new Class<?>[mod.classNames.length];
+            for (int i = 0; i < classes.length; i++) {
+                long start = System.nanoTime();
+                try {
+                    classes[i] = Class.forName(mod.classNames[i], false, loader);
+                    defined++;
+                } catch (Throwable e) {
+                    // Missing optional dependency - the game would fail on it too
+                }
+                defineNanos += System.nanoTime() - start;
+            }
+
+            for (Class<?> type : classes) {
+                if (type == null) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    Class.forName(type.getName(), true, loader);
+                } catch (Throwable e) {
+                    // Initializers that need a running game fail this early
+                    failed++;
+                }
+                initNanos += System.nanoTime() - start;
+            }
+        } catch (IOException e) {
+            System.err.println("sosModHooks: Could not profile classes of " + mod.jarFile.getName() + ": " + e.getMessage());
+            return;
+        }
+
+        mod.profiled = true;
+        mod.definitionNanos = defineNanos;
+        mod.initNanos = initNanos;
+        mod.initFailures = failed;
+        if (defined > 0) {
+            recordEvent(now, mod.index, defined, defineNanos + initNanos);
+        }
+    }
+
+    private static String[] readClassNames(File jarFile) throws Exception {
+        List<String> names = new ArrayList<>();
+        try (JarFile jar = new JarFile(jarFile)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class") && !name.equals("module-info.class")) {
+                    names.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                }
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Find the loader that serves a JAR, starting from the loaders we can reach.
+     * The script engine usually loads all mod JARs, including ours, through one loader.
+     */
+    private static ClassLoader findLoaderFor(File jarFile) {
+        List<ClassLoader> candidates = new ArrayList<>();
+        addWithParents(candidates, ClassLoadMonitor.class.getClassLoader());
+        addWithParents(candidates, Thread.currentThread().getContextClassLoader());
+
+        String jarPath = jarFile.getAbsolutePath();
+        for (ClassLoader loader : candidates) {
+            if (loader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) loader).getURLs()) {
+                    try {
+                        if (new File(url.toURI()).getAbsolutePath().equals(jarPath)) {
+                            return loader;
+                        }
+                    } catch (Exception e) {
+                        // Not a file URL
+                    }
+                }
+            }
+        }
+        return ClassLoadMonitor.class.getClassLoader();
+    }
+
+    /**
+     * Loads the classes of one JAR itself instead of asking its parent first, so they are
+     * defined and initialized again apart from the copies the game uses. Everything else,
+     * such as game classes and other mods, comes from the parent.
+     */
+    private static final class IsolatedLoader extends URLClassLoader {
+
+        static {
+            registerAsParallelCapable();
+        }
+
+        IsolatedLoader(File jarFile, ClassLoader parent) throws IOException {
+            super(new URL[] { jarFile.toURI().toURL() }, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    try {
+                        type = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        return super.loadClass(name, resolve);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+    }
+
+    private static void addWithParents(List<ClassLoader> candidates, ClassLoader loader) {
+        while (loader != null) {
+            if (!candidates.contains(loader)) {
+                candidates.add(loader);
+            }
+            loader = loader.getParent();
+        }
+    }
+
+    /**
+     * Receives buffered class loading events.
+     */
+    public interface EventVisitor {
+        /**
+         * @param timeNanos nanoseconds after monitor start
+         * @param classCount classes of the mod that were loaded in this event
+         * @param nanos measured define and init time, 0 for classes seen by the sampler
+         */
+        void event(long timeNanos, String modId, int classCount, long nanos);
+    }
+
+    /**
+     * Tracking state for one mod JAR.
+     */
+    private static final class ModClasses {
+        final int index;
+        final String modId;
+        final File jarFile;
+        final String[] classNames;
+        final boolean[] loaded;
+        final ClassLoader loader;
+        int loadedCount = 0;
+        long firstLoadNanos = -1;
+        long lastLoadNanos = -1;
+        boolean profiled = false;
+        long definitionNanos = 0;
+        long initNanos = 0;
+        int initFailures = 0;
+
+        ModClasses(int index, String modId, File jarFile, String[] classNames, ClassLoader loader) {
+            this.index = index;
+            this.modId = modId;
+            this.jarFile = jarFile;
+            this.classNames = classNames;
+            this.loaded = new boolean[classNames.length];
+            this.loader = loader;
+        }
+
+        int collectNewlyLoaded(Method findLoadedClass, long time) {
+            return markLoaded(probe(findLoadedClass), time);
+        }
+
+        /**
+         * Indexes of classes the loader has that weren't marked loaded yet. Changes nothing,
+         * so it can run without the monitor's lock.
+         */
+        int[] probe(Method findLoadedClass) {
+            if (loadedCount == classNames.length) {
+                return new int[0];
+            }
+
+            int[] found = new int[8];
+            int count = 0;
+            for (int i = 0; i < classNames.length; i++) {
+                if (loaded[i]) {
+                    continue;
+                }
+                try {
+                    if (findLoadedClass.invoke(loader, classNames[i]) != null) {
+                        if (count == found.length) {
+                            found = java.util.Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = i;
+                    }
+                } catch (Exception e) {
+                    // Treat as not loaded
+                }
+            }
+            return java.util.Arrays.copyOf(found, count);
+        }
+
+        /**
+         * Mark probed classes as loaded at the given time.
+         *
+         * @return the number that weren't marked before
+         */
+        int markLoaded(int[] indexes, long time) {
+            int found = 0;
+            for (int i : indexes) {
+                if (!loaded[i]) {
+                    loaded[i] = true;
+                    found++;
+                }
+            }
+
+            if (found > 0) {
+                loadedCount += found;
+                if (firstLoadNanos < 0) {
+                    firstLoadNanos = time;
+                }
+                lastLoadNanos = time;
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Class loading cost of one mod, summed over its JARs.
+     */
+    public static final class ModClassLoadCost {
+        private final String modId;
+        private int totalClasses = 0;
+        private int loadedClasses = 0;
+        private long firstLoadNanos = -1;
+        private long lastLoadNanos = -1;
+        private boolean profiled = false;
+        private long definitionNanos = 0;
+        private long initNanos = 0;
+        private int initFailures = 0;
+
+        ModClassLoadCost(String modId) {
+            this.modId = modId;
+        }
+
+        void add(ModClasses mod) {
+            totalClasses += mod.classNames.length;
+            loadedClasses += mod.loadedCount;
+            profiled |= mod.profiled;
+            definitionNanos += mod.definitionNanos;
+            initNanos += mod.initNanos;
+            initFailures += mod.initFailures;
+            if (mod.firstLoadNanos >= 0 && (firstLoadNanos < 0 || mod.firstLoadNanos < firstLoadNanos)) {
+                firstLoadNanos = mod.firstLoadNanos;
+            }
+            lastLoadNanos = Math.max(lastLoadNanos, mod.lastLoadNanos);
+        }
+
+        public String getModId() { return modId; }
+        public int getTotalClasses() { return totalClasses; }
+        public int getLoadedClasses() { return loadedClasses; }
+        /** Nanoseconds after monitor start when the first class was seen, or -1. */
+        public long getFirstLoadNanos() { return firstLoadNanos; }
+        /** Nanoseconds after monitor start when the last class was seen, or -1. */
+        public long getLastLoadNanos() { return lastLoadNanos; }
+        /** Whether define and init time were measured, which happens in profiling mode only. */
+        public boolean isProfiled() { return profiled; }
+        public long getDefinitionNanos() { return definitionNanos; }
+        /** Time spent in static initializers. */
+        public long getInitNanos() { return initNanos; }
+        /** Classes whose static initializer threw when profiled. */
+        public int getInitFailures() { return initFailures; }
+        public long getTotalNanos() { return definitionNanos + initNanos; }
+    }
+}
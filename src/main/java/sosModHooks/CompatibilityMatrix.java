@@ -0,0 +1,501 @@
+package sosModHooks;
+
+import snake2d.util.sets.LIST;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pairwise compatibility matrix over every mod in the registry.
+ *
+ * Conflict targets (replaced classes, asset paths and shared data records) are split into
+ * hash partitions in one pass over the registry. Each partition is an independent shard: it
+ * builds a target to mods index for its slice only, counts conflicting mod pairs, and writes
+ * them sorted to its own file. Wildcard asset declarations can match a path in any shard, so
+ * they go into every shard and are matched through an {@link AssetPathTrie} the way
+ * {@link ModRegistry#getConflictsBetween} matches them; an overlap of wildcards alone is
+ * counted by the one shard its glob hashes to. Shard files are renamed into place when complete and act as
+ * checkpoints, so a killed run only recomputes unfinished shards. They are stamped with a
+ * hash of the mods' metadata digests, so shards from different mod files are never reused.
+ * The shards are then merged into a sparse CSV with one line per mod pair that shares at
+ * least one target.
+ */
+public final class CompatibilityMatrix {
+
+    // Bumped when shard contents change meaning, so old checkpoints are recomputed
+    private static final int MAGIC = 0x534D5832;
+    private static final int HEADER_BYTES = 4 + 8 + 4 + 4;
+    private static final int ENTRY_BYTES = 8 + 4 * 3;
+
+    private static final int CLASS = 0;
+    private static final int ASSET = 1;
+    private static final int DATA = 2;
+    private static final int KINDS = 3;
+
+    private final File workDirectory;
+    private final int shards;
+    private final int threads;
+
+    public CompatibilityMatrix(File workDirectory, int shards, int threads) {
+        this.workDirectory = workDirectory;
+        this.shards = Math.max(1, shards);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Compute the matrix for the given mods and write it to the output file.
+     * Shards finished by an earlier run over the same mod files are reused.
+     *
+     * @param modDigests metadata digest of every mod, see {@link ModSetFingerprint#digest(File)}
+     */
+    public void build(Map<String, Long> modDigests, File output) throws IOException, InterruptedException {
+        String[] mods = new TreeSet<>(modDigests.keySet()).toArray(new String[0]);
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < mods.length; i++) {
+            ordinals.put(mods[i], i);
+        }
+
+        if (!workDirectory.isDirectory() && !workDirectory.mkdirs()) {
+            throw new IOException("Could not create " + workDirectory.getPath());
+        }
+        long manifest = manifestHash(mods, modDigests);
+        prepareWorkDirectory(manifest);
+
+        List<Integer> pending = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            if (!isComplete(shard, manifest)) {
+                pending.add(shard);
+            }
+        }
+        System.out.println("sosModHooks: Matrix over " + mods.length + " mods, " + shards + " shards, "
+                           + (shards - pending.size()) + " already complete");
+
+        Partition[] partitions = partition(mods, ordinals, pending);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger done = new AtomicInteger(shards - pending.size());
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int shard : pending) {
+            tasks.add(executor.submit(() -> {
+                computeShard(shard, partitions[shard], mods, ordinals, manifest);
+                partitions[shard] = null;
+                System.out.println("sosModHooks: Matrix shard " + shard + " done (" + done.incrementAndGet() + "/" + shards + ")");
+                return null;
+            }));
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                throw new IOException("Matrix shard failed", e.getCause());
+            }
+        }
+
+        merge(mods, output);
+    }
+
+    /**
+     * Split the targets of every mod into the pending shards in one pass over the registry.
+     * Targets of finished shards are dropped right away.
+     */
+    private Partition[] partition(String[] mods, Map<String, Integer> ordinals, List<Integer> pending) {
+        Partition[] partitions = new Partition[shards];
+        for (int shard : pending) {
+            partitions[shard] = new Partition();
+        }
+        if (pending.isEmpty()) {
+            return partitions;
+        }
+
+        ModRegistry registry = ModRegistry.getInstance();
+        // Mods are visited in ordinal order, so each target's owners come out sorted
+        for (int ordinal = 0; ordinal < mods.length; ordinal++) {
+            LIST<String> classes = registry.getClassReplacements().get(mods[ordinal]);
+            for (int i = 0; classes != null && i < classes.size(); i++) {
+                long hash = BloomFilter.hash(classes.get(i));
+                Partition partition = partitions[DataConflictIndex.partitionOf(hash, shards)];
+                if (partition != null) {
+                    partition.classes.add(hash, ordinal);
+                }
+            }
+
+            PathList assets = registry.getAssetModifications().get(mods[ordinal]);
+            for (int i = 0; assets != null && i < assets.size(); i++) {
+                int id = assets.getId(i);
+                if (AssetPathTrie.isGlob(assets.get(i))) {
+                    // A glob may cover concrete paths of any shard
+                    for (int shard : pending) {
+                        partitions[shard].addAsset(assets.getStore(), id, ordinal);
+                    }
+                    continue;
+                }
+                // Partition on the path's hash, not its id, so shards match across runs
+                Partition partition = partitions[DataConflictIndex.partitionOf(assets.getStore().hash(id), shards)];
+                if (partition != null) {
+                    partition.addAsset(assets.getStore(), id, ordinal);
+                }
+            }
+        }
+
+        registry.getDataConflictIndex().visitSharedRecords((recordKey, ownerIds) -> {
+            Partition partition = partitions[DataConflictIndex.partitionOf(recordKey, shards)];
+            if (partition == null) {
+                return;
+            }
+            int[] owners = new int[ownerIds.size()];
+            int n = 0;
+            for (int i = 0; i < ownerIds.size(); i++) {
+                Integer ordinal = ordinals.get(ownerIds.get(i));
+                if (ordinal != null) {
+                    owners[n++] = ordinal;
+                }
+            }
+            if (n > 1) {
+                Arrays.sort(owners, 0, n);
+                partition.records.add(Arrays.copyOf(owners, n));
+            }
+        });
+        return partitions;
+    }
+
+    private void computeShard(int shard, Partition partition, String[] mods, Map<String, Integer> ordinals,
+                              long manifest) throws IOException {
+        PairCounts counts = new PairCounts();
+        countTargets(partition.classes, CLASS, counts);
+        countAssets(shard, partition, mods, ordinals, counts);
+        for (int[] owners : partition.records) {
+            counts.addAllPairs(owners, owners.length, DATA);
+        }
+        counts.write(shardFile(shard), shard, manifest);
+    }
+
+    /**
+     * Group one shard's targets by key and count the pairs of mods sharing each.
+     */
+    private static void countTargets(TargetList targets, int kind, PairCounts counts) {
+        Map<Long, ModSet> byTarget = new HashMap<>();
+        for (int i = 0; i < targets.size; i++) {
+            byTarget.computeIfAbsent(targets.keys[i], k -> new ModSet()).add(targets.ordinals[i]);
+        }
+        for (ModSet set : byTarget.values()) {
+            counts.addAllPairs(set.mods, set.size, kind);
+        }
+    }
+
+    /**
+     * Count the pairs of mods covering each of one shard's asset paths, exactly or through a
+     * wildcard. The shard holds its own concrete paths and every glob.
+     */
+    private void countAssets(int shard, Partition partition, String[] mods, Map<String, Integer> ordinals,
+                             PairCounts counts) {
+        TargetList targets = partition.assets;
+        if (targets.size == 0) {
+            return;
+        }
+        AssetPathTrie trie = new AssetPathTrie();
+        for (int i = 0; i < targets.size; i++) {
+            trie.add(partition.store.get((int) targets.keys[i]), mods[targets.ordinals[i]]);
+        }
+        int[] owners = new int[mods.length];
+        trie.forEachOverlap((path, modIds, wildcard) -> {
+            // Every shard sees all globs, so overlaps among globs count in one shard only
+            if (wildcard && DataConflictIndex.partitionOf(BloomFilter.hash(path), shards) != shard) {
+                return;
+            }
+            int n = 0;
+            for (int i = 0; i < modIds.size(); i++) {
+                owners[n++] = ordinals.get(modIds.get(i));
+            }
+            Arrays.sort(owners, 0, n);
+            counts.addAllPairs(owners, n, ASSET);
+        });
+    }
+
+    private File shardFile(int shard) {
+        return new File(workDirectory, "shard-" + shard + ".bin");
+    }
+
+    /**
+     * Drop checkpoints from a run over a different mod set.
+     */
+    private void prepareWorkDirectory(long manifest) throws IOException {
+        File manifestFile = new File(workDirectory, "manifest");
+        String expected = Long.toHexString(manifest) + " " + shards;
+        if (manifestFile.isFile()) {
+            String existing = new String(Files.readAllBytes(manifestFile.toPath()), StandardCharsets.UTF_8).trim();
+            if (existing.equals(expected)) {
+                return;
+            }
+        }
+        File[] stale = workDirectory.listFiles((dir, name) -> name.startsWith("shard-"));
+        if (stale != null) {
+            for (File file : stale) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        Files.write(manifestFile.toPath(), expected.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean isComplete(int shard, long manifest) {
+        File file = shardFile(shard);
+        if (!file.isFile()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readLong() != manifest || in.readInt() != shard) {
+                return false;
+            }
+            long entries = in.readInt();
+            return file.length() == HEADER_BYTES + entries * ENTRY_BYTES + 4;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Hash of the mod list, each mod's metadata digest and the vanilla baseline the mods were
+     * classified against, so changed mod files invalidate old shards.
+     */
+    static long manifestHash(String[] mods, Map<String, Long> modDigests) {
+        long h = 0xCBF29CE484222325L;
+        for (String mod : mods) {
+            h = (h ^ BloomFilter.hash(mod)) * 0x100000001B3L;
+            Long digest = modDigests.get(mod);
+            h = (h ^ (digest != null ? digest : 0L)) * 0x100000001B3L;
+        }
+        return (h ^ BloomFilter.hash(VanillaBaseline.getInstance().getCacheKey())) * 0x100000001B3L;
+    }
+
+    /**
+     * K-way merge of the sorted shard files into the final CSV.
+     */
+    private void merge(String[] mods, File output) throws IOException {
+        PriorityQueue<ShardReader> queue = new PriorityQueue<>((a, b) -> Long.compare(a.key, b.key));
+        List<ShardReader> readers = new ArrayList<>();
+        File temp = new File(output.getPath() + ".tmp");
+        long pairs = 0;
+        try {
+            for (int shard = 0; shard < shards; shard++) {
+                ShardReader reader = new ShardReader(shardFile(shard));
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8), 1 << 16)) {
+                out.write("mod_a,mod_b,class_conflicts,asset_conflicts,data_conflicts,total\n");
+                int[] sum = new int[KINDS];
+                while (!queue.isEmpty()) {
+                    long key = queue.peek().key;
+                    Arrays.fill(sum, 0);
+                    while (!queue.isEmpty() && queue.peek().key == key) {
+                        ShardReader reader = queue.poll();
+                        for (int kind = 0; kind < KINDS; kind++) {
+                            sum[kind] += reader.counts[kind];
+                        }
+                        if (reader.next()) {
+                            queue.add(reader);
+                        }
+                    }
+                    out.write(mods[(int) (key >>> 32)]);
+                    out.write(',');
+                    out.write(mods[(int) key]);
+                    out.write("," + sum[CLASS] + "," + sum[ASSET] + "," + sum[DATA] + "," + (sum[CLASS] + sum[ASSET] + sum[DATA]) + "\n");
+                    pairs++;
+                }
+            }
+        } finally {
+            for (ShardReader reader : readers) {
+                reader.close();
+            }
+        }
+        moveIntoPlace(temp, output);
+        System.out.println("sosModHooks: Matrix with " + pairs + " conflicting pairs written to " + output.getPath());
+    }
+
+    private static void moveIntoPlace(File temp, File target) throws IOException {
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The targets that fall into one shard.
+     */
+    private static final class Partition {
+        final TargetList classes = new TargetList();
+        // Asset path ids, all from the one store the registry's path lists share
+        final TargetList assets = new TargetList();
+        PathStore store;
+        final List<int[]> records = new ArrayList<>();
+
+        void addAsset(PathStore pathStore, int id, int ordinal) {
+            store = pathStore;
+            assets.add(id, ordinal);
+        }
+    }
+
+    /**
+     * Target keys with the ordinal of the mod that declared them, in declaration order.
+     */
+    private static final class TargetList {
+        long[] keys = new long[16];
+        int[] ordinals = new int[16];
+        int size = 0;
+
+        void add(long key, int ordinal) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            keys[size] = key;
+            ordinals[size] = ordinal;
+            size++;
+        }
+    }
+
+    /**
+     * Mod ordinals sharing one target, in ascending order.
+     */
+    private static final class ModSet {
+        int[] mods = new int[2];
+        int size = 0;
+
+        void add(int ordinal) {
+            // Mods are visited in order, so duplicates from the same mod are adjacent
+            if (size > 0 && mods[size - 1] == ordinal) {
+                return;
+            }
+            if (size == mods.length) {
+                mods = Arrays.copyOf(mods, size * 2);
+            }
+            mods[size++] = ordinal;
+        }
+    }
+
+    /**
+     * Per-shard counts of shared targets for each mod pair, keyed by (low ordinal, high ordinal).
+     */
+    private static final class PairCounts {
+        private final LongIntMap slots = new LongIntMap(1024);
+        private long[] keys = new long[1024];
+        private int[] counts = new int[1024 * KINDS];
+        private int size = 0;
+
+        void addAllPairs(int[] sortedMods, int n, int kind) {
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    add(((long) sortedMods[i] << 32) | sortedMods[j], kind);
+                }
+            }
+        }
+
+        private void add(long key, int kind) {
+            int slot = slots.get(key);
+            if (slot < 0) {
+                slot = size++;
+                if (slot == keys.length) {
+                    keys = Arrays.copyOf(keys, slot * 2);
+                    counts = Arrays.copyOf(counts, slot * 2 * KINDS);
+                }
+                keys[slot] = key;
+                slots.put(key, slot);
+            }
+            counts[slot * KINDS + kind]++;
+        }
+
+        /**
+         * Write sorted entries to a temporary file and rename it into place.
+         */
+        void write(File file, int shard, long manifest) throws IOException {
+            long[] sorted = Arrays.copyOf(keys, size);
+            Arrays.sort(sorted);
+
+            File temp = new File(file.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeLong(manifest);
+                out.writeInt(shard);
+                out.writeInt(size);
+                for (long key : sorted) {
+                    int slot = slots.get(key);
+                    out.writeLong(key);
+                    for (int kind = 0; kind < KINDS; kind++) {
+                        out.writeInt(counts[slot * KINDS + kind]);
+                    }
+                }
+                out.writeInt(MAGIC);
+            }
+            moveIntoPlace(temp, file);
+        }
+    }
+
+    /**
+     * Sequential reader over one shard file.
+     */
+    private static final class ShardReader {
+        private final DataInputStream in;
+        private int remaining;
+        long key;
+        final int[] counts = new int[KINDS];
+
+        ShardReader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+            in.readInt();
+            in.readLong();
+            in.readInt();
+            remaining = in.readInt();
+        }
+
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            try {
+                key = in.readLong();
+                for (int kind = 0; kind < KINDS; kind++) {
+                    counts[kind] = in.readInt();
+                }
+            } catch (EOFException e) {
+                throw new IOException("Truncated matrix shard", e);
+            }
+            remaining--;
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+}
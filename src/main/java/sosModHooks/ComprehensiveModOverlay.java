@@ -10,6 +10,7 @@ import util.colors.GCOLOR;
 import view.keyboard.KEYS;
 import view.keyboard.Key;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -26,12 +27,15 @@ public class ComprehensiveModOverlay {
     private final List<ModEntry> modEntries = new ArrayList<>();
     private int scrollOffset = 0;
     private int maxScrollOffset = 0;
+    private ModRegistry.ConflictListener conflictListener;
     
     // UI state
     private int panelX = 100, panelY = 100;
     private final int panelWidth = 800;
     private final int panelHeight = 600;
     
+    static final String RENDER_SOURCE = "sosModHooks overlay render";
+    
     // Colors and styling
     private static final int HEADER_HEIGHT = 40;
     private static final int MOD_ENTRY_HEIGHT = 60;
@@ -41,10 +45,14 @@ public class ComprehensiveModOverlay {
         // Constructor - no logging needed
     }
     
-    public void toggle() {
+    /**
+     * Toggle the overlay and rebuild its entries on the scheduler, one mod per step,
+     * instead of all at once in the frame the key was pressed.
+     */
+    public void toggle(TickScheduler scheduler) {
         isVisible = !isVisible;
         if (isVisible) {
-            refreshModEntries();
+            scheduler.submit(new RefreshTask());
         }
     }
     
@@ -52,6 +60,28 @@ public class ComprehensiveModOverlay {
         return isVisible;
     }
     
+    /**
+     * Rebuild the entries whenever conflicts change while the overlay is open.
+     */
+    public void listenForConflicts(TickScheduler scheduler) {
+        conflictListener = events -> {
+            if (isVisible) {
+                scheduler.submit(new RefreshTask());
+            }
+        };
+        ModRegistry.getInstance().addConflictListener(conflictListener, scheduler::submit);
+    }
+    
+    /**
+     * Stop refreshing on conflict changes, as when the scheduler of this overlay's game is gone.
+     */
+    public void stopListening() {
+        if (conflictListener != null) {
+            ModRegistry.getInstance().removeConflictListener(conflictListener);
+            conflictListener = null;
+        }
+    }
+    
     public void render(Renderer r) {
         if (!isVisible) return;
         
@@ -74,7 +104,8 @@ public class ComprehensiveModOverlay {
             renderCloseButton(r);
             
         } catch (Exception e) {
-            // Silent fail - don't crash the game
+            // Silent fail - don't crash the game; the framework stops rendering if this repeats
+            ExceptionBreaker.get(RENDER_SOURCE).recordFailure(e);
         }
     }
     
@@ -102,6 +133,27 @@ public class ComprehensiveModOverlay {
         int totalMods = registry.getActiveMods().size();
         renderText(r, "Active Mods: " + totalMods + " | Press F10 to close", panelX + 20, headerY + 25, 12);
         
+        // Callbacks the exception breakers are currently skipping
+        int suspended = 0;
+        for (ExceptionBreaker breaker : ExceptionBreaker.getFailing()) {
+            if (breaker.isOpen()) {
+                suspended++;
+            }
+        }
+        if (suspended > 0) {
+            GCOLOR.T().IBAD.bind();
+            renderText(r, suspended + " callbacks suspended after repeated errors", panelX + 420, headerY + 25, 12);
+        }
+
+        // Stalls caught by the flight recorder
+        FlightRecorder recorder = FlightRecorder.getInstance();
+        if (recorder.getSpikeCount() > 0) {
+            GCOLOR.T().NORMAL.bind();
+            File lastDump = recorder.getLastDump();
+            renderText(r, recorder.getSpikeCount() + " frames over " + (recorder.getSpikeNanos() / 1_000_000) + " ms"
+                       + (lastDump != null ? ", last dump " + lastDump.getName() : ""), panelX + 420, headerY, 12);
+        }
+
         COLOR.unbind();
     }
     
@@ -109,9 +161,13 @@ public class ComprehensiveModOverlay {
         int startY = panelY + HEADER_HEIGHT + 10;
         int currentY = startY - scrollOffset;
         
+        boolean heightsChanged = false;
+        
         for (ModEntry entry : modEntries) {
-            if (currentY + MOD_ENTRY_HEIGHT < panelY) {
-                currentY += MOD_ENTRY_HEIGHT;
+            boolean expanded = expandedMods.getOrDefault(entry.modId, false);
+            int entryHeight = MOD_ENTRY_HEIGHT + (expanded ? entry.dropdownHeight : 0);
+            if (currentY + entryHeight < panelY) {
+                currentY += entryHeight;
                 continue; // Skip if above visible area
             }
             
@@ -121,15 +177,21 @@ public class ComprehensiveModOverlay {
             
             // Render mod entry
             renderModEntry(r, entry, panelX + 10, currentY);
+            currentY += MOD_ENTRY_HEIGHT;
             
-            // Render dropdown if expanded
-            if (expandedMods.getOrDefault(entry.modId, false)) {
-                currentY += MOD_ENTRY_HEIGHT;
-                renderModDropdown(r, entry, panelX + 20, currentY);
-                currentY += entry.getDropdownHeight();
+            // Render dropdown if expanded; sections come and go as measurements arrive
+            if (expanded) {
+                int height = renderModDropdown(r, entry, panelX + 20, currentY);
+                if (height != entry.dropdownHeight) {
+                    entry.dropdownHeight = height;
+                    heightsChanged = true;
+                }
+                currentY += height;
             }
-            
-            currentY += MOD_ENTRY_HEIGHT;
+        }
+        
+        if (heightsChanged) {
+            updateScrollLimits();
         }
     }
     
@@ -157,6 +219,15 @@ public class ComprehensiveModOverlay {
         GCOLOR.T().INORMAL.bind();
         renderText(r, entry.modificationCount + " modifications", x + panelWidth - 150, y + 20, 12);
         
+        // Compatibility with the other active mods
+        if (entry.conflictingMods > 0) {
+            GCOLOR.T().IBAD.bind();
+            renderText(r, "Conflicts with " + entry.conflictingMods + " mods", x + panelWidth - 150, y + 38, 12);
+        } else {
+            GCOLOR.T().IGOOD.bind();
+            renderText(r, "Compatible", x + panelWidth - 150, y + 38, 12);
+        }
+        
         // Expand/collapse indicator
         String indicator = expandedMods.getOrDefault(entry.modId, false) ? "▼" : "▶";
         GCOLOR.T().H2.bind();
@@ -165,26 +236,139 @@ public class ComprehensiveModOverlay {
         COLOR.unbind();
     }
     
-    private void renderModDropdown(Renderer r, ModEntry entry, int x, int y) {
+    /**
+     * Height of a mod's dropdown as {@link #renderModDropdown} lays it out, without drawing it.
+     */
+    private int measureModDropdown(ModEntry entry) {
+        return renderModDropdown(null, entry, 0, 0);
+    }
+    
+    /**
+     * Lay out a mod's dropdown, drawing it unless the renderer is null.
+     *
+     * @return the height of the dropdown
+     */
+    private int renderModDropdown(Renderer r, ModEntry entry, int x, int y) {
         ModRegistry registry = ModRegistry.getInstance();
         ModRegistry.ModAnalysis analysis = registry.getModAnalysis(entry.modId);
         
         if (analysis == null) {
-            GCOLOR.T().IBAD.bind();
-            renderText(r, "No analysis available for this mod", x, y, 12);
-            COLOR.unbind();
-            return;
+            if (r != null) {
+                GCOLOR.T().IBAD.bind();
+                renderText(r, "No analysis available for this mod", x, y, 12);
+                COLOR.unbind();
+            }
+            return 25;
         }
         
         int currentY = y;
         
+        // Class loading cost
+        ClassLoadMonitor.ModClassLoadCost loadCost = ClassLoadMonitor.getInstance().getCost(entry.modId);
+        if (loadCost != null) {
+            renderSectionHeader(r, "Class Loading", x, currentY);
+            currentY += 20;
+            
+            String desc = loadCost.getLoadedClasses() + "/" + loadCost.getTotalClasses() + " classes loaded";
+            if (loadCost.isProfiled()) {
+                desc += String.format(", define %.1f ms, init %.1f ms", loadCost.getDefinitionNanos() / 1e6, loadCost.getInitNanos() / 1e6);
+            }
+            renderModificationEntry(r, desc, "STARTUP", x + 10, currentY);
+            currentY += 35;
+        }
+        
+        // Decoded texture and sound memory
+        AssetMemoryEstimator.ModAssetCost assetCost = AssetMemoryEstimator.getInstance().getCost(entry.modId);
+        if (assetCost != null && assetCost.getTotalBytes() > 0) {
+            renderSectionHeader(r, "Asset Memory", x, currentY);
+            currentY += 20;
+            
+            renderModificationEntry(r, assetCost.getTextureCount() + " textures, " + formatBytes(assetCost.getTextureBytes()),
+                                    "TEXTURE", x + 10, currentY);
+            currentY += 25;
+            renderModificationEntry(r, assetCost.getAudioCount() + " sounds, " + formatBytes(assetCost.getAudioBytes()),
+                                    "AUDIO", x + 10, currentY);
+            currentY += 35;
+        }
+        
+        // Callbacks of the mod that kept throwing
+        List<ExceptionBreaker> breakers = ExceptionBreaker.getFailing(entry.modId + " ");
+        if (!breakers.isEmpty()) {
+            renderSectionHeader(r, "Errors", x, currentY);
+            currentY += 20;
+            
+            for (ExceptionBreaker breaker : breakers) {
+                String state = breaker.isOpen() ? "SUSPENDED" : "ACTIVE";
+                renderModificationEntry(r, breaker.getSource().substring(entry.modId.length() + 1) + ": " + breaker.getFailures()
+                                        + " errors, " + breaker.getSuppressed() + " suppressed, " + breaker.getSkipped()
+                                        + " calls skipped (" + breaker.getLastError() + ")", state, x + 10, currentY);
+                currentY += 25;
+            }
+            currentY += 10;
+        }
+        
+        // Time the mod's script took to start, when init timing is on
+        ScriptInitTimer.ModInitCost initCost = ScriptInitTimer.getInstance().getCost(entry.modId);
+        if (initCost != null) {
+            renderSectionHeader(r, "Startup Cost", x, currentY);
+            currentY += 20;
+            
+            String created = initCost.getCreatedNanos() < 0 ? "not measured" : formatNanos(initCost.getCreatedNanos());
+            // Both come from the ranking cached after the last init call
+            renderModificationEntry(r, "#" + ScriptInitTimer.getInstance().getRank(entry.modId) + " of "
+                                    + ScriptInitTimer.getInstance().getRanking().size() + " mods, "
+                                    + formatNanos(initCost.getTotalNanos()) + " total", "RANK", x + 10, currentY);
+            currentY += 25;
+            renderModificationEntry(r, "initBeforeGameCreated: " + created + ", initBeforeGameInited: "
+                                    + formatNanos(initCost.getInitedNanos()) + ", createInstance: "
+                                    + formatNanos(initCost.getInstanceNanos()), "INIT", x + 10, currentY);
+            currentY += 35;
+        }
+        
+        // Time spent in the mod's script instances, when script profiling is on
+        ScriptProfiler.ModScriptCost scriptCost = ScriptProfiler.getInstance().getCost(entry.modId);
+        if (scriptCost != null) {
+            renderSectionHeader(r, "Script Cost", x, currentY);
+            currentY += 20;
+            
+            if (ScriptProfiler.getInstance().isProfilingCalls()) {
+                renderModificationEntry(r, describeCalls("update", scriptCost.getUpdate()), "UPDATE", x + 10, currentY);
+                currentY += 25;
+                renderModificationEntry(r, describeCalls("render", scriptCost.getRender()), "RENDER", x + 10, currentY);
+                currentY += 25;
+                renderModificationEntry(r, describeCalls("hover", scriptCost.getHover()), "HOVER", x + 10, currentY);
+                currentY += 25;
+                renderModificationEntry(r, "per frame: mean " + formatNanos(scriptCost.getMeanFrameNanos())
+                                        + ", worst " + formatNanos(scriptCost.getWorstFrameNanos()), "FRAME", x + 10, currentY);
+                currentY += 25;
+            }
+            if (scriptCost.isThrottled()) {
+                renderModificationEntry(r, "throttled: " + scriptCost.getSkippedUpdates() + " updates skipped, ~"
+                                        + formatNanos(scriptCost.getRecoveredNanos()) + " recovered", "THROTTLE", x + 10, currentY);
+                currentY += 25;
+            }
+            if (scriptCost.getSaves().getCount() > 0) {
+                renderModificationEntry(r, describeIo("last save", scriptCost.getSaves()), "SAVE", x + 10, currentY);
+                currentY += 25;
+            }
+            if (scriptCost.getLoads().getCount() > 0) {
+                renderModificationEntry(r, describeIo("last load", scriptCost.getLoads()), "LOAD", x + 10, currentY);
+                currentY += 25;
+            }
+            currentY += 10;
+        }
+        
         // File modifications
         if (!analysis.getFileModifications().isEmpty()) {
             renderSectionHeader(r, "File Modifications", x, currentY);
             currentY += 20;
             
             for (ModRegistry.FileModification fileMod : analysis.getFileModifications().values()) {
-                renderModificationEntry(r, fileMod.getFilePath(), fileMod.getModificationType(), x + 10, currentY);
+                String desc = fileMod.getFilePath();
+                if (fileMod.getDecodedSize() > 0) {
+                    desc += " (" + formatBytes(fileMod.getDecodedSize()) + " loaded)";
+                }
+                renderModificationEntry(r, desc, fileMod.getModificationType(), x + 10, currentY);
                 currentY += 25;
             }
             currentY += 10;
@@ -256,21 +440,33 @@ public class ComprehensiveModOverlay {
             currentY += 20;
             
             for (String conflict : analysis.getConflicts()) {
-                GCOLOR.T().WARNING.bind();
-                renderText(r, "⚠ " + conflict, x + 10, currentY, 12);
+                if (r != null) {
+                    GCOLOR.T().WARNING.bind();
+                    renderText(r, "⚠ " + conflict, x + 10, currentY, 12);
+                }
                 currentY += 25;
             }
-            COLOR.unbind();
+            if (r != null) {
+                COLOR.unbind();
+            }
         }
+        
+        return currentY - y;
     }
     
     private void renderSectionHeader(Renderer r, String title, int x, int y) {
+        if (r == null) {
+            return;
+        }
         GCOLOR.T().H2.bind();
         renderText(r, title + ":", x, y, 14);
         COLOR.unbind();
     }
     
     private void renderModificationEntry(Renderer r, String description, String type, int x, int y) {
+        if (r == null) {
+            return;
+        }
         // Description
         GCOLOR.T().NORMAL.bind();
         renderText(r, description, x, y, 12);
@@ -281,6 +477,31 @@ public class ComprehensiveModOverlay {
         COLOR.unbind();
     }
     
+    private static String describeCalls(String name, ScriptProfiler.CallHistogram calls) {
+        return name + ": mean " + formatNanos(calls.getMeanNanos()) + ", p99 " + formatNanos(calls.getPercentileNanos(0.99))
+            + " (" + calls.getCount() + " calls)";
+    }
+    
+    private static String describeIo(String name, ScriptProfiler.IoHistory history) {
+        String size = history.getLastBytes() < 0 ? "" : ", " + formatBytes(history.getLastBytes());
+        return name + ": " + formatNanos(history.getLastNanos()) + size + " (worst of last "
+            + history.getKeptCount() + ": " + formatNanos(history.getMaxNanos()) + ")";
+    }
+    
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format("%.2f ms", nanos / 1_000_000.0);
+        }
+        return String.format("%.1f us", nanos / 1_000.0);
+    }
+    
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        }
+        return String.format("%.1f KB", bytes / 1024.0);
+    }
+    
     private void renderScrollBar(Renderer r) {
         int scrollBarX = panelX + panelWidth - SCROLL_BAR_WIDTH;
         int scrollBarY = panelY + HEADER_HEIGHT + 10;
@@ -315,8 +536,10 @@ public class ComprehensiveModOverlay {
             Text textSprite = (Text) font.getText(text);
             textSprite.render(r, x, y);
         } catch (Exception e) {
-            // Fallback: just log the text for debugging
-            System.err.println("Could not render text: " + text + " at (" + x + "," + y + ")");
+            // Fallback: just log the text for debugging, until it fails every frame
+            if (ExceptionBreaker.get("sosModHooks overlay text").recordFailure(e)) {
+                System.err.println("Could not render text: " + text + " at (" + x + "," + y + ")");
+            }
         }
     }
     
@@ -326,7 +549,7 @@ public class ComprehensiveModOverlay {
         // Check close button
         if (mouseX >= panelX + panelWidth - 30 && mouseX <= panelX + panelWidth - 10 &&
             mouseY >= panelY + 10 && mouseY <= panelY + 30) {
-            toggle();
+            isVisible = false;
             return;
         }
         
@@ -341,6 +564,10 @@ public class ComprehensiveModOverlay {
                 // Toggle expansion
                 boolean currentlyExpanded = expandedMods.getOrDefault(entry.modId, false);
                 expandedMods.put(entry.modId, !currentlyExpanded);
+                if (!currentlyExpanded) {
+                    entry.dropdownHeight = measureModDropdown(entry);
+                }
+                updateScrollLimits();
                 return;
             }
             
@@ -348,7 +575,7 @@ public class ComprehensiveModOverlay {
             
             // Skip dropdown area if expanded
             if (expandedMods.getOrDefault(entry.modId, false)) {
-                currentY += entry.getDropdownHeight();
+                currentY += entry.dropdownHeight;
             }
         }
     }
@@ -367,7 +594,7 @@ public class ComprehensiveModOverlay {
             currentY += MOD_ENTRY_HEIGHT;
             
             if (expandedMods.getOrDefault(entry.modId, false)) {
-                currentY += entry.getDropdownHeight();
+                currentY += entry.dropdownHeight;
             }
         }
     }
@@ -384,35 +611,50 @@ public class ComprehensiveModOverlay {
         }
     }
     
-    private void refreshModEntries() {
-        try {
-            modEntries.clear();
+    private void updateScrollLimits() {
+        int totalHeight = modEntries.size() * MOD_ENTRY_HEIGHT;
+        for (ModEntry entry : modEntries) {
+            if (expandedMods.getOrDefault(entry.modId, false)) {
+                totalHeight += entry.dropdownHeight;
+            }
+        }
+        
+        maxScrollOffset = Math.max(0, totalHeight - (panelHeight - HEADER_HEIGHT - 20));
+        scrollOffset = Math.min(scrollOffset, maxScrollOffset);
+    }
+    
+    /**
+     * Builds a new entry list one mod at a time and swaps it in when complete.
+     */
+    private class RefreshTask implements TickScheduler.Task {
+        private java.util.Iterator<Map.Entry<String, ModRegistry.ActiveModInfo>> mods;
+        private final List<ModEntry> entries = new ArrayList<>();
+        
+        @Override
+        public boolean step() {
             ModRegistry registry = ModRegistry.getInstance();
-            
-            for (Map.Entry<String, ModRegistry.ActiveModInfo> entry : registry.getActiveMods().entrySet()) {
-                String modId = entry.getKey();
-                ModRegistry.ActiveModInfo modInfo = entry.getValue();
-                
-                ModRegistry.ModAnalysis analysis = registry.getModAnalysis(modId);
-                int modificationCount = analysis != null ? analysis.getTotalModifications() : 0;
-                
-                ModEntry modEntry = new ModEntry(modId, modInfo.modName, modInfo.modVersion, modificationCount);
-                modEntries.add(modEntry);
+            if (mods == null) {
+                mods = registry.getActiveMods().entrySet().iterator();
             }
             
-            // Calculate scroll limits
-            int totalHeight = modEntries.size() * MOD_ENTRY_HEIGHT;
-            for (ModEntry entry : modEntries) {
-                if (expandedMods.getOrDefault(entry.modId, false)) {
-                    totalHeight += entry.getDropdownHeight();
+            if (mods.hasNext()) {
+                Map.Entry<String, ModRegistry.ActiveModInfo> entry = mods.next();
+                ModRegistry.ModAnalysis analysis = registry.getModAnalysis(entry.getKey());
+                int modificationCount = analysis != null ? analysis.getTotalModifications() : 0;
+                int conflictingMods = registry.findConflictingMods(entry.getKey()).size();
+                ModEntry modEntry = new ModEntry(entry.getKey(), entry.getValue().modName, entry.getValue().modVersion,
+                                                 modificationCount, conflictingMods);
+                if (expandedMods.getOrDefault(entry.getKey(), false)) {
+                    modEntry.dropdownHeight = measureModDropdown(modEntry);
                 }
+                entries.add(modEntry);
+                return false;
             }
             
-            maxScrollOffset = Math.max(0, totalHeight - (panelHeight - HEADER_HEIGHT - 20));
-            scrollOffset = Math.min(scrollOffset, maxScrollOffset);
-            
-        } catch (Exception e) {
-            // Silent fail - don't crash the game
+            modEntries.clear();
+            modEntries.addAll(entries);
+            updateScrollLimits();
+            return true;
         }
     }
     
@@ -424,20 +666,17 @@ public class ComprehensiveModOverlay {
         final String modName;
         final String modVersion;
         final int modificationCount;
+        final int conflictingMods;
         boolean isHovered = false;
+        // Height of the dropdown as last laid out, kept for scrolling and hit testing
+        int dropdownHeight = 0;
         
-        ModEntry(String modId, String modName, String modVersion, int modificationCount) {
+        ModEntry(String modId, String modName, String modVersion, int modificationCount, int conflictingMods) {
             this.modId = modId;
             this.modName = modName;
             this.modVersion = modVersion;
             this.modificationCount = modificationCount;
-        }
-        
-        int getDropdownHeight() {
-            // Calculate actual height based on modification count and content
-            int baseHeight = 50; // Header and spacing
-            int modificationHeight = modificationCount * 25; // 25px per modification
-            return Math.min(400, baseHeight + modificationHeight);
+            this.conflictingMods = conflictingMods;
         }
     }
 }
@@ -0,0 +1,46 @@
+package sosModHooks;
+
+/**
+ * A change in the registry's conflict state, delivered to {@link ModRegistry.ConflictListener}s.
+ */
+public final class ConflictEvent {
+
+    public enum Kind {
+        CONFLICT_ADDED,
+        CONFLICT_REMOVED,
+        MOD_REGISTERED
+    }
+
+    private final Kind kind;
+    private final ModConflict conflict;
+    private final String modId;
+
+    private ConflictEvent(Kind kind, ModConflict conflict, String modId) {
+        this.kind = kind;
+        this.conflict = conflict;
+        this.modId = modId;
+    }
+
+    static ConflictEvent added(ModConflict conflict) {
+        return new ConflictEvent(Kind.CONFLICT_ADDED, conflict, null);
+    }
+
+    static ConflictEvent removed(ModConflict conflict) {
+        return new ConflictEvent(Kind.CONFLICT_REMOVED, conflict, null);
+    }
+
+    static ConflictEvent modRegistered(String modId) {
+        return new ConflictEvent(Kind.MOD_REGISTERED, null, modId);
+    }
+
+    public Kind getKind() { return kind; }
+    /** The conflict that appeared or went away, or null for MOD_REGISTERED. */
+    public ModConflict getConflict() { return conflict; }
+    /** The registered mod, or null for conflict events. */
+    public String getModId() { return modId; }
+
+    @Override
+    public String toString() {
+        return kind == Kind.MOD_REGISTERED ? kind + " " + modId : kind + " " + conflict.getSummary();
+    }
+}
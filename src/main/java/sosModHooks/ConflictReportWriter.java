@@ -0,0 +1,289 @@
+package sosModHooks;
+
+import snake2d.util.sets.LIST;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Streams conflict detection results to a file as JSON Lines or CSV.
+ *
+ * Each conflict is formatted into one reused line buffer and encoded into a fixed byte
+ * buffer that is flushed to the channel when full, so memory use does not grow with the
+ * number of conflicts. Conflicts can be filtered by type and by mod.
+ */
+public final class ConflictReportWriter {
+
+    public enum Format {
+        JSON_LINES(".jsonl"),
+        CSV(".csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Format format;
+    private EnumSet<ConflictType> types = EnumSet.allOf(ConflictType.class);
+    private Set<String> mods = null;
+    private final int[] writtenByType = new int[ConflictType.values().length];
+
+    public ConflictReportWriter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Only report conflicts of the given types.
+     */
+    public ConflictReportWriter withTypes(ConflictType first, ConflictType... rest) {
+        this.types = EnumSet.of(first, rest);
+        return this;
+    }
+
+    /**
+     * Only report conflicts that involve at least one of the given mods.
+     */
+    public ConflictReportWriter withMods(String... modIds) {
+        this.mods = new HashSet<>();
+        for (String modId : modIds) {
+            this.mods.add(modId);
+        }
+        return this;
+    }
+
+    /**
+     * Write the current conflicts to a new file in the output directory.
+     *
+     * @return the written file, or null if writing failed
+     */
+    public File export() {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = new File(ModHooksFiles.getOutputDirectory(), "conflicts-" + stamp + format.getExtension());
+        try {
+            int written = write(file);
+            System.out.println("sosModHooks: Wrote " + written + " conflicts to " + file.getPath());
+            return file;
+        } catch (IOException e) {
+            System.err.println("sosModHooks: Error writing conflict report: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #export()}, but detection and writing run on a background thread so they
+     * never hold up a game tick.
+     */
+    public void exportInBackground() {
+        Thread thread = new Thread(this::export, "sosModHooks-conflict-report");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Run conflict detection and write every matching conflict to the file.
+     *
+     * @return the number of conflicts written
+     */
+    public int write(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            if (format == Format.CSV) {
+                out.line().append("type,target,mods,vanilla_override,description");
+                out.flushLine();
+            }
+            Arrays.fill(writtenByType, 0);
+            try {
+                ModRegistry.getInstance().forEachConflict(conflict -> {
+                    if (matches(conflict)) {
+                        append(out.line(), conflict);
+                        out.flushLine();
+                        writtenByType[conflict.getType().ordinal()]++;
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.close();
+            return format == Format.CSV ? out.lines - 1 : out.lines;
+        }
+    }
+
+    /**
+     * Number of conflicts of a type written by the last call to {@link #write(File)}.
+     */
+    public int getWrittenCount(ConflictType type) {
+        return writtenByType[type.ordinal()];
+    }
+
+    private boolean matches(ModConflict conflict) {
+        if (!types.contains(conflict.getType())) {
+            return false;
+        }
+        if (mods == null) {
+            return true;
+        }
+        LIST<String> involved = conflict.getConflictingMods();
+        for (int i = 0; i < involved.size(); i++) {
+            if (mods.contains(involved.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(StringBuilder line, ModConflict conflict) {
+        LIST<String> involved = conflict.getConflictingMods();
+        if (format == Format.JSON_LINES) {
+            line.append("{\"type\":\"").append(conflict.getType().name());
+            line.append("\",\"target\":");
+            jsonString(line, conflict.getConflictTarget());
+            line.append(",\"mods\":[");
+            for (int i = 0; i < involved.size(); i++) {
+                if (i > 0) line.append(',');
+                jsonString(line, involved.get(i));
+            }
+            line.append("],\"vanillaOverride\":").append(conflict.isVanillaOverride());
+            line.append(",\"description\":");
+            jsonString(line, conflict.getDescription());
+            line.append('}');
+        } else {
+            line.append(conflict.getType().name()).append(',');
+            csvField(line, conflict.getConflictTarget());
+            line.append(',');
+            int start = line.length();
+            for (int i = 0; i < involved.size(); i++) {
+                if (i > 0) line.append(';');
+                line.append(involved.get(i));
+            }
+            quoteCsvTail(line, start);
+            line.append(',').append(conflict.isVanillaOverride()).append(',');
+            csvField(line, conflict.getDescription());
+        }
+    }
+
+    private static void jsonString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    private static void csvField(StringBuilder line, String value) {
+        int start = line.length();
+        line.append(value);
+        quoteCsvTail(line, start);
+    }
+
+    /**
+     * Quote the text appended since start if it contains a separator, quote or line break.
+     */
+    private static void quoteCsvTail(StringBuilder line, int start) {
+        boolean needsQuotes = false;
+        for (int i = start; i < line.length() && !needsQuotes; i++) {
+            char c = line.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            return;
+        }
+        for (int i = line.length() - 1; i >= start; i--) {
+            if (line.charAt(i) == '"') {
+                line.insert(i, '"');
+            }
+        }
+        line.insert(start, '"');
+        line.append('"');
+    }
+
+    /**
+     * Reused line buffer and byte buffer in front of the channel.
+     */
+    private static final class Output {
+        private final WritableByteChannel channel;
+        private final StringBuilder line = new StringBuilder(512);
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private int lines = 0;
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        StringBuilder line() {
+            line.setLength(0);
+            return line;
+        }
+
+        void flushLine() {
+            line.append('\n');
+            try {
+                CharBuffer chars = CharBuffer.wrap(line);
+                while (true) {
+                    CoderResult result = encoder.encode(chars, bytes, true);
+                    if (result.isOverflow()) {
+                        drain();
+                    } else if (result.isUnderflow()) {
+                        break;
+                    } else {
+                        result.throwException();
+                    }
+                }
+                encoder.reset();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            lines++;
+        }
+
+        void close() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package sosModHooks;
+
+import snake2d.util.sets.ArrayListGrower;
+import snake2d.util.sets.LIST;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Record-level index of the data files mods ship.
+ *
+ * Every top-level key of an init file is stored under (data folder, file name, key),
+ * so two mods only conflict when they define or override the same field of the same
+ * record. Strings are interned and owners are kept as mod bitsets. Files can be
+ * re-indexed one at a time when they change.
+ */
+public final class DataConflictIndex {
+
+    private static final int FIELD_BITS = 21;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+
+    private final StringPool names = new StringPool();
+    private final StringPool mods = new StringPool();
+
+    // record key (folder, file, key) -> slot
+    private final LongIntMap recordSlots = new LongIntMap(1024);
+    private long[] recordKeys = new long[1024];
+    private long[][] owners = new long[1024][];
+    private int[] ownerCounts = new int[1024];
+    private int slotCount = 0;
+
+    // (mod, folder, file) -> record keys that file contributed
+    private final Map<Long, long[]> contributions = new HashMap<>();
+    // mod -> its keys in contributions, so per-mod lookups don't scan every file
+    private final Map<Integer, Set<Long>> filesByMod = new HashMap<>();
+
+    /**
+     * Index (or re-index) one data file of a mod, replacing whatever that file contributed before.
+     *
+     * @param folder data folder relative to the assets root, for example "init/race"
+     * @param file file name without extension, for example "HUMAN"
+     */
+    public void updateFile(String modId, String folder, String file, CharSequence content) {
+        updateFileKeys(modId, folder, file, parseTopLevelKeys(content));
+    }
+
+    /**
+     * Same as {@link #updateFile}, for keys that were parsed before, such as from a saved index.
+     */
+    public synchronized void updateFileKeys(String modId, String folder, String file, List<String> keys) {
+        int modIndex = mods.intern(modId);
+        int folderId = internName(folder);
+        int fileId = internName(file);
+
+        long[] recordKeysForFile = new long[keys.size()];
+        int count = 0;
+        for (String key : keys) {
+            recordKeysForFile[count++] = packRecord(folderId, fileId, internName(key));
+        }
+        Arrays.sort(recordKeysForFile, 0, count);
+        count = dedupSorted(recordKeysForFile, count);
+        recordKeysForFile = Arrays.copyOf(recordKeysForFile, count);
+
+        long contributionKey = packRecord(modIndex, folderId, fileId);
+        long[] previous = contributions.put(contributionKey, recordKeysForFile);
+        filesByMod.computeIfAbsent(modIndex, k -> new HashSet<>()).add(contributionKey);
+        if (previous != null) {
+            for (long recordKey : previous) {
+                removeOwner(recordKey, modIndex);
+            }
+        }
+        for (long recordKey : recordKeysForFile) {
+            addOwner(recordKey, modIndex);
+        }
+    }
+
+    /**
+     * Drop everything one data file of a mod contributed.
+     */
+    public synchronized void removeFile(String modId, String folder, String file) {
+        int modIndex = mods.find(modId);
+        int folderId = names.find(folder);
+        int fileId = names.find(file);
+        if (modIndex < 0 || folderId < 0 || fileId < 0) {
+            return;
+        }
+
+        long contributionKey = packRecord(modIndex, folderId, fileId);
+        long[] previous = contributions.remove(contributionKey);
+        Set<Long> files = filesByMod.get(modIndex);
+        if (files != null) {
+            files.remove(contributionKey);
+        }
+        if (previous != null) {
+            for (long recordKey : previous) {
+                removeOwner(recordKey, modIndex);
+            }
+        }
+    }
+
+    /**
+     * Drop every data file a mod contributed.
+     */
+    public synchronized void removeMod(String modId) {
+        int modIndex = mods.find(modId);
+        if (modIndex < 0) {
+            return;
+        }
+
+        Set<Long> files = filesByMod.remove(modIndex);
+        if (files == null) {
+            return;
+        }
+        for (long contributionKey : files) {
+            for (long recordKey : contributions.remove(contributionKey)) {
+                removeOwner(recordKey, modIndex);
+            }
+        }
+    }
+
+    /**
+     * Record keys of every data field a mod defines.
+     */
+    public synchronized long[] getRecordKeys(String modId) {
+        int modIndex = mods.find(modId);
+        if (modIndex < 0) {
+            return new long[0];
+        }
+        long[] keys = new long[16];
+        int count = 0;
+        for (long contributionKey : filesOf(modIndex)) {
+            for (long recordKey : contributions.get(contributionKey)) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                }
+                keys[count++] = recordKey;
+            }
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    /**
+     * Receives the data files one mod contributed.
+     */
+    public interface FileVisitor {
+        void visit(String folder, String file, List<String> keys);
+    }
+
+    /**
+     * Visit every data file a mod contributed, with the keys it defines.
+     */
+    public synchronized void visitFiles(String modId, FileVisitor visitor) {
+        int modIndex = mods.find(modId);
+        if (modIndex < 0) {
+            return;
+        }
+        for (long contributionKey : filesOf(modIndex)) {
+            long[] recordKeysForFile = contributions.get(contributionKey);
+            List<String> keys = new ArrayList<>(recordKeysForFile.length);
+            for (long recordKey : recordKeysForFile) {
+                keys.add(names.get((int) (recordKey & FIELD_MASK)));
+            }
+            visitor.visit(names.get((int) ((contributionKey >>> FIELD_BITS) & FIELD_MASK)),
+                          names.get((int) (contributionKey & FIELD_MASK)), keys);
+        }
+    }
+
+    /**
+     * Number of record fields both mods define. Looks at the fields of the mod with fewer
+     * data files only, checking the other mod's bit on each.
+     */
+    public synchronized int countSharedRecords(String modA, String modB) {
+        int indexA = mods.find(modA);
+        int indexB = mods.find(modB);
+        if (indexA < 0 || indexB < 0) {
+            return 0;
+        }
+        if (filesOf(indexB).size() < filesOf(indexA).size()) {
+            int swap = indexA;
+            indexA = indexB;
+            indexB = swap;
+        }
+        int shared = 0;
+        for (long contributionKey : filesOf(indexA)) {
+            for (long recordKey : contributions.get(contributionKey)) {
+                int slot = recordSlots.get(recordKey);
+                if (slot >= 0 && ownerCounts[slot] > 1 && hasOwner(owners[slot], indexB)) {
+                    shared++;
+                }
+            }
+        }
+        return shared;
+    }
+
+    private Set<Long> filesOf(int modIndex) {
+        Set<Long> files = filesByMod.get(modIndex);
+        return files != null ? files : Collections.emptySet();
+    }
+
+    private static boolean hasOwner(long[] bits, int modIndex) {
+        int word = modIndex >>> 6;
+        return bits != null && word < bits.length && (bits[word] & (1L << (modIndex & 63))) != 0;
+    }
+
+    /**
+     * Number of distinct record fields currently indexed.
+     */
+    public synchronized int getRecordCount() {
+        return slotCount;
+    }
+
+    /**
+     * Add one conflict per record that two or more mods define.
+     * Fields of the same record with the same set of owners are reported together.
+     */
+    public synchronized void collectConflicts(ModRegistry.ConflictVisitor conflicts) {
+        int[] conflicting = new int[slotCount];
+        int conflictingCount = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (ownerCounts[slot] > 1) {
+                conflicting[conflictingCount++] = slot;
+            }
+        }
+        if (conflictingCount == 0) {
+            return;
+        }
+
+        // Sort by record key so all fields of one file are adjacent
+        long[] sortable = new long[conflictingCount];
+        for (int i = 0; i < conflictingCount; i++) {
+            sortable[i] = recordKeys[conflicting[i]];
+        }
+        Arrays.sort(sortable);
+
+        boolean[] reported = new boolean[conflictingCount];
+        for (int i = 0; i < conflictingCount; i++) {
+            if (reported[i]) {
+                continue;
+            }
+
+            long fileKey = sortable[i] >>> FIELD_BITS;
+            long[] ownerSet = owners[recordSlots.get(sortable[i])];
+            StringBuilder fields = new StringBuilder();
+
+            for (int j = i; j < conflictingCount && (sortable[j] >>> FIELD_BITS) == fileKey; j++) {
+                if (!reported[j] && sameOwners(ownerSet, owners[recordSlots.get(sortable[j])])) {
+                    if (fields.length() > 0) fields.append(", ");
+                    fields.append(names.get((int) (sortable[j] & FIELD_MASK)));
+                    reported[j] = true;
+                }
+            }
+
+            String folder = names.get((int) ((sortable[i] >>> (FIELD_BITS * 2)) & FIELD_MASK));
+            String file = names.get((int) ((sortable[i] >>> FIELD_BITS) & FIELD_MASK));
+            String target = folder.isEmpty() ? file : folder + "/" + file;
+
+            conflicts.add(new ModConflict(
+                target,
+                ownerNames(ownerSet),
+                ConflictType.DATA_CONFLICT,
+                "Multiple mods define the same fields of " + target + ": " + fields
+            ));
+        }
+    }
+
+    /**
+     * Receives records that two or more mods define.
+     */
+    public interface SharedRecordVisitor {
+        void visit(long recordKey, LIST<String> owners);
+    }
+
+    /**
+     * Visit every record owned by two or more mods. Batch jobs can split the records into
+     * hash partitions with {@link #partitionOf(long, int)} as they go.
+     */
+    public synchronized void visitSharedRecords(SharedRecordVisitor visitor) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (ownerCounts[slot] > 1) {
+                visitor.visit(recordKeys[slot], ownerNames(owners[slot]));
+            }
+        }
+    }
+
+    static int partitionOf(long key, int partitions) {
+        return (int) (((key * 0x9E3779B97F4A7C15L) >>> 33) % partitions);
+    }
+
+    /**
+     * Extract the top-level keys of a game data file.
+     * Keys nested in {} or [] blocks, quoted strings and ** or // comments are ignored.
+     */
+    static List<String> parseTopLevelKeys(CharSequence content) {
+        List<String> keys = new ArrayList<>();
+        int depth = 0;
+        int length = content.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = content.charAt(i);
+
+            if (c == '"') {
+                i++;
+                while (i < length && content.charAt(i) != '"') {
+                    if (content.charAt(i) == '\\') i++;
+                    i++;
+                }
+                i++;
+            } else if ((c == '*' || c == '/') && i + 1 < length && content.charAt(i + 1) == c) {
+                while (i < length && content.charAt(i) != '\n') i++;
+            } else if (c == '{' || c == '[' || c == '(') {
+                depth++;
+                i++;
+            } else if (c == '}' || c == ']' || c == ')') {
+                depth = Math.max(0, depth - 1);
+                i++;
+            } else if (depth == 0 && isKeyChar(c)) {
+                int start = i;
+                while (i < length && isKeyChar(content.charAt(i))) i++;
+                int end = i;
+                while (i < length && (content.charAt(i) == ' ' || content.charAt(i) == '\t')) i++;
+                if (i < length && content.charAt(i) == ':') {
+                    keys.add(content.subSequence(start, end).toString());
+                    i++;
+                }
+            } else {
+                i++;
+            }
+        }
+
+        return keys;
+    }
+
+    private static boolean isKeyChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private int internName(String name) {
+        int id = names.intern(name);
+        if (id > FIELD_MASK) {
+            throw new IllegalStateException("Data conflict index is full");
+        }
+        return id;
+    }
+
+    private static long packRecord(int high, int middle, int low) {
+        return ((long) high << (FIELD_BITS * 2)) | ((long) middle << FIELD_BITS) | low;
+    }
+
+    private static int dedupSorted(long[] values, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        int unique = 1;
+        for (int i = 1; i < count; i++) {
+            if (values[i] != values[unique - 1]) {
+                values[unique++] = values[i];
+            }
+        }
+        return unique;
+    }
+
+    private void addOwner(long recordKey, int modIndex) {
+        int slot = recordSlots.get(recordKey);
+        if (slot < 0) {
+            slot = slotCount++;
+            if (slot == recordKeys.length) {
+                recordKeys = Arrays.copyOf(recordKeys, slot * 2);
+                owners = Arrays.copyOf(owners, slot * 2);
+                ownerCounts = Arrays.copyOf(ownerCounts, slot * 2);
+            }
+            recordKeys[slot] = recordKey;
+            recordSlots.put(recordKey, slot);
+        }
+
+        long[] bits = owners[slot];
+        int word = modIndex >>> 6;
+        if (bits == null || bits.length <= word) {
+            bits = bits == null ? new long[word + 1] : Arrays.copyOf(bits, word + 1);
+            owners[slot] = bits;
+        }
+        long mask = 1L << (modIndex & 63);
+        if ((bits[word] & mask) == 0) {
+            bits[word] |= mask;
+            ownerCounts[slot]++;
+        }
+    }
+
+    private void removeOwner(long recordKey, int modIndex) {
+        int slot = recordSlots.get(recordKey);
+        if (slot < 0 || owners[slot] == null) {
+            return;
+        }
+
+        long[] bits = owners[slot];
+        int word = modIndex >>> 6;
+        long mask = 1L << (modIndex & 63);
+        if (word < bits.length && (bits[word] & mask) != 0) {
+            bits[word] &= ~mask;
+            ownerCounts[slot]--;
+        }
+    }
+
+    private static boolean sameOwners(long[] a, long[] b) {
+        int length = Math.max(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            long wordA = i < a.length ? a[i] : 0L;
+            long wordB = i < b.length ? b[i] : 0L;
+            if (wordA != wordB) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ArrayListGrower<String> ownerNames(long[] bits) {
+        ArrayListGrower<String> result = new ArrayListGrower<>();
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int bit = Long.numberOfTrailingZeros(remaining);
+                result.add(mods.get(word * 64 + bit));
+                remaining &= remaining - 1;
+            }
+        }
+        return result;
+    }
+}
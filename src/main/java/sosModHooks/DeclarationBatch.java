@@ -0,0 +1,146 @@
+package sosModHooks;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Declarations of one mod, collected and then added to the registry in one step.
+ *
+ * Obtained from {@link ModRegistry#beginDeclarations(String)}. Entries are appended to what
+ * the mod already declared, and duplicates are dropped both within the batch and against the
+ * registry. Asset paths are interned into the {@link PathStore} as they are added and kept
+ * as ids, so a batch of thousands of paths costs a few bytes per path. A batch may be filled
+ * from several threads; {@link #commit()} can be called more than once and only adds what
+ * was declared since the previous commit.
+ */
+public final class DeclarationBatch {
+
+    private final ModRegistry registry;
+    private final String modId;
+
+    private Set<String> classes = new LinkedHashSet<>();
+    private Set<String> dataTypes = new LinkedHashSet<>();
+    private Set<String> dependencies = new LinkedHashSet<>();
+
+    // Open-addressing set of path ids (id + 1, 0 is empty) next to the ids in declaration order
+    private int[] assetSlots = new int[16];
+    private int[] assetIds = new int[8];
+    private int assetCount = 0;
+
+    // Set when data files were indexed for this mod, so conflict listeners hear about it on commit
+    private boolean dataIndexChanged = false;
+
+    DeclarationBatch(ModRegistry registry, String modId) {
+        this.registry = registry;
+        this.modId = modId;
+    }
+
+    public String getModId() {
+        return modId;
+    }
+
+    public synchronized DeclarationBatch replacesClasses(String... classNames) {
+        for (String className : classNames) {
+            classes.add(className);
+        }
+        return this;
+    }
+
+    public synchronized DeclarationBatch modifiesAssets(String... assetPaths) {
+        PathStore store = PathStore.getInstance();
+        for (String assetPath : assetPaths) {
+            addAsset(store.intern(assetPath));
+        }
+        return this;
+    }
+
+    public synchronized DeclarationBatch modifiesData(String... types) {
+        for (String dataType : types) {
+            dataTypes.add(dataType);
+        }
+        return this;
+    }
+
+    public synchronized DeclarationBatch dependsOn(String... dependencyIds) {
+        for (String dependencyId : dependencyIds) {
+            dependencies.add(dependencyId);
+        }
+        return this;
+    }
+
+    /**
+     * Note that the mod's entries in the data conflict index changed. Reported on commit.
+     */
+    synchronized void dataIndexChanged() {
+        dataIndexChanged = true;
+    }
+
+    public synchronized boolean isEmpty() {
+        return classes.isEmpty() && dataTypes.isEmpty() && dependencies.isEmpty() && assetCount == 0;
+    }
+
+    /**
+     * Add everything declared so far to the registry and start over empty.
+     */
+    public void commit() {
+        Set<String> committedClasses;
+        Set<String> committedData;
+        Set<String> committedDependencies;
+        int[] committedAssets;
+        boolean committedDataIndex;
+        synchronized (this) {
+            if (isEmpty() && !dataIndexChanged) {
+                return;
+            }
+            committedClasses = classes;
+            committedData = dataTypes;
+            committedDependencies = dependencies;
+            committedAssets = Arrays.copyOf(assetIds, assetCount);
+            classes = new LinkedHashSet<>();
+            dataTypes = new LinkedHashSet<>();
+            dependencies = new LinkedHashSet<>();
+            assetSlots = new int[16];
+            assetCount = 0;
+            committedDataIndex = dataIndexChanged;
+            dataIndexChanged = false;
+        }
+        registry.commitDeclarations(modId, committedClasses, committedAssets, committedData, committedDependencies,
+            committedDataIndex);
+    }
+
+    private void addAsset(int id) {
+        if (addId(assetSlots, id)) {
+            if (assetCount == assetIds.length) {
+                assetIds = Arrays.copyOf(assetIds, assetCount * 2);
+            }
+            assetIds[assetCount++] = id;
+            if (assetCount * 2 > assetSlots.length) {
+                int[] grown = new int[assetSlots.length * 2];
+                for (int i = 0; i < assetCount; i++) {
+                    addId(grown, assetIds[i]);
+                }
+                assetSlots = grown;
+            }
+        }
+    }
+
+    /**
+     * Add an id to an open-addressing table of id + 1. The table must have a free slot.
+     *
+     * @return false if the id was already there
+     */
+    static boolean addId(int[] slots, int id) {
+        int mask = slots.length - 1;
+        int hash = id * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (slots[slot] != 0) {
+            if (slots[slot] == id + 1) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+        return true;
+    }
+}
@@ -0,0 +1,374 @@
+package sosModHooks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarFile;
+
+/**
+ * Finds files with identical content in different mods, which the game loads once per copy.
+ *
+ * Works on the per-file records the asset scan keeps for {@link ModRegistry.FileModification}s.
+ * Files are first bucketed by size, which needs no reads at all, so only files that share
+ * their exact size with a file of another mod are opened. Those are grouped by a hash of
+ * their first 4 KB and finally confirmed with a full byte comparison.
+ *
+ * Size buckets are found by sorting two primitive longs per recorded file, the size and a
+ * reference to the record, and walking the runs of equal size. Besides those arrays and two
+ * fixed read buffers, only the candidates of the bucket being read are held as objects.
+ */
+public final class DuplicateContentAnalyzer {
+
+    private static final int SAMPLE_SIZE = 4096;
+    private static final int COMPARE_BUFFER_SIZE = 65536;
+
+    private static DuplicateContentAnalyzer instance;
+
+    private volatile List<DuplicateCluster> clusters = Collections.emptyList();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final byte[] bufferA = new byte[COMPARE_BUFFER_SIZE];
+    private final byte[] bufferB = new byte[COMPARE_BUFFER_SIZE];
+
+    private DuplicateContentAnalyzer() {
+    }
+
+    public static synchronized DuplicateContentAnalyzer getInstance() {
+        if (instance == null) {
+            instance = new DuplicateContentAnalyzer();
+        }
+        return instance;
+    }
+
+    /**
+     * Run the analysis on a low priority daemon thread. Does nothing if one is already running.
+     */
+    public void analyzeInBackground() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                analyze();
+                long wasted = getWastedBytes();
+                if (wasted > 0) {
+                    System.out.println("sosModHooks: Found " + clusters.size() + " duplicate files across mods, "
+                        + (wasted / 1024) + " KB loaded more than once");
+                }
+            } catch (Exception e) {
+                System.err.println("sosModHooks: Duplicate content analysis failed: " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }, "sosModHooks-duplicates");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Clusters from the last finished analysis, largest waste first.
+     */
+    public List<DuplicateCluster> getClusters() {
+        return clusters;
+    }
+
+    public long getWastedBytes() {
+        long wasted = 0;
+        for (DuplicateCluster cluster : clusters) {
+            wasted += cluster.getWastedBytes();
+        }
+        return wasted;
+    }
+
+    /**
+     * Analyze the recorded files of all mods on the calling thread.
+     */
+    public synchronized List<DuplicateCluster> analyze() {
+        // One cost per mod, so a cost's index in this array identifies the mod
+        AssetMemoryEstimator.ModAssetCost[] costs = AssetMemoryEstimator.getInstance().getCosts().values()
+            .toArray(new AssetMemoryEstimator.ModAssetCost[0]);
+
+        int total = 0;
+        int[] counts = new int[costs.length];
+        for (int c = 0; c < costs.length; c++) {
+            counts[c] = costs[c].getAssetCount();
+            total += counts[c];
+        }
+        long[] sizes = new long[total];
+        long[] records = new long[total];
+        int n = 0;
+        for (int c = 0; c < costs.length; c++) {
+            for (int i = 0; i < counts[c]; i++) {
+                long size = costs[c].getFileSize(i);
+                if (size > 0) {
+                    sizes[n] = size;
+                    records[n] = ((long) c << 32) | i;
+                    n++;
+                }
+            }
+        }
+        sort(sizes, records, 0, n - 1);
+
+        List<DuplicateCluster> found = new ArrayList<>();
+        for (int start = 0, end; start < n; start = end) {
+            end = start + 1;
+            boolean severalMods = false;
+            while (end < n && sizes[end] == sizes[start]) {
+                severalMods |= (records[end] >>> 32) != (records[start] >>> 32);
+                end++;
+            }
+            // A bucket is only worth reading if it spans more than one mod
+            if (severalMods) {
+                readBucket(costs, records, start, end, sizes[start], found);
+            }
+        }
+
+        found.sort((a, b) -> Long.compare(b.getWastedBytes(), a.getWastedBytes()));
+        clusters = Collections.unmodifiableList(found);
+        return clusters;
+    }
+
+    /**
+     * Group one size bucket by sample hash and confirm the groups that span several mods.
+     */
+    private void readBucket(AssetMemoryEstimator.ModAssetCost[] costs, long[] records, int start, int end,
+                            long size, List<DuplicateCluster> found) {
+        Map<Long, List<Candidate>> bySample = new HashMap<>();
+        for (int r = start; r < end; r++) {
+            AssetMemoryEstimator.ModAssetCost cost = costs[(int) (records[r] >>> 32)];
+            Candidate candidate = new Candidate(cost.getModId(), (int) records[r], cost);
+            try {
+                bySample.computeIfAbsent(sampleHash(candidate.getSource(), size), k -> new ArrayList<>()).add(candidate);
+            } catch (IOException e) {
+                // Silently fail - unreadable files can't be compared
+            }
+        }
+        for (List<Candidate> sameSample : bySample.values()) {
+            if (sameSample.size() > 1 && modCount(sameSample) > 1) {
+                confirm(sameSample, size, found);
+            }
+        }
+    }
+
+    /**
+     * Sort both arrays by size, then record, keeping them parallel.
+     */
+    private static void sort(long[] sizes, long[] records, int low, int high) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long pivotSize = sizes[mid];
+            long pivotRecord = records[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(sizes[i], records[i], pivotSize, pivotRecord) < 0) i++;
+                while (compare(sizes[j], records[j], pivotSize, pivotRecord) > 0) j--;
+                if (i <= j) {
+                    long size = sizes[i]; sizes[i] = sizes[j]; sizes[j] = size;
+                    long record = records[i]; records[i] = records[j]; records[j] = record;
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse into the smaller half so the stack stays logarithmic
+            if (j - low < high - i) {
+                sort(sizes, records, low, j);
+                low = i;
+            } else {
+                sort(sizes, records, i, high);
+                high = j;
+            }
+        }
+    }
+
+    private static int compare(long sizeA, long recordA, long sizeB, long recordB) {
+        int bySize = Long.compare(sizeA, sizeB);
+        return bySize != 0 ? bySize : Long.compare(recordA, recordB);
+    }
+
+    /**
+     * Split candidates with the same sample hash into clusters of byte-identical files.
+     */
+    private void confirm(List<Candidate> candidates, long size, List<DuplicateCluster> found) {
+        List<Candidate> remaining = new ArrayList<>(candidates);
+        while (remaining.size() > 1) {
+            Candidate first = remaining.get(0);
+            List<Candidate> same = new ArrayList<>();
+            same.add(first);
+            List<Candidate> different = new ArrayList<>();
+            for (int i = 1; i < remaining.size(); i++) {
+                try {
+                    if (contentEquals(first.getSource(), remaining.get(i).getSource())) {
+                        same.add(remaining.get(i));
+                    } else {
+                        different.add(remaining.get(i));
+                    }
+                } catch (IOException e) {
+                    // Silently fail - unreadable files can't be compared
+                }
+            }
+            if (same.size() > 1 && modCount(same) > 1) {
+                found.add(new DuplicateCluster(size, same));
+            }
+            remaining = different;
+        }
+    }
+
+    private static int modCount(List<Candidate> candidates) {
+        Set<String> mods = new HashSet<>();
+        for (Candidate candidate : candidates) {
+            mods.add(candidate.modId);
+        }
+        return mods.size();
+    }
+
+    private long sampleHash(String source, long size) throws IOException {
+        // Only the head, since compressed JAR entries can't be read from the end
+        try (InputStream in = open(source)) {
+            int n = readFully(in, bufferA, SAMPLE_SIZE);
+            return hash(0xCBF29CE484222325L ^ size, bufferA, n);
+        }
+    }
+
+    private boolean contentEquals(String sourceA, String sourceB) throws IOException {
+        try (InputStream a = open(sourceA); InputStream b = open(sourceB)) {
+            while (true) {
+                int n = readFully(a, bufferA, bufferA.length);
+                int m = readFully(b, bufferB, bufferB.length);
+                if (n != m) {
+                    return false;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (bufferA[i] != bufferB[i]) {
+                        return false;
+                    }
+                }
+                if (n < bufferA.length) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static InputStream open(String source) throws IOException {
+        int separator = source.indexOf(AssetMemoryEstimator.JAR_SEPARATOR);
+        if (separator < 0) {
+            return new FileInputStream(source);
+        }
+        JarFile jar = new JarFile(source.substring(0, separator));
+        java.util.zip.ZipEntry entry = jar.getEntry(source.substring(separator + AssetMemoryEstimator.JAR_SEPARATOR.length()));
+        if (entry == null) {
+            jar.close();
+            throw new IOException("Missing entry " + source);
+        }
+        // Closing the entry stream closes the JAR with it
+        InputStream in = jar.getInputStream(entry);
+        return new java.io.FilterInputStream(in) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    jar.close();
+                }
+            }
+        };
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        int n;
+        while (total < length && (n = in.read(buffer, total, length - total)) > 0) {
+            total += n;
+        }
+        return total;
+    }
+
+    private static long hash(long h, byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            h ^= bytes[i];
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    /**
+     * Write the clusters as CSV, one row per copy.
+     */
+    public void writeCsv(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("cluster,size_bytes,copies,wasted_bytes,mod_id,asset_path,source");
+            int index = 0;
+            for (DuplicateCluster cluster : clusters) {
+                for (int i = 0; i < cluster.getCopyCount(); i++) {
+                    out.println(index + "," + cluster.getSize() + "," + cluster.getCopyCount() + ","
+                        + cluster.getWastedBytes() + "," + csv(cluster.getModId(i)) + ","
+                        + csv(cluster.getAssetPath(i)) + "," + csv(cluster.getSource(i)));
+                }
+                index++;
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * One recorded file of one mod.
+     */
+    private static final class Candidate {
+        final String modId;
+        final int index;
+        final AssetMemoryEstimator.ModAssetCost cost;
+
+        Candidate(String modId, int index, AssetMemoryEstimator.ModAssetCost cost) {
+            this.modId = modId;
+            this.index = index;
+            this.cost = cost;
+        }
+
+        String getSource() {
+            return cost.getSource(index);
+        }
+    }
+
+    /**
+     * A set of byte-identical files found in more than one mod.
+     */
+    public static final class DuplicateCluster {
+        private final long size;
+        private final List<Candidate> copies;
+
+        DuplicateCluster(long size, List<Candidate> copies) {
+            this.size = size;
+            this.copies = copies;
+        }
+
+        public long getSize() { return size; }
+        public int getCopyCount() { return copies.size(); }
+        /** Bytes taken by every copy but the first. */
+        public long getWastedBytes() { return size * (copies.size() - 1); }
+        public String getModId(int copy) { return copies.get(copy).modId; }
+        public String getAssetPath(int copy) { return copies.get(copy).cost.getAssetPath(copies.get(copy).index); }
+        public String getSource(int copy) { return copies.get(copy).getSource(); }
+    }
+}
@@ -0,0 +1,175 @@
+package sosModHooks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breaker for code that may throw on every frame, one per source such as
+ * "someMod update" or "overlay render".
+ *
+ * Failures are counted in a sliding window of one-second buckets. Below the threshold every
+ * failure is handled as before: logged, or rethrown for other mods' callbacks. Once more than
+ * sosModHooks.breaker.threshold failures (default 20) fall into the last
+ * sosModHooks.breaker.windowSeconds (default 10), the breaker opens: the source is skipped for
+ * sosModHooks.breaker.cooldownSeconds (default 30) and its failures are no longer logged.
+ * After the cooldown one call is let through; if it succeeds the breaker closes, if it fails
+ * the breaker opens again.
+ */
+public final class ExceptionBreaker {
+
+    private static final Map<String, ExceptionBreaker> breakers = new ConcurrentHashMap<>();
+
+    private static final int THRESHOLD = ModHooksConfig.getInstance().getInt("sosModHooks.breaker.threshold", 20);
+    private static final int WINDOW_SECONDS = Math.max(1, ModHooksConfig.getInstance().getInt("sosModHooks.breaker.windowSeconds", 10));
+    private static final long COOLDOWN_NANOS = ModHooksConfig.getInstance().getInt("sosModHooks.breaker.cooldownSeconds", 30) * 1_000_000_000L;
+
+    private final String source;
+
+    // Sliding window: failures per second, indexed by second modulo the window
+    private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+    private final int[] bucketCounts = new int[WINDOW_SECONDS];
+
+    private volatile boolean open = false;
+    private boolean probing = false;
+    private long openUntilNanos = 0;
+
+    private long failures = 0;
+    private long suppressed = 0;
+    private long skipped = 0;
+    private int trips = 0;
+    private String lastError = "";
+
+    private ExceptionBreaker(String source) {
+        this.source = source;
+    }
+
+    /**
+     * The breaker for a source, created on first use.
+     */
+    public static ExceptionBreaker get(String source) {
+        return breakers.computeIfAbsent(source, ExceptionBreaker::new);
+    }
+
+    /**
+     * Breakers that have seen at least one failure.
+     */
+    public static List<ExceptionBreaker> getFailing() {
+        List<ExceptionBreaker> failing = new ArrayList<>();
+        for (ExceptionBreaker breaker : breakers.values()) {
+            if (breaker.getFailures() > 0) {
+                failing.add(breaker);
+            }
+        }
+        failing.sort((a, b) -> Long.compare(b.getFailures(), a.getFailures()));
+        return failing;
+    }
+
+    /**
+     * Breakers whose source starts with the given prefix, such as a mod id.
+     */
+    public static List<ExceptionBreaker> getFailing(String sourcePrefix) {
+        List<ExceptionBreaker> failing = new ArrayList<>();
+        for (ExceptionBreaker breaker : getFailing()) {
+            if (breaker.source.startsWith(sourcePrefix)) {
+                failing.add(breaker);
+            }
+        }
+        return failing;
+    }
+
+    /**
+     * Whether the source should run now. False while the breaker is open; counts the skip.
+     */
+    public boolean allows() {
+        if (!open) {
+            return true;
+        }
+        synchronized (this) {
+            if (System.nanoTime() - openUntilNanos >= 0) {
+                // Cooldown over: let one call through to see if the source recovered
+                open = false;
+                probing = true;
+                return true;
+            }
+            skipped++;
+            return false;
+        }
+    }
+
+    /**
+     * Record a successful call. Closes the breaker after a successful probe.
+     */
+    public void recordSuccess() {
+        if (probing) {
+            synchronized (this) {
+                if (probing) {
+                    probing = false;
+                    System.out.println("sosModHooks: " + source + " recovered, no longer skipped");
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a failure.
+     *
+     * @return true if the failure should be reported as usual, false once the breaker
+     *         suppresses it
+     */
+    public synchronized boolean recordFailure(Throwable error) {
+        if (open && System.nanoTime() - openUntilNanos >= 0) {
+            // Sources that only log never ask allows(), so the cooldown ends here for them
+            open = false;
+        }
+        failures++;
+        lastError = error.getClass().getSimpleName() + (error.getMessage() != null ? ": " + error.getMessage() : "");
+
+        long second = Math.floorDiv(System.nanoTime(), 1_000_000_000L);
+        int slot = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+        if (bucketSeconds[slot] != second) {
+            bucketSeconds[slot] = second;
+            bucketCounts[slot] = 0;
+        }
+        bucketCounts[slot]++;
+
+        if (probing || getRecentFailures(second) > THRESHOLD) {
+            if (!open) {
+                trip();
+            }
+            suppressed++;
+            return false;
+        }
+        return true;
+    }
+
+    private void trip() {
+        open = true;
+        probing = false;
+        trips++;
+        openUntilNanos = System.nanoTime() + COOLDOWN_NANOS;
+        System.err.println("sosModHooks: " + source + " failed " + failures + " times (last: " + lastError
+            + "), skipping it for " + (COOLDOWN_NANOS / 1_000_000_000L) + " s and suppressing its errors");
+    }
+
+    private int getRecentFailures(long second) {
+        int recent = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (second - bucketSeconds[i] < WINDOW_SECONDS) {
+                recent += bucketCounts[i];
+            }
+        }
+        return recent;
+    }
+
+    public String getSource() { return source; }
+    public boolean isOpen() { return open; }
+    public synchronized long getFailures() { return failures; }
+    /** Failures that were not logged or rethrown because the breaker was open. */
+    public synchronized long getSuppressed() { return suppressed; }
+    /** Calls skipped while the breaker was open. */
+    public synchronized long getSkipped() { return skipped; }
+    public synchronized int getTrips() { return trips; }
+    public synchronized String getLastError() { return lastError; }
+}
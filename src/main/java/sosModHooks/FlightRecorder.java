@@ -0,0 +1,308 @@
+package sosModHooks;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Always-on ring of recent events that is written to disk when a frame stalls.
+ *
+ * Frames, garbage collections, class loads, registry scans and scheduled framework work are
+ * recorded as spans in preallocated arrays of sosModHooks.flightRecorder.capacity events
+ * (default 16384), overwriting the oldest. When a frame takes longer than
+ * sosModHooks.flightRecorder.spikeMillis (default 100), the last
+ * sosModHooks.flightRecorder.windowSeconds (default 10) are copied out and written as Chrome
+ * trace-event JSON on a background thread, at most once per
+ * sosModHooks.flightRecorder.cooldownSeconds (default 30). Set
+ * sosModHooks.flightRecorder.enabled=false to turn it off.
+ *
+ * The first frames after startup and gaps over five seconds, such as a paused or minimized
+ * game, are not treated as stalls.
+ */
+public final class FlightRecorder {
+
+    /**
+     * What an event measures. Stored as its ordinal, one byte per event.
+     */
+    public enum Kind {
+        FRAME("frame"),
+        GC("gc"),
+        CLASS_LOAD("class load"),
+        SCAN("registry scan"),
+        WORK("framework");
+
+        private final String category;
+
+        Kind(String category) {
+            this.category = category;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+    }
+
+    private static final int WARMUP_FRAMES = 120;
+    private static final long PAUSE_NANOS = 5_000_000_000L;
+
+    private static FlightRecorder instance;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long spikeNanos;
+    private final long windowNanos;
+    private final long cooldownNanos;
+
+    private final long originNanos = System.nanoTime();
+    private final long originMillis = System.currentTimeMillis();
+    private final StringPool names = new StringPool();
+
+    private final long[] starts;
+    private final long[] durations;
+    private final long[] values;
+    private final int[] nameIds;
+    private final byte[] kinds;
+    private long count = 0;
+
+    private long lastFrameNanos = 0;
+    private long frames = 0;
+    private long lastDumpNanos = 0;
+    private boolean dumped = false;
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+
+    private long spikes = 0;
+    private int dumps = 0;
+    private File lastDump;
+
+    private FlightRecorder() {
+        ModHooksConfig config = ModHooksConfig.getInstance();
+        enabled = config.getBoolean("sosModHooks.flightRecorder.enabled", true);
+        capacity = enabled ? Math.max(256, config.getInt("sosModHooks.flightRecorder.capacity", 16384)) : 0;
+        spikeNanos = config.getInt("sosModHooks.flightRecorder.spikeMillis", 100) * 1_000_000L;
+        windowNanos = config.getInt("sosModHooks.flightRecorder.windowSeconds", 10) * 1_000_000_000L;
+        cooldownNanos = config.getInt("sosModHooks.flightRecorder.cooldownSeconds", 30) * 1_000_000_000L;
+
+        starts = new long[capacity];
+        durations = new long[capacity];
+        values = new long[capacity];
+        nameIds = new int[capacity];
+        kinds = new byte[capacity];
+
+        if (enabled) {
+            listenForGarbageCollections();
+        }
+    }
+
+    public static synchronized FlightRecorder getInstance() {
+        if (instance == null) {
+            instance = new FlightRecorder();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record a span that started at a System.nanoTime() timestamp.
+     *
+     * @param value a number shown with the event, such as the number of classes loaded
+     */
+    public void record(Kind kind, String name, long startNanos, long durationNanos, long value) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            int slot = (int) (count % capacity);
+            starts[slot] = startNanos;
+            durations[slot] = durationNanos;
+            values[slot] = value;
+            nameIds[slot] = names.intern(name);
+            kinds[slot] = (byte) kind.ordinal();
+            count++;
+        }
+    }
+
+    /**
+     * Record the frame that just ended and dump the ring if it stalled. Call once per tick
+     * on the game thread.
+     */
+    public void frame(double ds) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastFrameNanos;
+        lastFrameNanos = now;
+        if (last == 0) {
+            return;
+        }
+        long interval = now - last;
+        record(Kind.FRAME, "frame", last, interval, Math.round(ds * 1_000_000));
+
+        frames++;
+        if (interval > spikeNanos && interval < PAUSE_NANOS && frames > WARMUP_FRAMES) {
+            spikes++;
+            if (!dumped || now - lastDumpNanos >= cooldownNanos) {
+                dump(now, interval);
+            }
+        }
+    }
+
+    private void dump(long now, long interval) {
+        if (!writing.compareAndSet(false, true)) {
+            return;
+        }
+        dumped = true;
+        lastDumpNanos = now;
+        Snapshot snapshot = snapshot(now - windowNanos, interval);
+
+        Thread thread = new Thread(() -> {
+            try {
+                String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+                File file = new File(ModHooksFiles.getOutputDirectory(), "frame-spike-" + stamp + ".json");
+                snapshot.write(file);
+                synchronized (this) {
+                    dumps++;
+                    lastDump = file;
+                }
+                System.out.println("sosModHooks: " + (interval / 1_000_000) + " ms frame, last "
+                    + (windowNanos / 1_000_000_000L) + " s of events written to " + file.getPath());
+            } catch (IOException e) {
+                System.err.println("sosModHooks: Error writing frame spike dump: " + e.getMessage());
+            } finally {
+                writing.set(false);
+            }
+        }, "sosModHooks-flight-recorder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Copy the events that ended after the given time, oldest first. Recording continues
+     * while the copy is written.
+     */
+    private synchronized Snapshot snapshot(long sinceNanos, long spikeNanos) {
+        int held = (int) Math.min(count, capacity);
+        Snapshot snapshot = new Snapshot(held, spikeNanos);
+        for (long i = count - held; i < count; i++) {
+            int slot = (int) (i % capacity);
+            if (starts[slot] + durations[slot] < sinceNanos) {
+                continue;
+            }
+            int n = snapshot.size++;
+            snapshot.starts[n] = starts[slot];
+            snapshot.durations[n] = durations[slot];
+            snapshot.values[n] = values[slot];
+            snapshot.kinds[n] = kinds[slot];
+            snapshot.names[n] = names.get(nameIds[slot]);
+        }
+        return snapshot;
+    }
+
+    private void listenForGarbageCollections() {
+        try {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (!(gc instanceof NotificationEmitter)) {
+                    continue;
+                }
+                ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                    if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        return;
+                    }
+                    GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    long durationNanos = info.getGcInfo().getDuration() * 1_000_000L;
+                    // Notifications arrive just after the collection ends
+                    record(Kind.GC, info.getGcName() + " (" + info.getGcCause() + ")",
+                        System.nanoTime() - durationNanos, durationNanos, info.getGcInfo().getId());
+                }, null, null);
+            }
+        } catch (Throwable e) {
+            System.out.println("sosModHooks: GC notifications unavailable, flight recorder runs without them");
+        }
+    }
+
+    /** Frames over the spike threshold, dumped or not. */
+    public synchronized long getSpikeCount() { return spikes; }
+    public synchronized int getDumpCount() { return dumps; }
+    /** The most recent dump file, or null if none was written. */
+    public synchronized File getLastDump() { return lastDump; }
+    public long getSpikeNanos() { return spikeNanos; }
+
+    /**
+     * Events copied out of the ring for one dump.
+     */
+    private final class Snapshot {
+        final long[] starts;
+        final long[] durations;
+        final long[] values;
+        final byte[] kinds;
+        final String[] names;
+        final long spikeNanos;
+        int size = 0;
+
+        Snapshot(int capacity, long spikeNanos) {
+            starts = new long[capacity];
+            durations = new long[capacity];
+            values = new long[capacity];
+            kinds = new byte[capacity];
+            names = new String[capacity];
+            this.spikeNanos = spikeNanos;
+        }
+
+        void write(File file) throws IOException {
+            Kind[] kindValues = Kind.values();
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                out.write("{\"displayTimeUnit\":\"ms\",\"otherData\":{");
+                out.write("\"startedAt\":" + originMillis + ",");
+                out.write("\"spikeMillis\":" + String.format(java.util.Locale.ROOT, "%.3f", spikeNanos / 1_000_000.0) + ",");
+                out.write("\"thresholdMillis\":" + (FlightRecorder.this.spikeNanos / 1_000_000) + ",");
+                out.write("\"activeMods\":" + ModRegistry.getInstance().getActiveMods().size());
+                out.write("},\"traceEvents\":[\n");
+
+                // One row per kind of event
+                boolean first = true;
+                for (Kind kind : kindValues) {
+                    if (!first) out.write(",\n");
+                    first = false;
+                    out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + kind.ordinal()
+                        + ",\"args\":{\"name\":\"" + kind.getCategory() + "\"}}");
+                }
+
+                for (int i = 0; i < size; i++) {
+                    Kind kind = kindValues[kinds[i]];
+                    out.write(",\n");
+                    out.write("{\"name\":\"");
+                    out.write(StartupTracer.escape(names[i]));
+                    out.write("\",\"cat\":\"");
+                    out.write(kind.getCategory());
+                    out.write("\",\"ph\":\"X\",\"ts\":");
+                    out.write(String.format(java.util.Locale.ROOT, "%.3f", (starts[i] - originNanos) / 1000.0));
+                    out.write(",\"dur\":");
+                    out.write(String.format(java.util.Locale.ROOT, "%.3f", durations[i] / 1000.0));
+                    out.write(",\"pid\":1,\"tid\":");
+                    out.write(Integer.toString(kind.ordinal()));
+                    out.write(",\"args\":{\"value\":");
+                    out.write(Long.toString(values[i]));
+                    out.write("}}");
+                }
+                out.write("\n]}\n");
+            }
+        }
+    }
+}
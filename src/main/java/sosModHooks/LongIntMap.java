@@ -0,0 +1,91 @@
+package sosModHooks;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from primitive long keys to non-negative int values.
+ * Avoids boxing for the packed keys used by the conflict indexes.
+ */
+final class LongIntMap {
+
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size = 0;
+
+    LongIntMap() {
+        this(16);
+    }
+
+    LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+    }
+
+    /**
+     * Get the value for a key, or -1 if the key is not present.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (values[index] != EMPTY) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Associate a non-negative value with a key, replacing any previous value.
+     */
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative: " + value);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (values[index] != EMPTY) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, EMPTY);
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -39,14 +39,21 @@ public final class MainScript implements SCRIPT {
 	@Override
 	public void initBeforeGameCreated() {
 		System.out.println("sosModHooks: initBeforeGameCreated called");
+		StartupTracer.getInstance().begin("initBeforeGameCreated");
 		
 		// Phase 1: Detect which mods are actually activated and loaded by the game
 		try {
 			System.out.println("sosModHooks: Starting runtime active mod detection...");
 			ModRegistry.getInstance().detectActiveMods();
+			// After detection, so the scripts can be matched to their mods' JARs
+			ScriptInitTimer.getInstance().install();
+			// After the init timer, which attributes scripts to mods by their class
+			ScriptProfiler.getInstance().install();
 			System.out.println("sosModHooks: Runtime active mod detection complete");
 		} catch (Exception e) {
 			System.err.println("sosModHooks: Error in runtime active mod detection: " + e.getMessage());
+		} finally {
+			StartupTracer.getInstance().end("initBeforeGameCreated");
 		}
 		
 		// Key bindings will be initialized later when the KEYS system is ready
@@ -59,14 +66,18 @@ public final class MainScript implements SCRIPT {
 	@Override
 	public void initBeforeGameInited() {
 		System.out.println("sosModHooks: initBeforeGameInited called");
+		StartupTracer.getInstance().begin("initBeforeGameInited");
 		
 		// Phase 2: Analyze the runtime effects of active mods and detect conflicts
 		try {
 			System.out.println("sosModHooks: Starting runtime effects analysis...");
 			ModRegistry.getInstance().analyzeRuntimeEffects();
+			ClassLoadMonitor.getInstance().sample();
 			System.out.println("sosModHooks: Runtime effects analysis complete");
 		} catch (Exception e) {
 			System.err.println("sosModHooks: Error in runtime effects analysis: " + e.getMessage());
+		} finally {
+			StartupTracer.getInstance().end("initBeforeGameInited");
 		}
 	}
 
@@ -92,6 +103,7 @@ public final class MainScript implements SCRIPT {
 	 */
 	@Override
 	public SCRIPT_INSTANCE createInstance() {
+		StartupTracer.getInstance().instant("createInstance");
 		ModCompatibilityFramework framework = new ModCompatibilityFramework();
 		return framework.new CompatibilityFrameworkInstance();
 	}
@@ -0,0 +1,212 @@
+package sosModHooks;
+
+import java.util.Locale;
+
+/**
+ * Immutable, preaggregated view of the framework's metrics.
+ *
+ * Snapshots are built on the game thread by {@link ModHooksMetrics#publish} and handed to
+ * scrapers as-is, so exporting never reads live registry state.
+ */
+public final class MetricsSnapshot {
+
+    static final MetricsSnapshot EMPTY = new MetricsSnapshot(new Builder());
+
+    private final long timestampMillis;
+    private final int tick;
+    private final int activeMods;
+    private final int registeredMods;
+    private final int classReplacements;
+    private final int assetModifications;
+    private final int dataModifications;
+    private final int dataRecords;
+    private final int conflicts;
+    private final int vanillaOverrides;
+    private final long detectionNanos;
+    private final long runtimeAnalysisNanos;
+    private final int jvmLoadedClasses;
+    private final long frameCount;
+    private final double frameTotalMillis;
+    private final double frameP50Millis;
+    private final double frameP95Millis;
+    private final double frameP99Millis;
+    private final double frameMaxMillis;
+    private final long heapUsedBytes;
+    private final long heapMaxBytes;
+    private final int healthScore;
+
+    private MetricsSnapshot(Builder b) {
+        this.timestampMillis = b.timestampMillis;
+        this.tick = b.tick;
+        this.activeMods = b.activeMods;
+        this.registeredMods = b.registeredMods;
+        this.classReplacements = b.classReplacements;
+        this.assetModifications = b.assetModifications;
+        this.dataModifications = b.dataModifications;
+        this.dataRecords = b.dataRecords;
+        this.conflicts = b.conflicts;
+        this.vanillaOverrides = b.vanillaOverrides;
+        this.detectionNanos = b.detectionNanos;
+        this.runtimeAnalysisNanos = b.runtimeAnalysisNanos;
+        this.jvmLoadedClasses = b.jvmLoadedClasses;
+        this.frameCount = b.frameCount;
+        this.frameTotalMillis = b.frameTotalMillis;
+        this.frameP50Millis = b.frameP50Millis;
+        this.frameP95Millis = b.frameP95Millis;
+        this.frameP99Millis = b.frameP99Millis;
+        this.frameMaxMillis = b.frameMaxMillis;
+        this.heapUsedBytes = b.heapUsedBytes;
+        this.heapMaxBytes = b.heapMaxBytes;
+        this.healthScore = b.healthScore;
+    }
+
+    public long getTimestampMillis() { return timestampMillis; }
+    public int getTick() { return tick; }
+    public int getActiveMods() { return activeMods; }
+    public int getRegisteredMods() { return registeredMods; }
+    public int getClassReplacements() { return classReplacements; }
+    public int getAssetModifications() { return assetModifications; }
+    public int getDataModifications() { return dataModifications; }
+    public int getDataRecords() { return dataRecords; }
+    public int getConflicts() { return conflicts; }
+    public int getVanillaOverrides() { return vanillaOverrides; }
+    public long getDetectionNanos() { return detectionNanos; }
+    public long getRuntimeAnalysisNanos() { return runtimeAnalysisNanos; }
+    public int getJvmLoadedClasses() { return jvmLoadedClasses; }
+    public long getFrameCount() { return frameCount; }
+    /** Sum of all frame times since the first frame. */
+    public double getFrameTotalMillis() { return frameTotalMillis; }
+    public double getFrameP50Millis() { return frameP50Millis; }
+    public double getFrameP95Millis() { return frameP95Millis; }
+    public double getFrameP99Millis() { return frameP99Millis; }
+    public double getFrameMaxMillis() { return frameMaxMillis; }
+    public long getHeapUsedBytes() { return heapUsedBytes; }
+    public long getHeapMaxBytes() { return heapMaxBytes; }
+    public int getHealthScore() { return healthScore; }
+
+    /**
+     * Render in the Prometheus text exposition format.
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder(2048);
+        gauge(sb, "sosmodhooks_active_mods", "Mods detected as active", activeMods);
+        gauge(sb, "sosmodhooks_registered_mods", "Mods registered through the declaration API", registeredMods);
+        gauge(sb, "sosmodhooks_class_replacements", "Class replacements across all mods", classReplacements);
+        gauge(sb, "sosmodhooks_asset_modifications", "Asset modifications across all mods", assetModifications);
+        gauge(sb, "sosmodhooks_data_modifications", "Data modifications across all mods", dataModifications);
+        gauge(sb, "sosmodhooks_data_records", "Indexed data records", dataRecords);
+        gauge(sb, "sosmodhooks_conflicts", "Detected conflicts", conflicts);
+        gauge(sb, "sosmodhooks_vanilla_overrides", "Conflicts that override base game content", vanillaOverrides);
+        gauge(sb, "sosmodhooks_detection_seconds", "Time spent detecting mods at startup", detectionNanos / 1e9);
+        gauge(sb, "sosmodhooks_runtime_analysis_seconds", "Time spent analyzing runtime effects", runtimeAnalysisNanos / 1e9);
+        gauge(sb, "sosmodhooks_jvm_loaded_classes", "Classes currently loaded by the JVM", jvmLoadedClasses);
+        counter(sb, "sosmodhooks_frames_total", "Game ticks observed", frameCount);
+        // Quantiles over the recent frames, sum and count over all of them
+        sb.append("# HELP sosmodhooks_frame_seconds Frame time, quantiles over recent frames\n");
+        sb.append("# TYPE sosmodhooks_frame_seconds summary\n");
+        quantile(sb, "0.5", frameP50Millis);
+        quantile(sb, "0.95", frameP95Millis);
+        quantile(sb, "0.99", frameP99Millis);
+        quantile(sb, "1", frameMaxMillis);
+        sb.append("sosmodhooks_frame_seconds_sum ").append(format(frameTotalMillis / 1000.0)).append('\n');
+        sb.append("sosmodhooks_frame_seconds_count ").append(format(frameCount)).append('\n');
+        gauge(sb, "sosmodhooks_heap_used_bytes", "Used heap", heapUsedBytes);
+        gauge(sb, "sosmodhooks_heap_max_bytes", "Maximum heap", heapMaxBytes);
+        gauge(sb, "sosmodhooks_health_score", "System health score (0-100)", healthScore);
+        gauge(sb, "sosmodhooks_tick", "Game tick of this snapshot", tick);
+        gauge(sb, "sosmodhooks_snapshot_timestamp_seconds", "Time this snapshot was taken", timestampMillis / 1000.0);
+        return sb.toString();
+    }
+
+    /**
+     * Render as a flat JSON object.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append('{');
+        field(sb, "timestampMillis", timestampMillis).append(',');
+        field(sb, "tick", tick).append(',');
+        field(sb, "activeMods", activeMods).append(',');
+        field(sb, "registeredMods", registeredMods).append(',');
+        field(sb, "classReplacements", classReplacements).append(',');
+        field(sb, "assetModifications", assetModifications).append(',');
+        field(sb, "dataModifications", dataModifications).append(',');
+        field(sb, "dataRecords", dataRecords).append(',');
+        field(sb, "conflicts", conflicts).append(',');
+        field(sb, "vanillaOverrides", vanillaOverrides).append(',');
+        field(sb, "detectionMillis", detectionNanos / 1e6).append(',');
+        field(sb, "runtimeAnalysisMillis", runtimeAnalysisNanos / 1e6).append(',');
+        field(sb, "jvmLoadedClasses", jvmLoadedClasses).append(',');
+        field(sb, "frameCount", frameCount).append(',');
+        field(sb, "frameTotalMillis", frameTotalMillis).append(',');
+        field(sb, "frameP50Millis", frameP50Millis).append(',');
+        field(sb, "frameP95Millis", frameP95Millis).append(',');
+        field(sb, "frameP99Millis", frameP99Millis).append(',');
+        field(sb, "frameMaxMillis", frameMaxMillis).append(',');
+        field(sb, "heapUsedBytes", heapUsedBytes).append(',');
+        field(sb, "heapMaxBytes", heapMaxBytes).append(',');
+        field(sb, "healthScore", healthScore);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+        sb.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        sb.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void quantile(StringBuilder sb, String quantile, double millis) {
+        sb.append("sosmodhooks_frame_seconds{quantile=\"").append(quantile).append("\"} ")
+          .append(format(millis / 1000.0)).append('\n');
+    }
+
+    private static StringBuilder field(StringBuilder sb, String name, double value) {
+        return sb.append('"').append(name).append("\":").append(format(value));
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    /**
+     * Collects values for a snapshot on the publishing thread.
+     */
+    static final class Builder {
+        long timestampMillis;
+        int tick;
+        int activeMods;
+        int registeredMods;
+        int classReplacements;
+        int assetModifications;
+        int dataModifications;
+        int dataRecords;
+        int conflicts;
+        int vanillaOverrides;
+        long detectionNanos;
+        long runtimeAnalysisNanos;
+        int jvmLoadedClasses;
+        long frameCount;
+        double frameTotalMillis;
+        double frameP50Millis;
+        double frameP95Millis;
+        double frameP99Millis;
+        double frameMaxMillis;
+        long heapUsedBytes;
+        long heapMaxBytes;
+        int healthScore = 100;
+
+        MetricsSnapshot build() {
+            return new MetricsSnapshot(this);
+        }
+    }
+}
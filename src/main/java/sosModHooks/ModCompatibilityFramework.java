@@ -32,11 +32,23 @@ public final class ModCompatibilityFramework {
     private final ModEnhancementManager enhancementManager;
     private final ComprehensiveModOverlay comprehensiveOverlay;
 
+    // Framework of the running game; a new game gets a new one
+    private static ModCompatibilityFramework active;
+    
     public ModCompatibilityFramework() {
         this.reporter = new ModConflictReporter();
         this.enhancementManager = new ModEnhancementManager();
         this.comprehensiveOverlay = new ComprehensiveModOverlay();
         
+        // The previous game's listeners deliver to a scheduler that no longer runs
+        synchronized (ModCompatibilityFramework.class) {
+            if (active != null) {
+                active.reporter.stopListening();
+                active.comprehensiveOverlay.stopListening();
+            }
+            active = this;
+        }
+        
         System.out.println("sosModHooks: ModCompatibilityFramework constructor called");
     }
 
@@ -47,13 +59,29 @@ public final class ModCompatibilityFramework {
         
         private boolean hasReportedStatus = false;
         private int tickCounter = 0;
+        
+        // Keep a failing overlay from logging an error every frame
+        private final ExceptionBreaker overlayBreaker = ExceptionBreaker.get(ComprehensiveModOverlay.RENDER_SOURCE);
+        private final ExceptionBreaker inputBreaker = ExceptionBreaker.get("sosModHooks overlay input");
+        
+        // Spreads heavier work across ticks within a small per-tick budget
+        private final TickScheduler scheduler = new TickScheduler(
+            ModHooksConfig.getInstance().getInt("sosModHooks.tickBudgetMicros", 500) * 1000L);
 
         @Override
         public void update(double ds) {
             tickCounter++;
+            enhancementManager.recordFrame();
+            ScriptProfiler.getInstance().endFrame();
+            FlightRecorder.getInstance().frame(ds);
             
             // Initialize registry and scan for conflicts on first tick
             if (tickCounter == 1) {
+                StartupTracer.getInstance().instant("first update tick");
+                ModHooksMetrics.getInstance().start();
+                reporter.listenForConflicts(scheduler::submit);
+                ScriptProfiler.getInstance().wrapInstances();
+                comprehensiveOverlay.listenForConflicts(scheduler);
                 try {
                     System.out.println("sosModHooks: Initializing mod registry at tick " + tickCounter);
                     
@@ -82,21 +110,47 @@ public final class ModCompatibilityFramework {
             
             // Report compatibility status once after game starts
             if (tickCounter == 60 && !hasReportedStatus) { // After 1 second
-                reportCompatibilityStatus();
+                scheduler.submit(() -> reportCompatibilityStatus());
+                scheduler.submit(() -> ClassLoadMonitor.getInstance().printCostTable());
+                scheduler.submit(() -> ScriptInitTimer.getInstance().printRanking());
+                scheduler.submit(() -> DuplicateContentAnalyzer.getInstance().analyzeInBackground());
                 hasReportedStatus = true;
-                System.out.println("sosModHooks: Initial compatibility report sent");
+                System.out.println("sosModHooks: Initial compatibility report scheduled");
             }
             
             // Check for mod compatibility overlay key press
             if (ModKeyBindings.getInstance().isModCompatibilityOverlayPressed()) {
                 System.out.println("sosModHooks: Mod compatibility overlay key pressed - toggling comprehensive overlay");
-                comprehensiveOverlay.toggle();
+                comprehensiveOverlay.toggle(scheduler);
+            }
+            
+            // Push conflict changes to listeners twice a second, only when declarations changed.
+            // Detection runs off the game thread; listeners get their batches through the scheduler
+            if (tickCounter % 30 == 0 && ModRegistry.getInstance().hasUnpublishedChanges()) {
+                ModRegistry.getInstance().publishConflictChangesInBackground();
+            }
+            
+            // Publish a fresh metrics snapshot once per second
+            if (tickCounter % 60 == 0) {
+                int tick = tickCounter;
+                scheduler.submit(() -> ModHooksMetrics.getInstance().publish(enhancementManager, tick));
+            }
+            
+            // Write the startup trace and conflict report on request
+            if (ModKeyBindings.getInstance().isExportPressed()) {
+                scheduler.submit(() -> StartupTracer.getInstance().export());
+                scheduler.submit(() -> ScriptInitTimer.getInstance().export());
+                new ConflictReportWriter(ConflictReportWriter.Format.JSON_LINES).exportInBackground();
             }
             
             // Log mod activity periodically (reduced frequency to avoid spam)
             if (tickCounter % 1800 == 0) { // Every 30 seconds instead of 5
                 System.out.println("sosModHooks: Mod is running - tick: " + tickCounter + ", key bindings initialized: " + ModKeyBindings.getInstance().isInitialized());
+                ScriptProfiler.getInstance().printThrottleSummary();
             }
+            
+            // Run scheduled work within this tick's budget
+            scheduler.runSlice();
         }
         
         
@@ -104,12 +158,34 @@ public final class ModCompatibilityFramework {
 
         @Override
         public void save(snake2d.util.file.FilePutter file) {
-            // No save data needed for this mod
+            // In case ours is the first instance saved, before throttled mods save their state
+            ScriptProfiler.getInstance().flushPendingUpdates();
+            
+            // Remember which mods this save was made with
+            ModSetFingerprint.capture(ModRegistry.getInstance()).write(file);
         }
 
         @Override
         public void load(snake2d.util.file.FileGetter file) throws IOException {
-            // No load data needed for this mod
+            ModSetFingerprint saved;
+            try {
+                saved = ModSetFingerprint.read(file);
+            } catch (Exception e) {
+                // Older saves have no fingerprint, or something else where it would be
+                System.out.println("sosModHooks: Save has no mod set fingerprint: " + e);
+                return;
+            }
+            
+            // Mods were analyzed at startup, restoring unchanged ones from the index cache,
+            // so this only compares digests and never reads mod files
+            ModSetFingerprint current = ModSetFingerprint.capture(ModRegistry.getInstance());
+            if (current.sameModsAs(saved)) {
+                System.out.println("sosModHooks: Mod set unchanged since this save was made (" + saved.getModCount() +
+                                   " mods, " + saved.getConflictCount() + " conflicts)");
+            } else {
+                System.out.println("sosModHooks: Mod set changed since this save was made");
+                System.out.println("sosModHooks: " + current.describeChangesSince(saved).replace("\n", "\nsosModHooks: "));
+            }
         }
 
         @Override
@@ -128,12 +204,15 @@ public final class ModCompatibilityFramework {
 
         @Override
         public void render(snake2d.Renderer r, float ds) {
-            // Render the comprehensive mod overlay if it's visible
-            if (comprehensiveOverlay.isVisible()) {
+            // Render the comprehensive mod overlay if it's visible, unless it keeps failing
+            if (comprehensiveOverlay.isVisible() && overlayBreaker.allows()) {
                 try {
                     comprehensiveOverlay.render(r);
+                    overlayBreaker.recordSuccess();
                 } catch (Exception e) {
-                    System.err.println("sosModHooks: Error rendering comprehensive overlay: " + e.getMessage());
+                    if (overlayBreaker.recordFailure(e)) {
+                        System.err.println("sosModHooks: Error rendering comprehensive overlay: " + e.getMessage());
+                    }
                 }
             }
         }
@@ -154,7 +233,9 @@ public final class ModCompatibilityFramework {
                     int mouseY = snake2d.CORE.getInput().getMouse().getCoo().y();
                     comprehensiveOverlay.handleMouseClick(mouseX, mouseY, button.ordinal());
                 } catch (Exception e) {
-                    System.err.println("sosModHooks: Error handling mouse click for comprehensive overlay: " + e.getMessage());
+                    if (inputBreaker.recordFailure(e)) {
+                        System.err.println("sosModHooks: Error handling mouse click for comprehensive overlay: " + e.getMessage());
+                    }
                 }
             }
         }
@@ -170,7 +251,9 @@ public final class ModCompatibilityFramework {
                     
                     comprehensiveOverlay.handleMouseMove(mouseX, mouseY);
                 } catch (Exception e) {
-                    System.err.println("sosModHooks: Error handling mouse hover for comprehensive overlay: " + e.getMessage());
+                    if (inputBreaker.recordFailure(e)) {
+                        System.err.println("sosModHooks: Error handling mouse hover for comprehensive overlay: " + e.getMessage());
+                    }
                 }
             }
         }
@@ -298,8 +381,8 @@ public final class ModCompatibilityFramework {
             int panelY = 20;
             int startY = panelY + 140; // Start below the main status section
             
-            ModRegistry registry = ModRegistry.getInstance();
-            snake2d.util.sets.LIST<ModConflict> conflicts = registry.detectConflicts();
+            // Kept current by conflict events rather than detected again every frame
+            java.util.List<ModConflict> conflicts = reporter.getCurrentConflicts();
             
             if (conflicts.isEmpty()) {
                 // No conflicts detected
@@ -537,6 +620,15 @@ public final class ModCompatibilityFramework {
             return sb.toString();
         }
 
+        private String getModificationsString(PathList modifications) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < modifications.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(modifications.get(i));
+            }
+            return sb.toString();
+        }
+
         // Duplicate method and helper methods removed
     }
 }
@@ -23,11 +23,23 @@ public final class ModConflict {
     @Getter
     private final long timestamp;
     
+    /**
+     * Whether the conflicting mods override content the base game ships,
+     * as opposed to adding the same new content.
+     */
+    @Getter
+    private final boolean vanillaOverride;
+    
     public ModConflict(String conflictTarget, LIST<String> conflictingMods, ConflictType type, String description) {
+        this(conflictTarget, conflictingMods, type, description, false);
+    }
+    
+    public ModConflict(String conflictTarget, LIST<String> conflictingMods, ConflictType type, String description, boolean vanillaOverride) {
         this.conflictTarget = conflictTarget;
         this.conflictingMods = conflictingMods;
         this.type = type;
         this.description = description;
+        this.vanillaOverride = vanillaOverride;
         this.timestamp = System.currentTimeMillis();
     }
     
@@ -42,6 +54,10 @@ public final class ModConflict {
             sb.append(" (affected by ").append(conflictingMods.size()).append(" mods)");
         }
         
+        if (vanillaOverride) {
+            sb.append(" [overrides vanilla]");
+        }
+        
         return sb.toString();
     }
     
@@ -53,6 +69,7 @@ public final class ModConflict {
         sb.append("Conflict Type: ").append(type.getDisplayName()).append("\n");
         sb.append("Target: ").append(conflictTarget).append("\n");
         sb.append("Description: ").append(description).append("\n");
+        sb.append("Overrides Vanilla: ").append(vanillaOverride ? "Yes" : "No").append("\n");
         sb.append("Affected Mods: ");
         
         for (int i = 0; i < conflictingMods.size(); i++) {
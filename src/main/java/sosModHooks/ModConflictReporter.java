@@ -4,6 +4,10 @@ import lombok.Getter;
 import lombok.Setter;
 import view.ui.message.MessageText;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Handles reporting compatibility conflicts to the user
  */
@@ -12,6 +16,49 @@ public class ModConflictReporter {
     @Getter @Setter
     private boolean overlayVisible = false;
     
+    // Conflicts as of the last event batch, for rendering without re-running detection
+    private volatile List<ModConflict> currentConflicts = Collections.emptyList();
+    
+    private final ModRegistry.ConflictListener listener = this::onConflictEvents;
+    
+    /**
+     * Follow conflict changes: log them and keep {@link #getCurrentConflicts()} up to date.
+     */
+    public void listenForConflicts(java.util.concurrent.Executor executor) {
+        ModRegistry.getInstance().addConflictListener(listener, executor);
+    }
+    
+    /**
+     * Stop following conflict changes, as when the game this reporter belongs to is gone.
+     */
+    public void stopListening() {
+        ModRegistry.getInstance().removeConflictListener(listener);
+    }
+    
+    public List<ModConflict> getCurrentConflicts() {
+        return currentConflicts;
+    }
+    
+    private void onConflictEvents(List<ConflictEvent> events) {
+        List<ModConflict> updated = new ArrayList<>(currentConflicts);
+        for (ConflictEvent event : events) {
+            switch (event.getKind()) {
+                case CONFLICT_ADDED:
+                    updated.add(event.getConflict());
+                    System.out.println("sosModHooks: New conflict - " + event.getConflict().getSummary());
+                    break;
+                case CONFLICT_REMOVED:
+                    updated.remove(event.getConflict());
+                    System.out.println("sosModHooks: Conflict resolved - " + event.getConflict().getSummary());
+                    break;
+                case MOD_REGISTERED:
+                    System.out.println("sosModHooks: Mod registered - " + event.getModId());
+                    break;
+            }
+        }
+        currentConflicts = Collections.unmodifiableList(updated);
+    }
+    
     /**
      * Toggle the compatibility overlay visibility
      */
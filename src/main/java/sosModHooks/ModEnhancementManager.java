@@ -2,19 +2,28 @@ package sosModHooks;
 
 import lombok.Getter;
 import lombok.Setter;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Minimal enhancement manager - placeholder for future functionality
+ * Minimal enhancement manager - tracks frame times and basic health metrics
  */
 public class ModEnhancementManager {
     
+    private static final int FRAME_WINDOW = 1024;
+    
     @Getter @Setter
     private boolean monitoringEnabled = true;
     
     private final Map<String, Long> performanceMetrics = new HashMap<>();
     
+    // Ring of the most recent frame times in microseconds
+    private final int[] frameMicros = new int[FRAME_WINDOW];
+    private long frameCount = 0;
+    private long totalFrameMicros = 0;
+    private long lastFrameNanos = 0;
+    
     public ModEnhancementManager() {
         // Initialize with default values
         performanceMetrics.put("system_health", 100L);
@@ -39,6 +48,63 @@ public class ModEnhancementManager {
         return "Poor";
     }
     
+    /**
+     * Record the end of a game tick; the time since the previous call is the frame time.
+     */
+    public void recordFrame() {
+        long now = System.nanoTime();
+        if (lastFrameNanos != 0) {
+            long micros = (now - lastFrameNanos) / 1000;
+            frameMicros[(int) (frameCount % FRAME_WINDOW)] = (int) Math.min(Integer.MAX_VALUE, micros);
+            frameCount++;
+            totalFrameMicros += micros;
+        }
+        lastFrameNanos = now;
+    }
+    
+    /**
+     * Number of frames recorded so far
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+    
+    /**
+     * Sum of all recorded frame times in milliseconds
+     */
+    public double getTotalFrameMillis() {
+        return totalFrameMicros / 1000.0;
+    }
+    
+    /**
+     * Frame time percentiles in milliseconds over the most recent frames.
+     * Quantiles are in the range 0-1; 1 returns the slowest recent frame.
+     */
+    public double[] getFramePercentiles(double... quantiles) {
+        double[] result = new double[quantiles.length];
+        int n = (int) Math.min(frameCount, FRAME_WINDOW);
+        if (n == 0) {
+            return result;
+        }
+        
+        int[] sorted = Arrays.copyOf(frameMicros, n);
+        Arrays.sort(sorted);
+        for (int i = 0; i < quantiles.length; i++) {
+            int index = (int) Math.ceil(quantiles[i] * n) - 1;
+            result[i] = sorted[Math.max(0, Math.min(n - 1, index))] / 1000.0;
+        }
+        return result;
+    }
+    
+    /**
+     * Refresh the memory usage metric shown in the overlay
+     */
+    public void updateMemoryMetrics() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        performanceMetrics.put("memory_percentage", used * 100 / runtime.maxMemory());
+    }
+    
     /**
      * Get performance metrics
      */
@@ -0,0 +1,65 @@
+package sosModHooks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Optional settings for the framework.
+ *
+ * Values are read from sosModHooks/config.properties next to the game and can be
+ * overridden with JVM system properties of the same name, for example
+ * -DsosModHooks.classLoading.profile=true.
+ */
+public final class ModHooksConfig {
+
+    private static ModHooksConfig instance;
+
+    private final Properties properties = new Properties();
+
+    private ModHooksConfig() {
+        File file = new File(ModHooksFiles.getRootDirectory(), "config.properties");
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+                System.out.println("sosModHooks: Loaded config from " + file.getPath());
+            } catch (Exception e) {
+                System.err.println("sosModHooks: Error reading " + file.getPath() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public static synchronized ModHooksConfig getInstance() {
+        if (instance == null) {
+            instance = new ModHooksConfig();
+        }
+        return instance;
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("sosModHooks: Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+}
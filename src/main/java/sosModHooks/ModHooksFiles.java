@@ -0,0 +1,42 @@
+package sosModHooks;
+
+import java.io.File;
+
+/**
+ * Locations of the files the framework writes next to the game.
+ */
+public final class ModHooksFiles {
+
+    private static final String ROOT_DIRECTORY = "sosModHooks";
+
+    private ModHooksFiles() {
+    }
+
+    /**
+     * Directory holding the framework's config, cache and output files.
+     */
+    public static File getRootDirectory() {
+        return new File(ROOT_DIRECTORY);
+    }
+
+    /**
+     * Directory for indexes that are rebuilt only when the game version changes.
+     */
+    public static File getCacheDirectory() {
+        return ensureDirectory(new File(ROOT_DIRECTORY, "cache"));
+    }
+
+    /**
+     * Directory for traces and reports written on demand.
+     */
+    public static File getOutputDirectory() {
+        return ensureDirectory(new File(ROOT_DIRECTORY, "reports"));
+    }
+
+    private static File ensureDirectory(File directory) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("sosModHooks: Could not create directory " + directory.getAbsolutePath());
+        }
+        return directory;
+    }
+}
@@ -0,0 +1,221 @@
+package sosModHooks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import snake2d.util.sets.LIST;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes framework metrics for external dashboards.
+ *
+ * The game thread calls {@link #publish} every second to swap in a fresh
+ * {@link MetricsSnapshot}; the JMX bean and the optional HTTP endpoint only ever read that
+ * snapshot. The HTTP endpoint is off unless sosModHooks.metrics.port is set, and it only
+ * binds to the loopback interface. It serves /metrics (Prometheus text) and /metrics.json.
+ */
+public final class ModHooksMetrics implements ModHooksMetricsMBean {
+
+    private static ModHooksMetrics instance;
+
+    private volatile MetricsSnapshot snapshot = MetricsSnapshot.EMPTY;
+    private boolean started = false;
+    private HttpServer server;
+
+    // Kept up to date by conflict events
+    private int conflicts = 0;
+    private int vanillaOverrides = 0;
+
+    private ModHooksMetrics() {
+    }
+
+    public static synchronized ModHooksMetrics getInstance() {
+        if (instance == null) {
+            instance = new ModHooksMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * Register the MBean and, if configured, start the HTTP endpoint.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        try {
+            MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("sosModHooks:type=Metrics");
+            if (!mbeans.isRegistered(name)) {
+                mbeans.registerMBean(this, name);
+            }
+        } catch (Exception e) {
+            System.err.println("sosModHooks: Could not register metrics MBean: " + e.getMessage());
+        }
+
+        ModRegistry.getInstance().addConflictListener(this::onConflictEvents, Runnable::run);
+
+        int port = ModHooksConfig.getInstance().getInt("sosModHooks.metrics.port", 0);
+        if (port > 0) {
+            startHttpServer(port);
+        }
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    public MetricsSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Build a new snapshot from the current registry and frame statistics.
+     * Called on the game thread; conflict counts come from registry conflict events.
+     */
+    public void publish(ModEnhancementManager manager, int tick) {
+        try {
+            ModRegistry registry = ModRegistry.getInstance();
+            MetricsSnapshot.Builder b = new MetricsSnapshot.Builder();
+            b.timestampMillis = System.currentTimeMillis();
+            b.tick = tick;
+            b.activeMods = registry.getActiveMods().size();
+            b.registeredMods = registry.getModCount();
+            b.classReplacements = countEntries(registry.getClassReplacements());
+            b.assetModifications = countPaths(registry.getAssetModifications());
+            b.dataModifications = countEntries(registry.getDataModifications());
+            b.dataRecords = registry.getDataConflictIndex().getRecordCount();
+            b.detectionNanos = registry.getDetectionNanos();
+            b.runtimeAnalysisNanos = registry.getRuntimeAnalysisNanos();
+            // Currently loaded, not the since-startup total the class load monitor samples
+            b.jvmLoadedClasses = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+
+            synchronized (this) {
+                b.conflicts = conflicts;
+                b.vanillaOverrides = vanillaOverrides;
+            }
+
+            manager.updateMemoryMetrics();
+            double[] frames = manager.getFramePercentiles(0.5, 0.95, 0.99, 1.0);
+            b.frameCount = manager.getFrameCount();
+            b.frameTotalMillis = manager.getTotalFrameMillis();
+            b.frameP50Millis = frames[0];
+            b.frameP95Millis = frames[1];
+            b.frameP99Millis = frames[2];
+            b.frameMaxMillis = frames[3];
+
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            b.heapUsedBytes = heap.getUsed();
+            b.heapMaxBytes = heap.getMax();
+            b.healthScore = manager.getSystemHealthScore();
+
+            snapshot = b.build();
+        } catch (Exception e) {
+            // Silently fail - will retry later
+        }
+    }
+
+    private synchronized void onConflictEvents(List<ConflictEvent> events) {
+        for (ConflictEvent event : events) {
+            int delta = event.getKind() == ConflictEvent.Kind.CONFLICT_ADDED ? 1
+                : event.getKind() == ConflictEvent.Kind.CONFLICT_REMOVED ? -1 : 0;
+            if (delta != 0) {
+                conflicts += delta;
+                if (event.getConflict().isVanillaOverride()) {
+                    vanillaOverrides += delta;
+                }
+            }
+        }
+    }
+
+    private static int countEntries(Map<String, LIST<String>> byMod) {
+        int total = 0;
+        for (LIST<String> entries : byMod.values()) {
+            total += entries.size();
+        }
+        return total;
+    }
+
+    private static int countPaths(Map<String, PathList> byMod) {
+        int total = 0;
+        for (PathList entries : byMod.values()) {
+            total += entries.size();
+        }
+        return total;
+    }
+
+    private void startHttpServer(int port) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", exchange ->
+                respond(exchange, "text/plain; version=0.0.4; charset=utf-8", snapshot.toPrometheus()));
+            server.createContext("/metrics.json", exchange ->
+                respond(exchange, "application/json; charset=utf-8", snapshot.toJson()));
+            server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "sosModHooks-metrics");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            server.start();
+            System.out.println("sosModHooks: Metrics endpoint listening on http://localhost:" + port + "/metrics");
+        } catch (IOException e) {
+            System.err.println("sosModHooks: Could not start metrics endpoint on port " + port + ": " + e.getMessage());
+            server = null;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // MBean attributes, all read from the current snapshot
+
+    @Override public long getSnapshotTimestampMillis() { return snapshot.getTimestampMillis(); }
+    @Override public int getTick() { return snapshot.getTick(); }
+    @Override public int getActiveMods() { return snapshot.getActiveMods(); }
+    @Override public int getRegisteredMods() { return snapshot.getRegisteredMods(); }
+    @Override public int getClassReplacements() { return snapshot.getClassReplacements(); }
+    @Override public int getAssetModifications() { return snapshot.getAssetModifications(); }
+    @Override public int getDataModifications() { return snapshot.getDataModifications(); }
+    @Override public int getDataRecords() { return snapshot.getDataRecords(); }
+    @Override public int getConflicts() { return snapshot.getConflicts(); }
+    @Override public int getVanillaOverrides() { return snapshot.getVanillaOverrides(); }
+    @Override public double getDetectionMillis() { return snapshot.getDetectionNanos() / 1e6; }
+    @Override public double getRuntimeAnalysisMillis() { return snapshot.getRuntimeAnalysisNanos() / 1e6; }
+    @Override public long getFrameCount() { return snapshot.getFrameCount(); }
+    @Override public double getFrameP50Millis() { return snapshot.getFrameP50Millis(); }
+    @Override public double getFrameP95Millis() { return snapshot.getFrameP95Millis(); }
+    @Override public double getFrameP99Millis() { return snapshot.getFrameP99Millis(); }
+    @Override public double getFrameMaxMillis() { return snapshot.getFrameMaxMillis(); }
+    @Override public long getHeapUsedBytes() { return snapshot.getHeapUsedBytes(); }
+    @Override public int getHealthScore() { return snapshot.getHealthScore(); }
+}
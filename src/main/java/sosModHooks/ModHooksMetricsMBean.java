@@ -0,0 +1,46 @@
+package sosModHooks;
+
+/**
+ * JMX view of the framework's metrics, registered as sosModHooks:type=Metrics.
+ * All values come from the most recently published {@link MetricsSnapshot}.
+ */
+public interface ModHooksMetricsMBean {
+
+    long getSnapshotTimestampMillis();
+
+    int getTick();
+
+    int getActiveMods();
+
+    int getRegisteredMods();
+
+    int getClassReplacements();
+
+    int getAssetModifications();
+
+    int getDataModifications();
+
+    int getDataRecords();
+
+    int getConflicts();
+
+    int getVanillaOverrides();
+
+    double getDetectionMillis();
+
+    double getRuntimeAnalysisMillis();
+
+    long getFrameCount();
+
+    double getFrameP50Millis();
+
+    double getFrameP95Millis();
+
+    double getFrameP99Millis();
+
+    double getFrameMaxMillis();
+
+    long getHeapUsedBytes();
+
+    int getHealthScore();
+}
@@ -0,0 +1,197 @@
+package sosModHooks;
+
+import snake2d.util.sets.LIST;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the registry found in one mod, kept on disk so unchanged mods are not analyzed again.
+ *
+ * One file per mod holds its declarations, the keys of its data files and its recorded asset
+ * files, stamped with the mod's metadata digest (see {@link ModSetFingerprint#digest(File)})
+ * and the vanilla baseline the analysis ran against. A file is only used when both stamps
+ * match; anything else, including a file from an older format, is ignored and overwritten
+ * after the next analysis. Files are written to a temporary name and renamed into place,
+ * so a killed run leaves either the old file or the new one.
+ */
+public final class ModIndexCache {
+
+    private static final int MAGIC = 0x534D4931;
+
+    private final File directory;
+
+    public ModIndexCache(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Load a mod's saved analysis into the registry if it was made from the same files.
+     *
+     * @return true if the mod was restored and doesn't need to be analyzed
+     */
+    public boolean restore(ModRegistry registry, String modId, long digest) {
+        File file = fileFor(modId);
+        if (!file.isFile()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(modId) || in.readLong() != digest
+                    || !in.readUTF().equals(VanillaBaseline.getInstance().getCacheKey())) {
+                return false;
+            }
+
+            DeclarationBatch batch = registry.beginDeclarations(modId);
+            batch.replacesClasses(readStrings(in));
+            batch.modifiesAssets(readStrings(in));
+            batch.modifiesData(readStrings(in));
+            batch.dependsOn(readStrings(in));
+
+            List<String[]> dataFiles = new ArrayList<>();
+            List<String[]> dataKeys = new ArrayList<>();
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                dataFiles.add(new String[] { in.readUTF(), in.readUTF() });
+                dataKeys.add(readStrings(in));
+            }
+
+            int assetCount = in.readInt();
+            String[] assetPaths = new String[assetCount];
+            String[] sources = new String[assetCount];
+            long[] fileSizes = new long[assetCount];
+            long[] decodedSizes = new long[assetCount];
+            for (int i = 0; i < assetCount; i++) {
+                assetPaths[i] = in.readUTF();
+                sources[i] = in.readUTF();
+                fileSizes[i] = in.readLong();
+                decodedSizes[i] = in.readLong();
+            }
+            if (in.readInt() != MAGIC) {
+                return false;
+            }
+
+            // Only apply once the whole file was read, so a damaged file restores nothing
+            for (int i = 0; i < dataFiles.size(); i++) {
+                registry.getDataConflictIndex().updateFileKeys(modId, dataFiles.get(i)[0], dataFiles.get(i)[1],
+                    java.util.Arrays.asList(dataKeys.get(i)));
+            }
+            if (!dataFiles.isEmpty()) {
+                batch.dataIndexChanged();
+            }
+            for (int i = 0; i < assetCount; i++) {
+                AssetMemoryEstimator.getInstance().restore(modId, assetPaths[i], sources[i], fileSizes[i], decodedSizes[i]);
+            }
+            batch.commit();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("sosModHooks: Ignoring saved index of " + modId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Save what the registry currently knows about a mod, stamped with its digest.
+     */
+    public void store(ModRegistry registry, String modId, long digest) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("sosModHooks: Could not create directory " + directory.getAbsolutePath());
+            return;
+        }
+        File file = fileFor(modId);
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(modId);
+                out.writeLong(digest);
+                out.writeUTF(VanillaBaseline.getInstance().getCacheKey());
+
+                writeStrings(out, registry.getClassReplacements().get(modId));
+                PathList assets = registry.getAssetModifications().get(modId);
+                out.writeInt(assets != null ? assets.size() : 0);
+                if (assets != null) {
+                    for (String path : assets) {
+                        out.writeUTF(path);
+                    }
+                }
+                writeStrings(out, registry.getDataModifications().get(modId));
+                writeStrings(out, registry.getDependencies().get(modId));
+
+                List<String[]> dataFiles = new ArrayList<>();
+                List<List<String>> dataKeys = new ArrayList<>();
+                registry.getDataConflictIndex().visitFiles(modId, (folder, dataFile, keys) -> {
+                    dataFiles.add(new String[] { folder, dataFile });
+                    dataKeys.add(keys);
+                });
+                out.writeInt(dataFiles.size());
+                for (int i = 0; i < dataFiles.size(); i++) {
+                    out.writeUTF(dataFiles.get(i)[0]);
+                    out.writeUTF(dataFiles.get(i)[1]);
+                    out.writeInt(dataKeys.get(i).size());
+                    for (String key : dataKeys.get(i)) {
+                        out.writeUTF(key);
+                    }
+                }
+
+                AssetMemoryEstimator.ModAssetCost cost = AssetMemoryEstimator.getInstance().getCost(modId);
+                int assetCount = cost != null ? cost.getAssetCount() : 0;
+                out.writeInt(assetCount);
+                for (int i = 0; i < assetCount; i++) {
+                    out.writeUTF(cost.getAssetPath(i));
+                    out.writeUTF(cost.getSource(i));
+                    out.writeLong(cost.getFileSize(i));
+                    out.writeLong(cost.getDecodedSize(i));
+                }
+                out.writeInt(MAGIC);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("sosModHooks: Error saving index of " + modId + ": " + e.getMessage());
+        }
+    }
+
+    private File fileFor(String modId) {
+        // Mod ids come from folder names, but keep the file name safe anyway
+        String safe = modId.replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(directory, safe + "-" + Long.toHexString(BloomFilter.hash(modId)) + ".idx");
+    }
+
+    private static void writeStrings(DataOutputStream out, LIST<String> values) throws IOException {
+        int size = values != null ? values.size() : 0;
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeUTF(values.get(i));
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > 10_000_000) {
+            throw new IOException("Corrupt mod index");
+        }
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = in.readUTF();
+        }
+        return values;
+    }
+}
@@ -11,6 +11,7 @@ public class ModKeyBindings {
     private static ModKeyBindings instance;
     private boolean initialized = false;
     private int f10KeyCode = KEYCODES.KEY_F10;
+    private int f11KeyCode = KEYCODES.KEY_F11;
     
     private ModKeyBindings() {
         // Private constructor for singleton
@@ -55,6 +56,20 @@ public class ModKeyBindings {
         }
     }
     
+    /**
+     * Check if F11 was pressed to write the startup trace and conflict report
+     */
+    public boolean isExportPressed() {
+        if (!initialized) return false;
+        
+        try {
+            return snake2d.CORE.getInput().getKeyboard().isPressed(f11KeyCode);
+        } catch (Exception e) {
+            // Silently fail - will retry later
+            return false;
+        }
+    }
+    
     /**
      * Check if the mod key bindings system is initialized
      */
@@ -0,0 +1,337 @@
+package sosModHooks;
+
+import snake2d.util.sets.LIST;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command-line entry point that runs the registry's mod analysis outside the game.
+ *
+ * Every folder or JAR directly inside the mods directory is treated as one mod and
+ * analyzed in parallel. A conflict report and per-mod timings are written to the output
+ * directory. Needs the game JAR on the classpath for its collection classes, but never
+ * starts the game or opens a window.
+ *
+ * <pre>
+ * java -cp sosModHooks.jar:SongsOfSyx.jar sosModHooks.ModPackAnalyzer &lt;modsDir&gt;
+ *      [--game SongsOfSyx.jar] [--game-version V69] [--out dir] [--threads n]
+ *      [--format jsonl|csv] [--matrix] [--shards n] [--verbose]
+ * </pre>
+ *
+ * With --matrix a pairwise compatibility matrix is also computed; see {@link CompatibilityMatrix}.
+ *
+ * Reruns are incremental. Each mod's analysis is saved under mod-index in the output
+ * directory (see {@link ModIndexCache}) and restored when the mod's files are unchanged. The
+ * report and duplicate stages are skipped when they already finished for the same mod files,
+ * and matrix shards are checkpointed, so rerunning the same command after an interruption
+ * resumes where it stopped.
+ */
+public final class ModPackAnalyzer {
+
+    private final File modsDirectory;
+    private File gameJar = null;
+    private String gameVersion = "V69";
+    private File outputDirectory = null;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private ConflictReportWriter.Format format = ConflictReportWriter.Format.JSON_LINES;
+    private boolean verbose = false;
+    private boolean matrix = false;
+    private int shards = 64;
+
+    public ModPackAnalyzer(File modsDirectory) {
+        this.modsDirectory = modsDirectory;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            printUsage();
+            System.exit(2);
+        }
+
+        ModPackAnalyzer analyzer = new ModPackAnalyzer(new File(args[0]));
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--verbose")) {
+                    analyzer.verbose = true;
+                } else if (arg.equals("--matrix")) {
+                    analyzer.matrix = true;
+                } else if (i + 1 < args.length && arg.equals("--shards")) {
+                    analyzer.shards = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (i + 1 < args.length && arg.equals("--game")) {
+                    analyzer.gameJar = new File(args[++i]);
+                } else if (i + 1 < args.length && arg.equals("--game-version")) {
+                    analyzer.gameVersion = args[++i];
+                } else if (i + 1 < args.length && arg.equals("--out")) {
+                    analyzer.outputDirectory = new File(args[++i]);
+                } else if (i + 1 < args.length && arg.equals("--threads")) {
+                    analyzer.threads = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (i + 1 < args.length && arg.equals("--format")) {
+                    analyzer.format = args[++i].equalsIgnoreCase("csv")
+                        ? ConflictReportWriter.Format.CSV : ConflictReportWriter.Format.JSON_LINES;
+                } else {
+                    System.err.println("sosModHooks: Unknown argument: " + arg);
+                    printUsage();
+                    System.exit(2);
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("sosModHooks: Invalid number: " + e.getMessage());
+            System.exit(2);
+        }
+
+        try {
+            analyzer.run();
+        } catch (Exception e) {
+            System.err.println("sosModHooks: Analysis failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: ModPackAnalyzer <modsDir> [--game SongsOfSyx.jar] [--game-version V69]");
+        System.err.println("                       [--out dir] [--threads n] [--format jsonl|csv]");
+        System.err.println("                       [--matrix] [--shards n] [--verbose]");
+    }
+
+    /**
+     * Analyze every mod in the mods directory and write the report and timings.
+     */
+    public void run() throws IOException, InterruptedException {
+        File[] mods = modsDirectory.listFiles(f -> f.isDirectory() || f.getName().toLowerCase().endsWith(".jar"));
+        if (mods == null) {
+            throw new IOException("Not a directory: " + modsDirectory.getPath());
+        }
+        Arrays.sort(mods);
+
+        File outDir = outputDirectory != null ? outputDirectory : ModHooksFiles.getOutputDirectory();
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("Could not create output directory " + outDir.getPath());
+        }
+
+        ModRegistry registry = ModRegistry.getInstance();
+        registry.setDebugLogEnabled(false);
+        registry.setIndexCache(new ModIndexCache(new File(outDir, "mod-index")));
+
+        if (gameJar != null) {
+            VanillaBaseline.getInstance().load(gameJar, gameVersion);
+        }
+
+        // The analysis logs every file it looks at; keep that out of the way unless asked for
+        PrintStream console = System.out;
+        if (!verbose) {
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override public void write(int b) { }
+                @Override public void write(byte[] b, int off, int len) { }
+            }));
+        }
+
+        long[] scanNanos = new long[mods.length];
+        long[] digests = new long[mods.length];
+        boolean[] restored = new boolean[mods.length];
+        long wallStart = System.nanoTime();
+        try {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> tasks = new ArrayList<>(mods.length);
+            for (int i = 0; i < mods.length; i++) {
+                final int index = i;
+                final File mod = mods[i];
+                tasks.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    String modId = modIdFor(mod);
+                    digests[index] = ModSetFingerprint.digest(mod);
+                    restored[index] = registry.analyzeModPath(modId, modId, mod, digests[index]);
+                    scanNanos[index] = System.nanoTime() - start;
+                }));
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    System.err.println("sosModHooks: Mod analysis failed: " + e.getCause());
+                }
+            }
+        } finally {
+            System.setOut(console);
+        }
+        long scanWallNanos = System.nanoTime() - wallStart;
+
+        Map<String, Long> modDigests = new HashMap<>();
+        for (int i = 0; i < mods.length; i++) {
+            modDigests.put(modIdFor(mods[i]), digests[i]);
+        }
+        String[] modIds = new java.util.TreeSet<>(modDigests.keySet()).toArray(new String[0]);
+        long runHash = CompatibilityMatrix.manifestHash(modIds, modDigests);
+        File checkpoint = new File(outDir, "completed-stages");
+        List<String> completed = readCheckpoint(checkpoint, runHash);
+
+        File report = new File(outDir, "conflicts" + format.getExtension());
+        String reportStage = "report" + format.getExtension();
+        ConflictReportWriter writer = null;
+        int conflictCount = 0;
+        long reportStart = System.nanoTime();
+        if (!completed.contains(reportStage) || !report.isFile()) {
+            writer = new ConflictReportWriter(format);
+            conflictCount = writer.write(report);
+            completed.add(reportStage);
+            writeCheckpoint(checkpoint, runHash, completed);
+        }
+        long reportNanos = System.nanoTime() - reportStart;
+
+        File timings = new File(outDir, "timings.csv");
+        writeTimings(timings, mods, scanNanos, restored);
+
+        printSummary(mods, scanNanos, restored, scanWallNanos, reportNanos, writer, conflictCount, report, timings);
+
+        File duplicatesFile = new File(outDir, "duplicates.csv");
+        if (!completed.contains("duplicates") || !duplicatesFile.isFile()) {
+            DuplicateContentAnalyzer duplicates = DuplicateContentAnalyzer.getInstance();
+            duplicates.analyze();
+            duplicates.writeCsv(duplicatesFile);
+            completed.add("duplicates");
+            writeCheckpoint(checkpoint, runHash, completed);
+            System.out.printf(java.util.Locale.ROOT, "sosModHooks: %d duplicate files across mods waste %.1f MB, written to %s%n",
+                duplicates.getClusters().size(), duplicates.getWastedBytes() / (1024.0 * 1024.0), duplicatesFile.getPath());
+        } else {
+            System.out.println("sosModHooks: Mod files unchanged, keeping " + duplicatesFile.getPath());
+        }
+
+        if (matrix) {
+            long matrixStart = System.nanoTime();
+            new CompatibilityMatrix(new File(outDir, "matrix-shards"), shards, threads)
+                .build(modDigests, new File(outDir, "compatibility-matrix.csv"));
+            System.out.printf(java.util.Locale.ROOT, "sosModHooks: Matrix computed in %.1f ms%n",
+                (System.nanoTime() - matrixStart) / 1e6);
+        }
+    }
+
+    private static String modIdFor(File mod) {
+        String name = mod.getName();
+        return mod.isDirectory() ? name : name.substring(0, name.length() - ".jar".length());
+    }
+
+    /**
+     * Stages that already finished for the given run, or an empty list if the checkpoint is
+     * missing or from other mod files.
+     */
+    private static List<String> readCheckpoint(File file, long runHash) {
+        List<String> stages = new ArrayList<>();
+        if (!file.isFile()) {
+            return stages;
+        }
+        try {
+            List<String> lines = java.nio.file.Files.readAllLines(file.toPath(), java.nio.charset.StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.get(0).equals(Long.toHexString(runHash))) {
+                stages.addAll(lines.subList(1, lines.size()));
+            }
+        } catch (IOException e) {
+            System.err.println("sosModHooks: Ignoring unreadable " + file.getPath() + ": " + e.getMessage());
+        }
+        return stages;
+    }
+
+    private static void writeCheckpoint(File file, long runHash, List<String> stages) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (PrintWriter out = new PrintWriter(temp, "UTF-8")) {
+            out.println(Long.toHexString(runHash));
+            for (String stage : stages) {
+                out.println(stage);
+            }
+        }
+        java.nio.file.Files.move(temp.toPath(), file.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void writeTimings(File file, File[] mods, long[] scanNanos, boolean[] restored) throws IOException {
+        ModRegistry registry = ModRegistry.getInstance();
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("mod_id,path,scan_millis,restored,class_replacements,asset_modifications,data_modifications,"
+                + "asset_file_bytes,texture_bytes,audio_bytes");
+            for (int i = 0; i < mods.length; i++) {
+                String modId = modIdFor(mods[i]);
+                AssetMemoryEstimator.ModAssetCost cost = AssetMemoryEstimator.getInstance().getCost(modId);
+                out.printf(java.util.Locale.ROOT, "%s,%s,%.3f,%b,%d,%d,%d,%d,%d,%d%n",
+                    modId, mods[i].getPath().replace(',', '_'), scanNanos[i] / 1e6, restored[i],
+                    size(registry.getClassReplacements().get(modId)),
+                    size(registry.getAssetModifications().get(modId)),
+                    size(registry.getDataModifications().get(modId)),
+                    cost != null ? cost.getFileBytes() : 0,
+                    cost != null ? cost.getTextureBytes() : 0,
+                    cost != null ? cost.getAudioBytes() : 0);
+            }
+        }
+    }
+
+    private static int size(LIST<String> list) {
+        return list != null ? list.size() : 0;
+    }
+
+    private static int size(PathList list) {
+        return list != null ? list.size() : 0;
+    }
+
+    private void printSummary(File[] mods, long[] scanNanos, boolean[] restored, long scanWallNanos, long reportNanos,
+                              ConflictReportWriter writer, int conflictCount, File report, File timings) {
+        long[] sorted = Arrays.copyOf(scanNanos, scanNanos.length);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long nanos : sorted) {
+            total += nanos;
+        }
+
+        int restoredCount = 0;
+        for (boolean r : restored) {
+            if (r) {
+                restoredCount++;
+            }
+        }
+        System.out.println("sosModHooks: Analyzed " + mods.length + " mods with " + threads + " threads, "
+            + restoredCount + " unchanged mods restored from the index");
+        System.out.printf(java.util.Locale.ROOT, "sosModHooks: Scan wall time %.1f ms, summed scan time %.1f ms%n",
+            scanWallNanos / 1e6, total / 1e6);
+        if (sorted.length > 0) {
+            System.out.printf(java.util.Locale.ROOT, "sosModHooks: Per-mod scan p50 %.1f ms, p95 %.1f ms, max %.1f ms%n",
+                percentile(sorted, 0.5) / 1e6, percentile(sorted, 0.95) / 1e6, sorted[sorted.length - 1] / 1e6);
+        }
+        long textureBytes = 0;
+        long audioBytes = 0;
+        for (AssetMemoryEstimator.ModAssetCost cost : AssetMemoryEstimator.getInstance().getCosts().values()) {
+            textureBytes += cost.getTextureBytes();
+            audioBytes += cost.getAudioBytes();
+        }
+        System.out.printf(java.util.Locale.ROOT, "sosModHooks: Decoded asset memory: textures %.1f MB, audio %.1f MB%n",
+            textureBytes / (1024.0 * 1024.0), audioBytes / (1024.0 * 1024.0));
+        if (writer == null) {
+            System.out.println("sosModHooks: Mod files unchanged, keeping " + report.getPath());
+        } else {
+            System.out.printf(java.util.Locale.ROOT, "sosModHooks: Report written in %.1f ms%n", reportNanos / 1e6);
+            System.out.println("sosModHooks: " + conflictCount + " conflicts written to " + report.getPath());
+            for (ConflictType type : ConflictType.values()) {
+                if (writer.getWrittenCount(type) > 0) {
+                    System.out.println("  - " + type.getDisplayName() + ": " + writer.getWrittenCount(type));
+                }
+            }
+        }
+        System.out.println("sosModHooks: Per-mod timings written to " + timings.getPath());
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
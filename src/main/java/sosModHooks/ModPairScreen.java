@@ -0,0 +1,202 @@
+package sosModHooks;
+
+import snake2d.util.sets.LIST;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-mod summary of everything a mod can conflict on: replaced classes, asset paths and
+ * data record fields, each reduced to a 64-bit hash. Pairs that share no hash cannot
+ * conflict on any of those, so only pairs that do need the exact check.
+ *
+ * Each mod keeps its hashes sorted plus a Bloom filter sized for its own number of targets.
+ * A pair is screened by probing the larger mod's filter with every hash of the smaller mod
+ * and confirming the few hits with a binary search, so the answer doesn't degrade for mods
+ * with tens of thousands of assets and a negative stays exact. Wildcard asset declarations
+ * are screened by their literal directory prefix against the directories the other mod
+ * ships files in. Summaries are rebuilt lazily, and only for mods whose declarations
+ * changed, so adding one mod to a large pack only builds one.
+ */
+final class ModPairScreen {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // Kept apart so a class and an asset with the same name don't share a hash
+    private static final long CLASS_SEED = 0x9E3779B97F4A7C15L;
+    private static final long ASSET_SEED = 0xC2B2AE3D27D4EB4FL;
+    private static final long DATA_SEED = 0x165667B19E3779F9L;
+
+    private final ModRegistry registry;
+    private final Map<String, TargetFilter> filters = new ConcurrentHashMap<>();
+    private final Set<String> stale = ConcurrentHashMap.newKeySet();
+
+    ModPairScreen(ModRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Mark a mod's filter for rebuilding after its declarations changed.
+     */
+    void invalidate(String modId) {
+        stale.add(modId);
+    }
+
+    /**
+     * Whether the two mods may share a class, asset or data target. False is exact.
+     */
+    boolean mightConflict(String modA, String modB) {
+        TargetFilter a = filterFor(modA);
+        TargetFilter b = filterFor(modB);
+        if (a.isEmpty() || b.isEmpty()) {
+            return false;
+        }
+        if (a.globsMayMatch(b) || b.globsMayMatch(a)) {
+            return true;
+        }
+        return a.hashes.length <= b.hashes.length ? a.sharesHashWith(b) : b.sharesHashWith(a);
+    }
+
+    private TargetFilter filterFor(String modId) {
+        TargetFilter filter = filters.get(modId);
+        boolean changed = stale.remove(modId);
+        if (filter == null || changed) {
+            filter = build(modId);
+            filters.put(modId, filter);
+        }
+        return filter;
+    }
+
+    private TargetFilter build(String modId) {
+        LongList hashes = new LongList();
+        LongList directories = new LongList();
+        List<String> globPrefixes = new ArrayList<>();
+
+        LIST<String> classes = registry.getClassReplacements().get(modId);
+        if (classes != null) {
+            for (int i = 0; i < classes.size(); i++) {
+                hashes.add(BloomFilter.hash(classes.get(i)) ^ CLASS_SEED);
+            }
+        }
+
+        PathList assets = registry.getAssetModifications().get(modId);
+        if (assets != null) {
+            for (int i = 0; i < assets.size(); i++) {
+                String path = assets.get(i);
+                if (AssetPathTrie.isGlob(path)) {
+                    globPrefixes.add(literalPrefix(path));
+                } else {
+                    hashes.add(assets.getStore().hash(assets.getId(i)) ^ ASSET_SEED);
+                    // Every directory the file is in, for matching other mods' wildcards
+                    for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                        directories.add(BloomFilter.hash(path.substring(0, slash + 1)));
+                    }
+                }
+            }
+        }
+
+        for (long recordKey : registry.getDataConflictIndex().getRecordKeys(modId)) {
+            hashes.add((recordKey * DATA_SEED) ^ (recordKey >>> 29));
+        }
+        return new TargetFilter(hashes.toSortedArray(), directories.toSortedArray(), globPrefixes);
+    }
+
+    /**
+     * The part of a glob before the directory holding its first wildcard, for example
+     * "/data/assets/sprite/" for a glob on the race folders below sprite.
+     */
+    static String literalPrefix(String glob) {
+        int wildcard = glob.length();
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) == '*' || glob.charAt(i) == '?') {
+                wildcard = i;
+                break;
+            }
+        }
+        return glob.substring(0, glob.lastIndexOf('/', wildcard - 1) + 1);
+    }
+
+    private static final class TargetFilter {
+        final long[] hashes;
+        final BloomFilter filter;
+        // Hashes of every directory holding one of the mod's concrete asset paths, sorted
+        final long[] directories;
+        final List<String> globPrefixes;
+
+        TargetFilter(long[] hashes, long[] directories, List<String> globPrefixes) {
+            this.hashes = hashes;
+            this.directories = directories;
+            this.globPrefixes = globPrefixes;
+            this.filter = BloomFilter.create(hashes.length, FALSE_POSITIVE_RATE);
+            for (long hash : hashes) {
+                filter.addHash(hash);
+            }
+        }
+
+        boolean isEmpty() {
+            return hashes.length == 0 && globPrefixes.isEmpty();
+        }
+
+        /**
+         * Whether any of these hashes is also in the other, usually larger, filter.
+         */
+        boolean sharesHashWith(TargetFilter other) {
+            for (long hash : hashes) {
+                if (other.filter.mightContainHash(hash) && Arrays.binarySearch(other.hashes, hash) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Whether one of these wildcards may match an asset or wildcard of the other mod.
+         */
+        boolean globsMayMatch(TargetFilter other) {
+            for (String prefix : globPrefixes) {
+                if (prefix.isEmpty() && other.directories.length > 0) {
+                    return true;
+                }
+                if (Arrays.binarySearch(other.directories, BloomFilter.hash(prefix)) >= 0) {
+                    return true;
+                }
+                for (String otherPrefix : other.globPrefixes) {
+                    if (prefix.startsWith(otherPrefix) || otherPrefix.startsWith(prefix)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Growable list of longs, deduplicated when sorted.
+     */
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size = 0;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toSortedArray() {
+            Arrays.sort(values, 0, size);
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || values[i] != values[unique - 1]) {
+                    values[unique++] = values[i];
+                }
+            }
+            return Arrays.copyOf(values, unique);
+        }
+    }
+}
@@ -9,11 +9,20 @@ import snake2d.util.sets.LIST;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarFile;
 import java.util.List;
 
@@ -31,8 +40,9 @@ public final class ModRegistry {
     @Getter
     private final Map<String, LIST<String>> classReplacements;
     
+    // Asset paths are ids into the off-heap PathStore
     @Getter
-    private final Map<String, LIST<String>> assetModifications;
+    private final Map<String, PathList> assetModifications;
     
     @Getter
     private final Map<String, LIST<String>> dataModifications;
@@ -43,6 +53,8 @@ public final class ModRegistry {
     // Runtime detection state
     private boolean hasDetectedActiveMods = false;
     private boolean hasAnalyzedRuntimeEffects = false;
+    private long detectionNanos = 0;
+    private long runtimeAnalysisNanos = 0;
     
     // Active mod tracking
     private final Map<String, ActiveModInfo> activeMods;
@@ -50,14 +62,44 @@ public final class ModRegistry {
     // Comprehensive mod analyses
     private final Map<String, ModAnalysis> modAnalyses;
     
+    // Record-level index of data file definitions
+    @Getter
+    private final DataConflictIndex dataConflictIndex;
+    
+    // Per-mod Bloom filters that rule out most non-conflicting pairs
+    private final ModPairScreen pairScreen;
+    
+    // Held while a committed batch is merged into the declaration maps
+    private final Object declarationLock = new Object();
+    
+    // Conflict change events: listeners, the conflicts they were last told about, and what changed since
+    private final List<ListenerRegistration> conflictListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+    private final Map<String, ModConflict> publishedConflicts = new HashMap<>();
+    private final List<ConflictEvent> pendingEvents = new java.util.ArrayList<>();
+    private volatile boolean conflictsChanged = true;
+    private final java.util.concurrent.atomic.AtomicBoolean publishing = new java.util.concurrent.atomic.AtomicBoolean(false);
+    
+    // Disabled by the headless analyzer, which scans far more files than the game does
+    private volatile boolean debugLogEnabled = true;
+    
+    // Saved per-mod analyses, null when every mod is scanned
+    private volatile ModIndexCache indexCache;
+    
     private ModRegistry() {
-        this.registeredMods = new HashMap<>();
-        this.classReplacements = new HashMap<>();
-        this.assetModifications = new HashMap<>();
-        this.dataModifications = new HashMap<>();
-        this.dependencies = new HashMap<>();
+        // Concurrent so mods can be analyzed in parallel
+        this.registeredMods = new ConcurrentHashMap<>();
+        this.classReplacements = new ConcurrentHashMap<>();
+        this.assetModifications = new ConcurrentHashMap<>();
+        this.dataModifications = new ConcurrentHashMap<>();
+        this.dependencies = new ConcurrentHashMap<>();
         this.activeMods = new HashMap<>();
         this.modAnalyses = new HashMap<>();
+        this.dataConflictIndex = new DataConflictIndex();
+        this.pairScreen = new ModPairScreen(this);
+        if (ModHooksConfig.getInstance().getBoolean("sosModHooks.indexCache", true)) {
+            // Created on first store, so the headless analyzer never touches it
+            this.indexCache = new ModIndexCache(new File(new File(ModHooksFiles.getRootDirectory(), "cache"), "mod-index"));
+        }
     }
     
     public static ModRegistry getInstance() {
@@ -71,6 +113,9 @@ public final class ModRegistry {
      * Write debug information to a log file.
      */
     private void writeLog(String message) {
+        if (!debugLogEnabled) {
+            return;
+        }
         try {
             File logFile = new File("sosModHooks_debug.log");
             try (PrintWriter writer = new PrintWriter(new FileWriter(logFile, true))) {
@@ -110,17 +155,38 @@ public final class ModRegistry {
             return;
         }
         
+        long started = System.nanoTime();
+        StartupTracer tracer = StartupTracer.getInstance();
         try {
             // Use a consolidated approach to avoid duplicates
-            detectModsConsolidated();
+            tracer.begin("detectModsConsolidated");
+            try {
+                detectModsConsolidated();
+            } finally {
+                tracer.end("detectModsConsolidated");
+            }
+            
+            // Know what the base game ships before classifying mod files
+            tracer.begin("VanillaBaseline.load");
+            try {
+                VanillaBaseline.getInstance().load();
+            } finally {
+                tracer.end("VanillaBaseline.load");
+            }
             
             // Phase 2: Runtime monitoring for actual modifications
-            setupRuntimeMonitoring();
+            tracer.begin("setupRuntimeMonitoring");
+            try {
+                setupRuntimeMonitoring();
+            } finally {
+                tracer.end("setupRuntimeMonitoring");
+            }
             
         } catch (Exception e) {
             // Silently fail - will retry later
         }
         
+        detectionNanos = System.nanoTime() - started;
         hasDetectedActiveMods = true;
     }
     
@@ -130,6 +196,9 @@ public final class ModRegistry {
      */
     private void setupRuntimeMonitoring() {
         try {
+            // Track which mod classes get loaded and what that costs
+            setupClassLoadingInterceptor();
+            
             // Analyze actual mod files on disk for real modifications
             analyzeModFilesOnDisk();
             
@@ -147,6 +216,16 @@ public final class ModRegistry {
      */
     private void analyzeModFilesOnDisk() {
         try {
+            // Every mod gets its digest, so save fingerprints see changes in all of them.
+            // Only file metadata is read, which is cheap next to the analysis below
+            for (ActiveModInfo modInfo : activeMods.values()) {
+                String modPath = findModPathOnDisk(modInfo);
+                if (modPath != null) {
+                    modInfo.modPath = modPath;
+                    modInfo.metadataDigest = ModSetFingerprint.digest(new File(modPath));
+                }
+            }
+            
             // Limit the number of mods processed to prevent hitting game limits
             int maxModsToProcess = Math.min(activeMods.size(), 5); // Process max 5 mods at once
             
@@ -160,10 +239,16 @@ public final class ModRegistry {
                 String modId = entry.getKey();
                 ActiveModInfo modInfo = entry.getValue();
                 
-                // Find the actual mod directory on disk
-                String modPath = findModPathOnDisk(modInfo);
+                String modPath = modInfo.modPath;
                 if (modPath != null) {
-                    analyzeModDirectory(modId, modInfo.modName, modPath);
+                    String span = "scan " + modId;
+                    StartupTracer.getInstance().begin(span);
+                    try {
+                        // Mods unchanged since an earlier session are restored from the index cache
+                        analyzeModPath(modId, modInfo.modName, new File(modPath), modInfo.metadataDigest);
+                    } finally {
+                        StartupTracer.getInstance().end(span);
+                    }
                 }
                 
                 processedCount++;
@@ -308,10 +393,73 @@ public final class ModRegistry {
         }
     }
     
+    /**
+     * Enable or disable the sosModHooks_debug.log file.
+     */
+    public void setDebugLogEnabled(boolean enabled) {
+        this.debugLogEnabled = enabled;
+    }
+    
+    /**
+     * Keep the analysis of each mod in the given cache, so unchanged mods are restored
+     * instead of scanned. Pass null to always scan.
+     */
+    public void setIndexCache(ModIndexCache indexCache) {
+        this.indexCache = indexCache;
+    }
+    
+    /**
+     * Register and analyze a mod folder or mod JAR outside the normal detection flow.
+     * Safe to call for different mods from several threads at once.
+     */
+    public void analyzeModPath(String modId, String modName, File path) {
+        if (!registeredMods.containsKey(modId)) {
+            registerMod(modId, modName, "unknown");
+        }
+        scanModPath(modId, modName, path);
+    }
+    
+    /**
+     * Like {@link #analyzeModPath(String, String, File)}, but restores the mod from the index
+     * cache when it holds an analysis of the same metadata digest, and saves a fresh one otherwise.
+     *
+     * @param digest the mod's {@link ModSetFingerprint#digest(File)}
+     * @return true if the mod was restored from the cache instead of scanned
+     */
+    public boolean analyzeModPath(String modId, String modName, File path, long digest) {
+        if (!registeredMods.containsKey(modId)) {
+            registerMod(modId, modName, "unknown");
+        }
+        ModIndexCache cache = indexCache;
+        if (cache != null && cache.restore(this, modId, digest)) {
+            return true;
+        }
+        scanModPath(modId, modName, path);
+        if (cache != null) {
+            cache.store(this, modId, digest);
+        }
+        return false;
+    }
+    
+    private void scanModPath(String modId, String modName, File path) {
+        if (path.isDirectory()) {
+            analyzeModDirectory(modId, modName, path.getPath());
+        } else if (path.getName().toLowerCase().endsWith(".jar")) {
+            DeclarationBatch batch = beginDeclarations(modId);
+            long start = System.nanoTime();
+            analyzeJarFile(modId, modName, path, batch);
+            batch.commit();
+            FlightRecorder.getInstance().record(FlightRecorder.Kind.SCAN, modId, start, System.nanoTime() - start, 0);
+        }
+    }
+    
     /**
      * Analyze a mod directory to detect actual modifications.
+     * Everything found is declared in one batch, committed when the scan ends.
      */
     private void analyzeModDirectory(String modId, String modName, String modPath) {
+        DeclarationBatch batch = beginDeclarations(modId);
+        long start = System.nanoTime();
         try {
             File modDir = new File(modPath);
             if (!modDir.exists() || !modDir.isDirectory()) {
@@ -358,45 +506,48 @@ public final class ModRegistry {
                 }
                 
                 // Analyze the selected version directory
-                analyzeVersionDirectory(modId, modName, targetVersionDir);
+                analyzeVersionDirectory(modId, modName, targetVersionDir, batch);
             } else {
                 // Analyze the root directory directly
-                analyzeModRootDirectory(modId, modName, modDir);
+                analyzeModRootDirectory(modId, modName, modDir, batch);
             }
             
         } catch (Exception e) {
             // Silently fail - will retry later
+        } finally {
+            batch.commit();
+            FlightRecorder.getInstance().record(FlightRecorder.Kind.SCAN, modId, start, System.nanoTime() - start, 0);
         }
     }
     
     /**
      * Analyze a version-specific directory (V69, V68, etc.).
      */
-    private void analyzeVersionDirectory(String modId, String modName, File versionDir) {
+    private void analyzeVersionDirectory(String modId, String modName, File versionDir, DeclarationBatch batch) {
         try {
             // Analyze script directory for class modifications
             File scriptDir = new File(versionDir, "script");
             if (scriptDir.exists() && scriptDir.isDirectory()) {
-                analyzeScriptDirectory(modId, modName, scriptDir);
+                analyzeScriptDirectory(modId, modName, scriptDir, batch);
             }
             
             // Analyze assets directory for file modifications
             File assetsDir = new File(versionDir, "assets");
             if (assetsDir.exists() && assetsDir.isDirectory()) {
-                analyzeAssetsDirectory(modId, modName, assetsDir);
+                analyzeAssetsDirectory(modId, modName, assetsDir, batch);
             }
             
             // Analyze data directory for configuration changes
             File dataDir = new File(versionDir, "data");
             if (dataDir.exists() && dataDir.isDirectory()) {
-                analyzeDataDirectory(modId, modName, dataDir);
+                analyzeDataDirectory(modId, modName, dataDir, batch);
             }
             
             // Also check for Java source files in the version directory
             File[] javaFiles = versionDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".java"));
             if (javaFiles != null && javaFiles.length > 0) {
                 for (File javaFile : javaFiles) {
-                    declareDataModification(modId, "JAVA_SOURCE");
+                    batch.modifiesData("JAVA_SOURCE");
                 }
             }
             
@@ -408,7 +559,7 @@ public final class ModRegistry {
     /**
      * Analyze the root mod directory for modifications.
      */
-    private void analyzeModRootDirectory(String modId, String modName, File modDir) {
+    private void analyzeModRootDirectory(String modId, String modName, File modDir, DeclarationBatch batch) {
         try {
             System.out.println("sosModHooks: Analyzing root mod directory: " + modDir.getName());
             
@@ -416,7 +567,7 @@ public final class ModRegistry {
             File[] jarFiles = modDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".jar"));
             if (jarFiles != null) {
                 for (File jarFile : jarFiles) {
-                    analyzeJarFile(modId, modName, jarFile);
+                    analyzeJarFile(modId, modName, jarFile, batch);
                 }
             }
             
@@ -425,7 +576,7 @@ public final class ModRegistry {
                                                                  name.toLowerCase().endsWith(".py") ||
                                                                  name.toLowerCase().endsWith(".lua"));
             if (scriptFiles != null && scriptFiles.length > 0) {
-                declareDataModification(modId, "SCRIPT");
+                batch.modifiesData("SCRIPT");
                 System.out.println("sosModHooks: Detected script files in root directory");
             }
             
@@ -437,7 +588,7 @@ public final class ModRegistry {
     /**
      * Analyze the script directory for class modifications.
      */
-    private void analyzeScriptDirectory(String modId, String modName, File scriptDir) {
+    private void analyzeScriptDirectory(String modId, String modName, File scriptDir, DeclarationBatch batch) {
         try {
             System.out.println("sosModHooks: Analyzing script directory: " + scriptDir.getPath());
             writeLog("Analyzing script directory: " + scriptDir.getPath());
@@ -450,7 +601,7 @@ public final class ModRegistry {
                 for (File jarFile : jarFiles) {
                     System.out.println("sosModHooks: Analyzing JAR file: " + jarFile.getName());
                     writeLog("Analyzing JAR file: " + jarFile.getName());
-                    analyzeJarFile(modId, modName, jarFile);
+                    analyzeJarFile(modId, modName, jarFile, batch);
                 }
             } else {
                 System.out.println("sosModHooks: No JAR files found in script directory");
@@ -464,7 +615,7 @@ public final class ModRegistry {
             if (scriptFiles != null && scriptFiles.length > 0) {
                 System.out.println("sosModHooks: Detected " + scriptFiles.length + " script files");
                 writeLog("Detected " + scriptFiles.length + " script files");
-                declareDataModification(modId, "SCRIPT");
+                batch.modifiesData("SCRIPT");
                 System.out.println("sosModHooks: Declared script modification for mod: " + modId);
                 writeLog("Declared script modification for mod: " + modId);
             } else {
@@ -485,7 +636,7 @@ public final class ModRegistry {
     /**
      * Analyze the assets directory for file modifications.
      */
-    private void analyzeAssetsDirectory(String modId, String modName, File assetsDir) {
+    private void analyzeAssetsDirectory(String modId, String modName, File assetsDir, DeclarationBatch batch) {
         try {
             System.out.println("sosModHooks: Analyzing assets directory: " + assetsDir.getPath());
             writeLog("Analyzing assets directory: " + assetsDir.getPath());
@@ -493,7 +644,7 @@ public final class ModRegistry {
             // Recursively scan for asset files
             System.out.println("sosModHooks: Starting recursive asset scan for mod: " + modId);
             writeLog("Starting recursive asset scan for mod: " + modId);
-            scanAssetsRecursively(modId, modName, assetsDir, "");
+            scanAssets(modId, modName, assetsDir, batch);
             System.out.println("sosModHooks: Completed recursive asset scan for mod: " + modId);
             writeLog("Completed recursive asset scan for mod: " + modId);
             
@@ -505,84 +656,66 @@ public final class ModRegistry {
     }
     
     /**
-     * Recursively scan assets directory for modifications.
-     * Uses batched processing to avoid hitting game limits.
+     * Walk the assets directory and classify every file as it is found.
+     * Uses the attributes from the walk, so no file is stat'ed a second time.
      */
-    private void scanAssetsRecursively(String modId, String modName, File dir, String relativePath) {
+    private void scanAssets(String modId, String modName, File assetsDir, DeclarationBatch batch) {
+        Path root = assetsDir.toPath();
+        int[] fileCount = {0};
         try {
-            // Limit recursion depth to prevent stack overflow and game limits
-            if (relativePath.split("/").length > 5) {
-                System.out.println("sosModHooks: Skipping deep directory: " + relativePath);
-                return;
-            }
-            
-            File[] files = dir.listFiles();
-            if (files != null) {
-                // Process files in batches to avoid hitting game limits
-                int processedFiles = 0;
-                int maxFilesPerBatch = 100; // Limit files per batch
-                
-                for (File file : files) {
-                    if (processedFiles >= maxFilesPerBatch) {
-                        System.out.println("sosModHooks: Reached file limit for batch, declaring batch modification");
-                        declareAssetModification(modId, "/data/assets/" + relativePath + "/*");
-                        break;
-                    }
-                    
-                    String currentPath = relativePath.isEmpty() ? file.getName() : relativePath + "/" + file.getName();
-                    
-                    if (file.isDirectory()) {
-                        // Recursively scan subdirectories
-                        scanAssetsRecursively(modId, modName, file, currentPath);
-                    } else {
-                        // Analyze individual files
-                        analyzeAssetFile(modId, modName, file, currentPath);
-                        processedFiles++;
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        String relativePath = root.relativize(file).toString().replace('\\', '/');
+                        analyzeAssetFile(modId, modName, file.toFile(), relativePath, attrs.size(), batch);
+                        fileCount[0]++;
                     }
+                    return FileVisitResult.CONTINUE;
                 }
                 
-                // If we processed a significant number of files, declare a batch modification
-                if (processedFiles >= 50) {
-                    System.out.println("sosModHooks: Processed " + processedFiles + " files, declaring batch modification");
-                    declareAssetModification(modId, "/data/assets/" + relativePath + "/*");
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Silently fail - skip unreadable entries
+                    return FileVisitResult.CONTINUE;
                 }
-            }
-        } catch (Exception e) {
-            System.err.println("sosModHooks: Error scanning assets recursively: " + e.getMessage());
+            });
+        } catch (IOException e) {
+            System.err.println("sosModHooks: Error scanning assets: " + e.getMessage());
         }
+        System.out.println("sosModHooks: Scanned " + fileCount[0] + " asset files for mod: " + modId);
     }
     
     /**
      * Analyze an individual asset file.
      */
-    private void analyzeAssetFile(String modId, String modName, File file, String relativePath) {
+    private void analyzeAssetFile(String modId, String modName, File file, String relativePath, long fileSize, DeclarationBatch batch) {
+        // Called once per file, so nothing is logged here; scanAssets logs the count
         try {
-            System.out.println("sosModHooks: Analyzing asset file: " + file.getName() + " for mod: " + modId);
-            
             String fileName = file.getName().toLowerCase();
             String fullPath = "/data/assets/" + relativePath;
             
             if (fileName.endsWith(".png") || fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
                 // Image file
-                System.out.println("sosModHooks: Calling declareAssetModification for image: " + fullPath);
-                declareAssetModification(modId, fullPath);
-                System.out.println("sosModHooks: Detected image asset: " + fullPath);
+                batch.modifiesAssets(fullPath);
+                AssetMemoryEstimator.getInstance().recordFile(modId, fullPath, file, fileSize);
             } else if (fileName.endsWith(".wav") || fileName.endsWith(".mp3") || fileName.endsWith(".ogg")) {
                 // Audio file
-                System.out.println("sosModHooks: Calling declareAssetModification for audio: " + fullPath);
-                declareAssetModification(modId, fullPath);
-                System.out.println("sosModHooks: Detected audio asset: " + fullPath);
+                batch.modifiesAssets(fullPath);
+                AssetMemoryEstimator.getInstance().recordFile(modId, fullPath, file, fileSize);
             } else if (fileName.endsWith(".txt") || fileName.endsWith(".json") || fileName.endsWith(".xml")) {
                 // Configuration file
+                if (fileName.endsWith(".txt")) {
+                    indexDataFile(modId, relativePath, file, batch);
+                }
                 String dataType = determineDataTypeFromPath(relativePath);
                 if (dataType != null) {
-                    System.out.println("sosModHooks: Calling declareDataModification for data type: " + dataType);
-                    declareDataModification(modId, dataType);
-                    System.out.println("sosModHooks: Detected data modification: " + dataType + " in " + fullPath);
+                    batch.modifiesData(dataType);
                 }
                 // Also mark as asset modification
-                System.out.println("sosModHooks: Calling declareAssetModification for config file: " + fullPath);
-                declareAssetModification(modId, fullPath);
+                batch.modifiesAssets(fullPath);
+                // Only checked for duplicate content, not counted as asset memory
+                AssetMemoryEstimator.getInstance().recordFile(modId, fullPath, file, fileSize);
             }
             
         } catch (Exception e) {
@@ -594,7 +727,7 @@ public final class ModRegistry {
     /**
      * Analyze the data directory for configuration changes.
      */
-    private void analyzeDataDirectory(String modId, String modName, File dataDir) {
+    private void analyzeDataDirectory(String modId, String modName, File dataDir, DeclarationBatch batch) {
         try {
             System.out.println("sosModHooks: Analyzing data directory: " + dataDir.getPath());
             
@@ -604,9 +737,12 @@ public final class ModRegistry {
                                                                    name.toLowerCase().endsWith(".xml"));
             if (configFiles != null && configFiles.length > 0) {
                 for (File configFile : configFiles) {
+                    if (configFile.getName().toLowerCase().endsWith(".txt")) {
+                        indexDataFile(modId, "data/" + configFile.getName(), configFile, batch);
+                    }
                     String dataType = determineDataTypeFromPath(configFile.getName());
                     if (dataType != null) {
-                        declareDataModification(modId, dataType);
+                        batch.modifiesData(dataType);
                         System.out.println("sosModHooks: Detected data modification: " + dataType + " in " + configFile.getName());
                     }
                 }
@@ -620,12 +756,15 @@ public final class ModRegistry {
     /**
      * Analyze a JAR file for class modifications.
      */
-    private void analyzeJarFile(String modId, String modName, File jarFile) {
+    private void analyzeJarFile(String modId, String modName, File jarFile, DeclarationBatch batch) {
         try {
             System.out.println("sosModHooks: Analyzing JAR file: " + jarFile.getName());
             
             java.util.jar.JarFile jar = new java.util.jar.JarFile(jarFile);
             java.util.Enumeration<java.util.jar.JarEntry> entries = jar.entries();
+            // Recorded so bundled copies of the same library show up as duplicate content,
+            // without counting towards the mod's asset memory
+            AssetMemoryEstimator.getInstance().recordFile(modId, "/script/" + jarFile.getName(), jarFile);
             
             int classCount = 0;
             int assetCount = 0;
@@ -639,20 +778,35 @@ public final class ModRegistry {
                     // Class file - check if it's replacing a base game class
                     String className = entryName.replace("/", ".").replace(".class", "");
                     if (isReplacingBaseGameClass(className)) {
-                        declareClassReplacement(modId, className);
+                        batch.replacesClasses(className);
                         classCount++;
                         System.out.println("sosModHooks: Detected class replacement: " + className);
                     }
                 } else if (entryName.startsWith("data/assets/")) {
                     // Asset file
-                    declareAssetModification(modId, "/" + entryName);
+                    batch.modifiesAssets("/" + entryName);
+                    AssetMemoryEstimator.getInstance().recordEntry(modId, "/" + entryName, jar, entry);
                     assetCount++;
-                    System.out.println("sosModHooks: Detected asset modification: " + entryName);
+                    if (entryName.endsWith(".txt")) {
+                        // Same key as the file in a mod folder's assets directory
+                        String relativePath = entryName.substring("data/assets/".length());
+                        try (java.io.InputStream in = jar.getInputStream(entry)) {
+                            indexDataContent(modId, relativePath, readFully(in), batch);
+                        }
+                        String dataType = determineDataTypeFromPath(relativePath);
+                        if (dataType != null) {
+                            batch.modifiesData(dataType);
+                            dataCount++;
+                        }
+                    }
                 } else if (entryName.startsWith("data/") && entryName.endsWith(".txt")) {
-                    // Data file
+                    // Data file, keyed like the files of a mod folder's data directory
+                    try (java.io.InputStream in = jar.getInputStream(entry)) {
+                        indexDataContent(modId, entryName, readFully(in), batch);
+                    }
                     String dataType = determineDataTypeFromPath(entryName);
                     if (dataType != null) {
-                        declareDataModification(modId, dataType);
+                        batch.modifiesData(dataType);
                         dataCount++;
                         System.out.println("sosModHooks: Detected data modification: " + dataType + " in " + entryName);
                     }
@@ -671,9 +825,14 @@ public final class ModRegistry {
     
     /**
      * Check if a class is replacing a base game class.
-     * Uses lightweight pattern matching instead of expensive class loading.
+     * Uses the vanilla class index when it is loaded, and lightweight pattern matching otherwise.
      */
     private boolean isReplacingBaseGameClass(String className) {
+        VanillaBaseline baseline = VanillaBaseline.getInstance();
+        if (baseline.isAvailable()) {
+            return baseline.isVanillaClass(className);
+        }
+        
         try {
             // Use lightweight pattern matching instead of expensive class loading
             // Look for common base game class patterns
@@ -714,6 +873,58 @@ public final class ModRegistry {
         }
     }
     
+    /**
+     * Index the top-level keys of a data file so conflicts can be detected per record field.
+     * Can be called again whenever the file changes.
+     *
+     * @param relativePath path relative to the assets root, for example "init/race/HUMAN.txt",
+     *                     whether the file comes from a mod folder or from data/assets/ in a JAR.
+     *                     Files of a data directory outside the assets are keyed "data/NAME.txt".
+     */
+    public void indexDataFile(String modId, String relativePath, File file) {
+        indexDataFile(modId, relativePath, file, null);
+    }
+    
+    /**
+     * Index a data file found during a scan. Listeners are told when the batch is committed,
+     * not once per file.
+     */
+    private void indexDataFile(String modId, String relativePath, File file, DeclarationBatch batch) {
+        try {
+            indexDataContent(modId, relativePath, java.nio.file.Files.readAllBytes(file.toPath()), batch);
+        } catch (Exception e) {
+            System.err.println("sosModHooks: Error indexing data file " + relativePath + ": " + e.getMessage());
+        }
+    }
+    
+    private void indexDataContent(String modId, String relativePath, byte[] content, DeclarationBatch batch) {
+        String path = relativePath.replace('\\', '/');
+        int slash = path.lastIndexOf('/');
+        String folder = slash >= 0 ? path.substring(0, slash) : "";
+        String file = slash >= 0 ? path.substring(slash + 1) : path;
+        int dot = file.lastIndexOf('.');
+        if (dot > 0) {
+            file = file.substring(0, dot);
+        }
+        
+        dataConflictIndex.updateFile(modId, folder, file, new String(content, java.nio.charset.StandardCharsets.UTF_8));
+        if (batch != null) {
+            batch.dataIndexChanged();
+        } else {
+            declarationsChanged(modId);
+        }
+    }
+    
+    private static byte[] readFully(java.io.InputStream in) throws java.io.IOException {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+    
     /**
      * Determine data type from file path.
      */
@@ -738,20 +949,27 @@ public final class ModRegistry {
     }
     
     /**
-     * Set up class loading interceptor to monitor new class loads.
+     * Set up class loading monitoring for the mod JARs found on the script classpath.
      */
     private void setupClassLoadingInterceptor() {
-        // This would intercept class loading to detect new mod classes
-        // For now, we'll use periodic analysis
-        System.out.println("sosModHooks: Class loading interceptor setup (using periodic analysis)");
+        ClassLoadMonitor monitor = ClassLoadMonitor.getInstance();
+        if (!monitor.isPerModTrackingAvailable()) {
+            setupFallbackClassMonitoring();
+            return;
+        }
+        
+        monitor.sample();
+        monitor.start();
+        System.out.println("sosModHooks: Class loading monitor started");
     }
     
     /**
-     * Set up fallback class monitoring for non-URLClassLoader scenarios.
+     * Set up fallback class monitoring when loaders can't be queried per class.
+     * Only the JVM-wide loaded class count is sampled then.
      */
     private void setupFallbackClassMonitoring() {
-        System.out.println("sosModHooks: Using fallback class monitoring");
-        // Implement alternative monitoring approach
+        System.out.println("sosModHooks: Using fallback class monitoring (JVM-wide counts only)");
+        ClassLoadMonitor.getInstance().start();
     }
     
     /**
@@ -919,6 +1137,12 @@ public final class ModRegistry {
                                         detectedModNames.put(modName.toLowerCase(), modId);
                                         registerActiveMod(modId, modName, "1.0.0");
                                     }
+                                    
+                                    // Track class loading for the JAR under whichever id the mod got
+                                    if (modName != null && classpath.toLowerCase().endsWith(".jar")) {
+                                        String modId = detectedModNames.get(modName.toLowerCase());
+                                        ClassLoadMonitor.getInstance().registerModJar(modId, new File(classpath));
+                                    }
                                 }
                             } catch (Exception e) {
                                 // Silently fail - will retry later
@@ -1155,22 +1379,25 @@ public final class ModRegistry {
       * Analyze the structure of a mod directory to detect modifications.
       */
      private void analyzeModStructure(String modId, String modName, File modDir) {
+         DeclarationBatch batch = beginDeclarations(modId);
          try {
              // Look for V69 directory (game version)
              File v69Dir = new File(modDir, "V69");
              if (v69Dir.exists() && v69Dir.isDirectory()) {
-                 analyzeVersionDirectory(modId, modName, v69Dir);
+                 analyzeVersionDirectory(modId, modName, v69Dir, batch);
              } else {
                  // Try other version directories
                  File[] versionDirs = modDir.listFiles((dir, name) -> dir.isDirectory() && name.startsWith("V"));
                  if (versionDirs != null && versionDirs.length > 0) {
                      // Use the first version directory found
-                     analyzeVersionDirectory(modId, modName, versionDirs[0]);
+                     analyzeVersionDirectory(modId, modName, versionDirs[0], batch);
                  }
              }
              
          } catch (Exception e) {
              System.err.println("sosModHooks: Error analyzing mod structure: " + e.getMessage());
+         } finally {
+             batch.commit();
          }
      }
      
@@ -1295,23 +1522,35 @@ public final class ModRegistry {
             return;
         }
         
+        long started = System.nanoTime();
+        StartupTracer tracer = StartupTracer.getInstance();
+        tracer.begin("analyzeRuntimeEffects");
         try {
             // Analyze each active mod's runtime effects
             for (Map.Entry<String, ActiveModInfo> entry : activeMods.entrySet()) {
                 String modId = entry.getKey();
                 ActiveModInfo modInfo = entry.getValue();
                 
-                // Analyze the mod's actual file structure
-                analyzeModRuntimeStructure(modId, modInfo);
-                
-                // Check for runtime conflicts with other mods
-                detectRuntimeConflicts(modId, modInfo);
+                String span = "runtime effects " + modId;
+                tracer.begin(span);
+                try {
+                    // Analyze the mod's actual file structure
+                    analyzeModRuntimeStructure(modId, modInfo);
+                    
+                    // Check for runtime conflicts with other mods
+                    detectRuntimeConflicts(modId, modInfo);
+                } finally {
+                    tracer.end(span);
+                }
             }
             
         } catch (Exception e) {
             // Silently fail - will retry later
+        } finally {
+            tracer.end("analyzeRuntimeEffects");
         }
         
+        runtimeAnalysisNanos = System.nanoTime() - started;
         hasAnalyzedRuntimeEffects = true;
     }
     
@@ -1750,21 +1989,20 @@ public final class ModRegistry {
      */
     private void detectAssetConflicts(String modId1, ActiveModInfo modInfo1, String modId2, ActiveModInfo modInfo2) {
         try {
-            LIST<String> assets1 = assetModifications.get(modId1);
-            LIST<String> assets2 = assetModifications.get(modId2);
+            PathList assets1 = assetModifications.get(modId1);
+            PathList assets2 = assetModifications.get(modId2);
             
             if (assets1 != null && assets2 != null) {
+                AssetPathTrie trie = new AssetPathTrie();
                 for (int i = 0; i < assets1.size(); i++) {
-                    String asset1 = assets1.get(i);
-                    for (int j = 0; j < assets2.size(); j++) {
-                        String asset2 = assets2.get(j);
-                        
-                        if (asset1.equals(asset2)) {
-                            // Register the conflict
-                            registerModConflict(modId1, modId2, asset1, "ASSET_MODIFICATION");
-                        }
-                    }
+                    trie.add(assets1.get(i), modId1);
+                }
+                for (int j = 0; j < assets2.size(); j++) {
+                    trie.add(assets2.get(j), modId2);
                 }
+                // Register each path covered by both mods, exactly or through a wildcard
+                trie.forEachOverlap((assetPath, mods, wildcard) ->
+                    registerModConflict(modId1, modId2, assetPath, "ASSET_MODIFICATION"));
             }
             
         } catch (Exception e) {
@@ -1786,7 +2024,9 @@ public final class ModRegistry {
             
             // Also register in the main registry so declare* methods can work
             ModDeclaration declaration = new ModDeclaration(modId, modName, version);
-            registeredMods.put(modId, declaration);
+            if (registeredMods.put(modId, declaration) == null) {
+                modRegistered(modId);
+            }
             
             System.out.println("sosModHooks: Successfully registered active mod: " + modName + " (" + modId + ") v" + version);
             System.out.println("sosModHooks: Successfully registered in main registry: " + modId);
@@ -1879,55 +2119,185 @@ public final class ModRegistry {
      */
     public void registerMod(String modId, String modName, String version) {
         ModDeclaration declaration = new ModDeclaration(modId, modName, version);
-        registeredMods.put(modId, declaration);
+        if (registeredMods.put(modId, declaration) == null) {
+            modRegistered(modId);
+        }
+    }
+    
+    /**
+     * Start collecting declarations for a mod. Nothing reaches the registry until
+     * {@link DeclarationBatch#commit()}; use a batch when declaring more than a few entries.
+     */
+    public DeclarationBatch beginDeclarations(String modId) {
+        return new DeclarationBatch(this, modId);
     }
     
     /**
      * Declare that a mod replaces specific core game classes.
+     * Adds to the classes the mod declared before.
      */
     public void declareClassReplacement(String modId, String... classNames) {
-        if (!registeredMods.containsKey(modId)) {
-            return;
-        }
-        
-        ArrayListGrower<String> classes = new ArrayListGrower<>();
-        for (String className : classNames) {
-            classes.add(className);
-        }
-        
-        classReplacements.put(modId, classes);
+        beginDeclarations(modId).replacesClasses(classNames).commit();
     }
     
     /**
      * Declare that a mod modifies specific asset files.
+     * Adds to the assets the mod declared before.
      */
     public void declareAssetModification(String modId, String... assetPaths) {
+        beginDeclarations(modId).modifiesAssets(assetPaths).commit();
+    }
+    
+    /**
+     * Declare that a mod modifies specific data structures.
+     * Adds to the data types the mod declared before.
+     */
+    public void declareDataModification(String modId, String... dataTypes) {
+        beginDeclarations(modId).modifiesData(dataTypes).commit();
+    }
+    
+    /**
+     * Merge a committed batch into the declarations of its mod. The mod's lists are
+     * copied and replaced rather than changed in place, so readers never see a list grow.
+     */
+    void commitDeclarations(String modId, Set<String> classes, int[] assetIds, Set<String> dataTypes, Set<String> deps,
+                            boolean dataIndexChanged) {
         if (!registeredMods.containsKey(modId)) {
+            System.err.println("sosModHooks: Cannot declare modifications for unregistered mod: " + modId);
             return;
         }
         
-        ArrayListGrower<String> assets = new ArrayListGrower<>();
-        for (String assetPath : assetPaths) {
-            assets.add(assetPath);
+        synchronized (declarationLock) {
+            boolean changed = dataIndexChanged;
+            changed |= appendNew(classReplacements, modId, classes);
+            changed |= appendNew(dataModifications, modId, dataTypes);
+            changed |= appendNew(dependencies, modId, deps);
+            
+            if (assetIds.length > 0) {
+                PathList existing = assetModifications.get(modId);
+                int existingCount = existing != null ? existing.size() : 0;
+                int[] slots = new int[Integer.highestOneBit(Math.max(8, (existingCount + assetIds.length) * 2)) << 1];
+                PathList merged = new PathList(PathStore.getInstance());
+                for (int i = 0; i < existingCount; i++) {
+                    DeclarationBatch.addId(slots, existing.getId(i));
+                    merged.addId(existing.getId(i));
+                }
+                for (int id : assetIds) {
+                    if (DeclarationBatch.addId(slots, id)) {
+                        merged.addId(id);
+                    }
+                }
+                if (merged.size() > existingCount) {
+                    assetModifications.put(modId, merged);
+                    changed = true;
+                }
+            }
+            
+            if (changed) {
+                declarationsChanged(modId);
+            }
         }
-        
-        assetModifications.put(modId, assets);
+    }
+    
+    private static boolean appendNew(Map<String, LIST<String>> byMod, String modId, Set<String> added) {
+        if (added.isEmpty()) {
+            return false;
+        }
+        LIST<String> existing = byMod.get(modId);
+        Set<String> seen = new HashSet<>();
+        ArrayListGrower<String> merged = new ArrayListGrower<>();
+        if (existing != null) {
+            for (int i = 0; i < existing.size(); i++) {
+                seen.add(existing.get(i));
+                merged.add(existing.get(i));
+            }
+        }
+        int existingCount = merged.size();
+        for (String entry : added) {
+            if (seen.add(entry)) {
+                merged.add(entry);
+            }
+        }
+        if (merged.size() == existingCount) {
+            return false;
+        }
+        byMod.put(modId, merged);
+        return true;
     }
     
     /**
-     * Declare that a mod modifies specific data structures.
+     * Quick check whether two mods could conflict on a class, asset or data record.
+     * Uses only the mods' Bloom filters; false is exact, true needs {@link #getConflictsBetween}.
      */
-    public void declareDataModification(String modId, String... dataTypes) {
-        if (!registeredMods.containsKey(modId)) {
-            return;
+    public boolean mightConflict(String modA, String modB) {
+        return !modA.equals(modB) && pairScreen.mightConflict(modA, modB);
+    }
+    
+    /**
+     * Exact class, asset and data conflicts between two mods. Pairs the Bloom filters
+     * rule out return an empty list without touching the declarations.
+     */
+    public LIST<ModConflict> getConflictsBetween(String modA, String modB) {
+        ArrayListGrower<ModConflict> conflicts = new ArrayListGrower<>();
+        if (!mightConflict(modA, modB)) {
+            return conflicts;
         }
         
-        ArrayListGrower<String> dataTypesList = new ArrayListGrower<>();
-        for (String dataType : dataTypes) {
-            dataTypesList.add(dataType);
+        ArrayListGrower<String> pair = new ArrayListGrower<>();
+        pair.add(modA);
+        pair.add(modB);
+        
+        LIST<String> classesA = classReplacements.get(modA);
+        LIST<String> classesB = classReplacements.get(modB);
+        if (classesA != null && classesB != null) {
+            java.util.Set<String> classSet = new java.util.HashSet<>();
+            for (String className : classesA) {
+                classSet.add(className);
+            }
+            for (String className : classesB) {
+                if (classSet.contains(className)) {
+                    conflicts.add(new ModConflict(className, pair, ConflictType.CLASS_REPLACEMENT,
+                        "Both mods replace " + className, VanillaBaseline.getInstance().isVanillaClass(className)));
+                }
+            }
         }
         
-        dataModifications.put(modId, dataTypesList);
+        PathList assetsA = assetModifications.get(modA);
+        PathList assetsB = assetModifications.get(modB);
+        if (assetsA != null && assetsB != null) {
+            AssetPathTrie trie = new AssetPathTrie();
+            for (int i = 0; i < assetsA.size(); i++) {
+                trie.add(assetsA.get(i), modA);
+            }
+            for (int i = 0; i < assetsB.size(); i++) {
+                trie.add(assetsB.get(i), modB);
+            }
+            trie.forEachOverlap((assetPath, mods, wildcard) -> conflicts.add(new ModConflict(
+                assetPath, pair, ConflictType.ASSET_CONFLICT, "Both mods modify " + assetPath,
+                !wildcard && VanillaBaseline.getInstance().isVanillaAsset(assetPath))));
+        }
+        
+        int sharedRecords = dataConflictIndex.countSharedRecords(modA, modB);
+        if (sharedRecords > 0) {
+            conflicts.add(new ModConflict(modA + " / " + modB, pair, ConflictType.DATA_CONFLICT,
+                "Both mods define the same " + sharedRecords + " data fields"));
+        }
+        return conflicts;
+    }
+    
+    /**
+     * Registered mods that have at least one exact class, asset or data conflict with a mod.
+     * The pair screen inside getConflictsBetween skips the exact check for almost every pair
+     * that doesn't conflict.
+     */
+    public LIST<String> findConflictingMods(String modId) {
+        ArrayListGrower<String> result = new ArrayListGrower<>();
+        for (String otherId : registeredMods.keySet()) {
+            if (!getConflictsBetween(modId, otherId).isEmpty()) {
+                result.add(otherId);
+            }
+        }
+        return result;
     }
     
     /**
@@ -1962,19 +2332,9 @@ public final class ModRegistry {
      * Declare dependencies on other mods.
      */
     public void declareDependency(String modId, String... dependencyIds) {
-        if (!registeredMods.containsKey(modId)) {
-            System.err.println("sosModHooks: Cannot declare dependency for unregistered mod: " + modId);
-            return;
-        }
-        
-        ArrayListGrower<String> deps = new ArrayListGrower<>();
-        for (String depId : dependencyIds) {
-            deps.add(depId);
-        }
-        
-        dependencies.put(modId, deps);
+        beginDeclarations(modId).dependsOn(dependencyIds).commit();
         
-        System.out.println("sosModHooks: Mod " + modId + " declares " + deps.size() + " dependencies");
+        System.out.println("sosModHooks: Mod " + modId + " declares " + dependencyIds.length + " dependencies");
         for (String depId : dependencyIds) {
             System.out.println("  - " + depId);
         }
@@ -1986,7 +2346,15 @@ public final class ModRegistry {
      */
     public LIST<ModConflict> detectConflicts() {
         ArrayListGrower<ModConflict> conflicts = new ArrayListGrower<>();
-        
+        forEachConflict(conflicts::add);
+        return conflicts;
+    }
+    
+    /**
+     * Run conflict detection and hand each conflict to the visitor as it is found,
+     * without collecting them. Used to stream large reports.
+     */
+    public void forEachConflict(ConflictVisitor conflicts) {
         // Check for class replacement conflicts
         detectClassReplacementConflicts(conflicts);
         
@@ -1998,11 +2366,187 @@ public final class ModRegistry {
         
         // Check for missing dependencies
         detectMissingDependencies(conflicts);
+    }
+    
+    /**
+     * Receives batches of conflict changes. See {@link #addConflictListener}.
+     */
+    public interface ConflictListener {
+        void onConflictEvents(List<ConflictEvent> events);
+    }
+    
+    private static final class ListenerRegistration {
+        final ConflictListener listener;
+        final java.util.concurrent.Executor executor;
         
-        return conflicts;
+        ListenerRegistration(ConflictListener listener, java.util.concurrent.Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+    
+    /**
+     * Get told about added and removed conflicts and newly registered mods.
+     * Batches are delivered on the given executor each time {@link #publishConflictChanges()}
+     * finds a difference. A new listener first gets the current conflicts as added.
+     */
+    public void addConflictListener(ConflictListener listener, java.util.concurrent.Executor executor) {
+        ListenerRegistration registration = new ListenerRegistration(listener, executor);
+        List<ConflictEvent> current = new java.util.ArrayList<>();
+        synchronized (publishedConflicts) {
+            for (ModConflict conflict : publishedConflicts.values()) {
+                current.add(ConflictEvent.added(conflict));
+            }
+            conflictListeners.add(registration);
+        }
+        if (!current.isEmpty()) {
+            deliver(registration, current);
+        }
+    }
+    
+    public void removeConflictListener(ConflictListener listener) {
+        conflictListeners.removeIf(registration -> registration.listener == listener);
+    }
+    
+    /**
+     * Number of conflicts of each {@link ConflictType}, indexed by ordinal, as of the last
+     * {@link #publishConflictChanges()}. Doesn't run conflict detection.
+     */
+    public int[] countPublishedConflicts() {
+        int[] counts = new int[ConflictType.values().length];
+        synchronized (publishedConflicts) {
+            for (ModConflict conflict : publishedConflicts.values()) {
+                counts[conflict.getType().ordinal()]++;
+            }
+        }
+        return counts;
+    }
+    
+    /**
+     * Whether declarations or registrations changed since the last {@link #publishConflictChanges()}.
+     */
+    public boolean hasUnpublishedChanges() {
+        return conflictsChanged;
+    }
+    
+    /**
+     * Re-run conflict detection if anything changed, diff the result against the conflicts
+     * listeners already know about, and deliver the differences in one batch.
+     *
+     * @return the number of events delivered
+     */
+    public int publishConflictChanges() {
+        if (!conflictsChanged || conflictListeners.isEmpty()) {
+            return 0;
+        }
+        conflictsChanged = false;
+        
+        Map<String, ModConflict> current = new HashMap<>();
+        forEachConflict(conflict -> current.put(conflictKey(conflict), conflict));
+        
+        List<ConflictEvent> events = new java.util.ArrayList<>();
+        synchronized (publishedConflicts) {
+            synchronized (pendingEvents) {
+                events.addAll(pendingEvents);
+                pendingEvents.clear();
+            }
+            // Conflicts still present keep the instance listeners were given when it was added,
+            // so a later removal carries that same instance
+            java.util.Iterator<Map.Entry<String, ModConflict>> published = publishedConflicts.entrySet().iterator();
+            while (published.hasNext()) {
+                Map.Entry<String, ModConflict> entry = published.next();
+                if (!current.containsKey(entry.getKey())) {
+                    events.add(ConflictEvent.removed(entry.getValue()));
+                    published.remove();
+                }
+            }
+            for (Map.Entry<String, ModConflict> entry : current.entrySet()) {
+                if (!publishedConflicts.containsKey(entry.getKey())) {
+                    events.add(ConflictEvent.added(entry.getValue()));
+                    publishedConflicts.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        
+        if (!events.isEmpty()) {
+            List<ConflictEvent> batch = java.util.Collections.unmodifiableList(events);
+            for (ListenerRegistration registration : conflictListeners) {
+                deliver(registration, batch);
+            }
+        }
+        return events.size();
+    }
+    
+    /**
+     * Run {@link #publishConflictChanges()} on a background thread, so conflict detection and
+     * the diff never land in a game tick. Listeners still get their batches on their own
+     * executors. Does nothing while an earlier publish is still running; changes made in the
+     * meantime are picked up by the next call.
+     */
+    public void publishConflictChangesInBackground() {
+        if (!conflictsChanged || conflictListeners.isEmpty() || !publishing.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                publishConflictChanges();
+            } catch (Exception e) {
+                System.err.println("sosModHooks: Conflict detection failed: " + e.getMessage());
+            } finally {
+                publishing.set(false);
+            }
+        }, "sosModHooks-conflicts");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
     }
     
-    private void detectClassReplacementConflicts(ArrayListGrower<ModConflict> conflicts) {
+    private void deliver(ListenerRegistration registration, List<ConflictEvent> events) {
+        try {
+            registration.executor.execute(() -> {
+                try {
+                    registration.listener.onConflictEvents(events);
+                } catch (Exception e) {
+                    System.err.println("sosModHooks: Conflict listener failed: " + e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("sosModHooks: Could not deliver conflict events: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Identity of a conflict across detection runs: its type, target and sorted mods.
+     */
+    private static String conflictKey(ModConflict conflict) {
+        String[] mods = new String[conflict.getConflictingMods().size()];
+        for (int i = 0; i < mods.length; i++) {
+            mods[i] = conflict.getConflictingMods().get(i);
+        }
+        java.util.Arrays.sort(mods);
+        return conflict.getType().name() + "|" + conflict.getConflictTarget() + "|" + String.join(",", mods);
+    }
+    
+    private void declarationsChanged(String modId) {
+        pairScreen.invalidate(modId);
+        conflictsChanged = true;
+    }
+    
+    private void modRegistered(String modId) {
+        synchronized (pendingEvents) {
+            pendingEvents.add(ConflictEvent.modRegistered(modId));
+        }
+        conflictsChanged = true;
+    }
+    
+    /**
+     * Receives conflicts from {@link #forEachConflict(ConflictVisitor)}.
+     */
+    public interface ConflictVisitor {
+        void add(ModConflict conflict);
+    }
+    
+    private void detectClassReplacementConflicts(ConflictVisitor conflicts) {
         Map<String, ArrayListGrower<String>> classToMods = new HashMap<>();
         
         // Build reverse mapping: class -> list of mods that replace it
@@ -2021,71 +2565,55 @@ public final class ModRegistry {
             ArrayListGrower<String> mods = entry.getValue();
             
             if (mods.size() > 1) {
+                boolean vanilla = VanillaBaseline.getInstance().isVanillaClass(className);
                 conflicts.add(new ModConflict(
                     className,
                     mods,
                     ConflictType.CLASS_REPLACEMENT,
-                    "Multiple mods replace the same class: " + className
+                    vanilla ? "Multiple mods replace the same base game class: " + className
+                            : "Multiple mods define the same class: " + className,
+                    vanilla
                 ));
             }
         }
     }
     
-    private void detectAssetModificationConflicts(ArrayListGrower<ModConflict> conflicts) {
-        Map<String, ArrayListGrower<String>> assetToMods = new HashMap<>();
-        
-        for (Map.Entry<String, LIST<String>> entry : assetModifications.entrySet()) {
+    private void detectAssetModificationConflicts(ConflictVisitor conflicts) {
+        // A trie so batch declarations like "/data/assets/sprite/*" match other mods' concrete paths
+        AssetPathTrie trie = new AssetPathTrie();
+        for (Map.Entry<String, PathList> entry : assetModifications.entrySet()) {
             String modId = entry.getKey();
-            LIST<String> assets = entry.getValue();
+            PathList assets = entry.getValue();
             
-            for (String assetPath : assets) {
-                assetToMods.computeIfAbsent(assetPath, k -> new ArrayListGrower<String>()).add(modId);
+            for (int i = 0; i < assets.size(); i++) {
+                trie.add(assets.get(i), modId);
             }
         }
         
-        for (Map.Entry<String, ArrayListGrower<String>> entry : assetToMods.entrySet()) {
-            String assetPath = entry.getKey();
-            ArrayListGrower<String> mods = entry.getValue();
-            
-            if (mods.size() > 1) {
-                conflicts.add(new ModConflict(
-                    assetPath,
-                    mods,
-                    ConflictType.ASSET_CONFLICT,
-                    "Multiple mods modify the same asset: " + assetPath
-                ));
+        trie.forEachOverlap((assetPath, mods, wildcard) -> {
+            VanillaBaseline baseline = VanillaBaseline.getInstance();
+            boolean vanilla = wildcard ? baseline.hasVanillaAssetsUnder(assetPath) : baseline.isVanillaAsset(assetPath);
+            String description;
+            if (wildcard) {
+                description = vanilla ? "Multiple mods override base game assets matching: " + assetPath
+                                      : "Multiple mods add assets matching: " + assetPath;
+            } else {
+                description = vanilla ? "Multiple mods override the same base game asset: " + assetPath
+                                      : "Multiple mods add the same new asset: " + assetPath;
             }
-        }
+            conflicts.add(new ModConflict(assetPath, mods, ConflictType.ASSET_CONFLICT, description, vanilla));
+        });
     }
     
-    private void detectDataModificationConflicts(ArrayListGrower<ModConflict> conflicts) {
-        Map<String, ArrayListGrower<String>> dataTypeToMods = new HashMap<>();
-        
-        for (Map.Entry<String, LIST<String>> entry : dataModifications.entrySet()) {
-            String modId = entry.getKey();
-            LIST<String> dataTypes = entry.getValue();
-            
-            for (String dataType : dataTypes) {
-                dataTypeToMods.computeIfAbsent(dataType, k -> new ArrayListGrower<String>()).add(modId);
-            }
-        }
-        
-        for (Map.Entry<String, ArrayListGrower<String>> entry : dataTypeToMods.entrySet()) {
-            String dataType = entry.getKey();
-            ArrayListGrower<String> mods = entry.getValue();
-            
-            if (mods.size() > 1) {
-                conflicts.add(new ModConflict(
-                    dataType,
-                    mods,
-                    ConflictType.DATA_CONFLICT,
-                    "Multiple mods modify the same data type: " + dataType
-                ));
-            }
-        }
+    /**
+     * Data conflicts come from the record-level index, so mods that only touch
+     * the same data type (for example RACE) with different records don't conflict.
+     */
+    private void detectDataModificationConflicts(ConflictVisitor conflicts) {
+        dataConflictIndex.collectConflicts(conflicts);
     }
     
-    private void detectMissingDependencies(ArrayListGrower<ModConflict> conflicts) {
+    private void detectMissingDependencies(ConflictVisitor conflicts) {
         for (Map.Entry<String, LIST<String>> entry : dependencies.entrySet()) {
             String modId = entry.getKey();
             LIST<String> requiredDeps = entry.getValue();
@@ -2193,6 +2721,20 @@ public final class ModRegistry {
         return hasDetectedActiveMods && hasAnalyzedRuntimeEffects;
     }
     
+    /**
+     * Time spent in detectActiveMods, in nanoseconds
+     */
+    public long getDetectionNanos() {
+        return detectionNanos;
+    }
+    
+    /**
+     * Time spent in analyzeRuntimeEffects, in nanoseconds
+     */
+    public long getRuntimeAnalysisNanos() {
+        return runtimeAnalysisNanos;
+    }
+    
     /**
      * Populate a ModAnalysis object with data from the main registry maps.
      */
@@ -2214,23 +2756,38 @@ public final class ModRegistry {
             
             // Populate asset modifications (limit to prevent memory issues)
             if (assetModifications.containsKey(modId)) {
-                LIST<String> assetPaths = assetModifications.get(modId);
+                PathList assetPaths = assetModifications.get(modId);
                 int count = Math.min(assetPaths.size(), 100); // Limit to 100 items
                 for (int i = 0; i < count; i++) {
                     String assetPath = assetPaths.get(i);
-                    AssetModification assetMod = new AssetModification("ASSET", assetPath, "ADDED", false);
+                    String modificationType = VanillaBaseline.getInstance().classifyAsset(assetPath, "ADDED");
+                    AssetModification assetMod = new AssetModification("ASSET", assetPath, modificationType, false);
                     analysis.addAssetModification(assetPath, assetMod);
                     totalAdded++;
                 }
             }
             
+            // Populate file sizes and decoded memory cost of textures and sounds
+            AssetMemoryEstimator.ModAssetCost assetCost = AssetMemoryEstimator.getInstance().getCost(modId);
+            if (assetCost != null) {
+                int count = Math.min(assetCost.getAssetCount(), 100); // Limit to 100 items
+                for (int i = 0; i < count; i++) {
+                    String assetPath = assetCost.getAssetPath(i);
+                    String modificationType = VanillaBaseline.getInstance().classifyAsset(assetPath, "ADDED");
+                    analysis.addFileModification(assetPath, new FileModification(
+                        assetPath, modificationType, assetCost.getFileSize(i), assetCost.getDecodedSize(i)));
+                    totalAdded++;
+                }
+            }
+            
             // Populate class replacements (limit to prevent memory issues)
             if (classReplacements.containsKey(modId)) {
                 LIST<String> classes = classReplacements.get(modId);
                 int count = Math.min(classes.size(), 100); // Limit to 100 items
                 for (int i = 0; i < count; i++) {
                     String className = classes.get(i);
-                    ScriptModification scriptMod = new ScriptModification(className, "REPLACED", "class", true);
+                    String modificationType = VanillaBaseline.getInstance().classifyClass(className, "REPLACED");
+                    ScriptModification scriptMod = new ScriptModification(className, modificationType, "class", true);
                     analysis.addScriptModification(className, scriptMod);
                     totalAdded++;
                 }
@@ -2281,6 +2838,10 @@ public final class ModRegistry {
         final String modName;
         final String modVersion;
         
+        // Where the mod was found on disk and a digest of its files' paths, sizes and times
+        volatile String modPath;
+        volatile long metadataDigest;
+        
         ActiveModInfo(String modId, String modName, String modVersion) {
             this.modId = modId;
             this.modName = modName;
@@ -2296,9 +2857,9 @@ public final class ModRegistry {
         private final String modName;
         private final String modVersion;
         
-        // File system analysis
-        private final Map<String, FileModification> fileModifications;
-        private final Map<String, AssetModification> assetModifications;
+        // File system analysis, keyed by PathStore id
+        private final Map<Integer, FileModification> fileModifications;
+        private final Map<Integer, AssetModification> assetModifications;
         private final Map<String, DataModification> dataModifications;
         private final Map<String, ScriptModification> scriptModifications;
         
@@ -2324,8 +2885,8 @@ public final class ModRegistry {
         public String getModId() { return modId; }
         public String getModName() { return modName; }
         public String getModVersion() { return modVersion; }
-        public Map<String, FileModification> getFileModifications() { return fileModifications; }
-        public Map<String, AssetModification> getAssetModifications() { return assetModifications; }
+        public Map<Integer, FileModification> getFileModifications() { return fileModifications; }
+        public Map<Integer, AssetModification> getAssetModifications() { return assetModifications; }
         public Map<String, DataModification> getDataModifications() { return dataModifications; }
         public Map<String, ScriptModification> getScriptModifications() { return scriptModifications; }
         public Map<String, RuntimeModification> getRuntimeModifications() { return runtimeModifications; }
@@ -2333,11 +2894,11 @@ public final class ModRegistry {
         
         // Add modification methods
         public void addFileModification(String path, FileModification mod) {
-            fileModifications.put(path, mod);
+            fileModifications.put(PathStore.getInstance().intern(path), mod);
         }
         
         public void addAssetModification(String type, AssetModification mod) {
-            assetModifications.put(type, mod);
+            assetModifications.put(PathStore.getInstance().intern(type), mod);
         }
         
         public void addDataModification(String type, DataModification mod) {
@@ -2391,21 +2952,29 @@ public final class ModRegistry {
      * Represents a file modification by a mod
      */
     public static class FileModification {
-        private final String filePath;
+        private final int filePath; // PathStore id
         private final String modificationType; // "ADDED", "MODIFIED", "REPLACED"
         private final long fileSize;
+        private final long decodedSize; // Texture or PCM bytes once loaded, 0 if unknown
         private final String fileHash;
         
         public FileModification(String filePath, String modificationType, long fileSize) {
-            this.filePath = filePath;
+            this(filePath, modificationType, fileSize, 0);
+        }
+        
+        public FileModification(String filePath, String modificationType, long fileSize, long decodedSize) {
+            this.filePath = PathStore.getInstance().intern(filePath);
             this.modificationType = modificationType;
             this.fileSize = fileSize;
+            this.decodedSize = decodedSize;
             this.fileHash = ""; // Could be implemented later for integrity checking
         }
         
-        public String getFilePath() { return filePath; }
+        public String getFilePath() { return PathStore.getInstance().get(filePath); }
+        public int getFilePathId() { return filePath; }
         public String getModificationType() { return modificationType; }
         public long getFileSize() { return fileSize; }
+        public long getDecodedSize() { return decodedSize; }
         public String getFileHash() { return fileHash; }
     }
     
@@ -2414,19 +2983,20 @@ public final class ModRegistry {
      */
     public static class AssetModification {
         private final String assetType; // "SPRITE", "TEXTURE", "SOUND", "MUSIC"
-        private final String assetPath;
+        private final int assetPath; // PathStore id
         private final String modificationType;
         private final boolean isCompleteOverride;
         
         public AssetModification(String assetType, String assetPath, String modificationType, boolean isCompleteOverride) {
             this.assetType = assetType;
-            this.assetPath = assetPath;
+            this.assetPath = PathStore.getInstance().intern(assetPath);
             this.modificationType = modificationType;
             this.isCompleteOverride = isCompleteOverride;
         }
         
         public String getAssetType() { return assetType; }
-        public String getAssetPath() { return assetPath; }
+        public String getAssetPath() { return PathStore.getInstance().get(assetPath); }
+        public int getAssetPathId() { return assetPath; }
         public String getModificationType() { return modificationType; }
         public boolean isCompleteOverride() { return isCompleteOverride; }
     }
@@ -0,0 +1,197 @@
+package sosModHooks;
+
+import snake2d.util.file.FileGetter;
+import snake2d.util.file.FilePutter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Compact description of the active mod set and its conflict state, stored in save games.
+ *
+ * Each mod is reduced to three longs: a hash of its id, a hash of its version and a digest
+ * of its files' paths, sizes and modification times. Conflicts are stored as a count per
+ * {@link ConflictType}, taken from the conflicts the registry last published. Comparing the
+ * fingerprint saved with a game against the current one shows whether the mods changed
+ * since the save was made. Neither capturing nor comparing reads mod files or runs
+ * conflict detection, so both are cheap enough for every save and load.
+ */
+public final class ModSetFingerprint {
+
+    private static final int FORMAT = 0x534D4631;
+
+    private final long[] modIds;
+    private final long[] versions;
+    private final long[] digests;
+    private final int[] conflictCounts;
+
+    private ModSetFingerprint(long[] modIds, long[] versions, long[] digests, int[] conflictCounts) {
+        this.modIds = modIds;
+        this.versions = versions;
+        this.digests = digests;
+        this.conflictCounts = conflictCounts;
+    }
+
+    /**
+     * Fingerprint the registry's active mods, using the digests taken when they were analyzed,
+     * and the conflict counts from {@link ModRegistry#countPublishedConflicts()}.
+     */
+    public static ModSetFingerprint capture(ModRegistry registry) {
+        ModRegistry.ActiveModInfo[] mods = registry.getActiveMods().values().toArray(new ModRegistry.ActiveModInfo[0]);
+        Arrays.sort(mods, (a, b) -> a.modId.compareTo(b.modId));
+
+        long[] modIds = new long[mods.length];
+        long[] versions = new long[mods.length];
+        long[] digests = new long[mods.length];
+        for (int i = 0; i < mods.length; i++) {
+            modIds[i] = BloomFilter.hash(mods[i].modId);
+            versions[i] = BloomFilter.hash(mods[i].modVersion != null ? mods[i].modVersion : "");
+            digests[i] = mods[i].metadataDigest;
+        }
+
+        return new ModSetFingerprint(modIds, versions, digests, registry.countPublishedConflicts());
+    }
+
+    public void write(FilePutter file) {
+        file.i(FORMAT);
+        file.i(modIds.length);
+        for (int i = 0; i < modIds.length; i++) {
+            file.l(modIds[i]);
+            file.l(versions[i]);
+            file.l(digests[i]);
+        }
+        file.i(conflictCounts.length);
+        for (int count : conflictCounts) {
+            file.i(count);
+        }
+    }
+
+    public static ModSetFingerprint read(FileGetter file) throws IOException {
+        if (file.i() != FORMAT) {
+            throw new IOException("Unknown mod set fingerprint format");
+        }
+        int mods = file.i();
+        if (mods < 0 || mods > 100000) {
+            throw new IOException("Corrupt mod set fingerprint");
+        }
+        long[] modIds = new long[mods];
+        long[] versions = new long[mods];
+        long[] digests = new long[mods];
+        for (int i = 0; i < mods; i++) {
+            modIds[i] = file.l();
+            versions[i] = file.l();
+            digests[i] = file.l();
+        }
+        int types = file.i();
+        if (types < 0 || types > 1000) {
+            throw new IOException("Corrupt mod set fingerprint");
+        }
+        int[] conflictCounts = new int[ConflictType.values().length];
+        for (int i = 0; i < types; i++) {
+            int count = file.i();
+            if (i < conflictCounts.length) {
+                conflictCounts[i] = count;
+            }
+        }
+        return new ModSetFingerprint(modIds, versions, digests, conflictCounts);
+    }
+
+    public int getModCount() {
+        return modIds.length;
+    }
+
+    public int getConflictCount() {
+        int total = 0;
+        for (int count : conflictCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Whether both fingerprints describe the same mods, versions and files.
+     */
+    public boolean sameModsAs(ModSetFingerprint other) {
+        return Arrays.equals(modIds, other.modIds)
+            && Arrays.equals(versions, other.versions)
+            && Arrays.equals(digests, other.digests);
+    }
+
+    /**
+     * Describe how this (current) fingerprint differs from an earlier one, one line per difference.
+     */
+    public String describeChangesSince(ModSetFingerprint earlier) {
+        int added = 0;
+        int changed = 0;
+        for (int i = 0; i < modIds.length; i++) {
+            int j = indexOf(earlier.modIds, modIds[i]);
+            if (j < 0) {
+                added++;
+            } else if (versions[i] != earlier.versions[j] || digests[i] != earlier.digests[j]) {
+                changed++;
+            }
+        }
+        int removed = 0;
+        for (long modId : earlier.modIds) {
+            if (indexOf(modIds, modId) < 0) {
+                removed++;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Mods added: ").append(added).append(", removed: ").append(removed).append(", changed: ").append(changed);
+        ConflictType[] types = ConflictType.values();
+        for (int i = 0; i < types.length; i++) {
+            if (conflictCounts[i] != earlier.conflictCounts[i]) {
+                sb.append("\n").append(types[i].getDisplayName()).append(" conflicts: ")
+                  .append(earlier.conflictCounts[i]).append(" -> ").append(conflictCounts[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int indexOf(long[] values, long value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Digest of a mod folder from its files' relative paths, sizes and modification times.
+     * Only file metadata is read, so this is much cheaper than analyzing the mod.
+     */
+    public static long digest(File modDirectory) {
+        Path root = modDirectory.toPath();
+        long[] digest = {0xCBF29CE484222325L};
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    // Order independent, so the directory listing order doesn't matter
+                    long h = BloomFilter.hash(root.relativize(file).toString().replace('\\', '/'));
+                    h = (h ^ attrs.size()) * 0x100000001B3L;
+                    h = (h ^ attrs.lastModifiedTime().toMillis()) * 0x100000001B3L;
+                    digest[0] += h ^ (h >>> 29);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // Silently fail - an unreadable folder just gets the empty digest
+        }
+        return digest[0];
+    }
+}
@@ -0,0 +1,96 @@
+package sosModHooks;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * List of paths held as ids into the {@link PathStore}.
+ *
+ * Costs four bytes of heap per path. {@link #get(int)} decodes the path on demand,
+ * so callers that only compare or count paths should use {@link #getId(int)}.
+ */
+public final class PathList implements Iterable<String> {
+
+    private final PathStore store;
+    private int[] ids = new int[8];
+    private int size = 0;
+
+    public PathList() {
+        this(PathStore.getInstance());
+    }
+
+    public PathList(PathStore store) {
+        this.store = store;
+    }
+
+    public void add(String path) {
+        addId(store.intern(path));
+    }
+
+    /**
+     * Add a path already interned in this list's store.
+     */
+    void addId(int id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String get(int index) {
+        return store.get(getId(index));
+    }
+
+    public int getId(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index + " of " + size);
+        }
+        return ids[index];
+    }
+
+    public PathStore getStore() {
+        return store;
+    }
+
+    public boolean contains(String path) {
+        int id = store.find(path);
+        if (id < 0) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+}
@@ -0,0 +1,242 @@
+package sosModHooks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interned, append-only store of asset and file paths kept outside the Java heap.
+ *
+ * Paths are stored as UTF-8 in direct buffers. Each entry only stores the bytes that
+ * differ from the previous entry (front coding), since paths found by a folder walk
+ * mostly share their directory. Every 16th entry is stored in full so reading a path
+ * decodes at most 16 entries. Per path the heap only holds an offset and a hash, and
+ * callers keep the int id instead of a String.
+ *
+ * All methods are synchronized, so mods can be analyzed in parallel. Entries are never
+ * removed; a re-analyzed mod gets its old ids back because paths are interned.
+ */
+public final class PathStore {
+
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int RESTART_INTERVAL = 16;
+    // Two 5-byte varints in front of the suffix
+    private static final int MAX_HEADER = 10;
+
+    private static final PathStore instance = new PathStore();
+
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+    private int chunkCount = 0;
+    private int writePosition = CHUNK_SIZE;
+
+    private int[] offsets = new int[1024];
+    private long[] hashes = new long[1024];
+    private int size = 0;
+
+    // Open addressing table of id + 1, 0 marks a free slot
+    private int[] table = new int[2048];
+
+    private byte[] previous = new byte[256];
+    private int previousLength = 0;
+    private byte[] decoded = new byte[256];
+    private long rawBytes = 0;
+
+    public static PathStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the id of a path, storing it if it has not been seen before.
+     */
+    public synchronized int intern(String path) {
+        long hash = BloomFilter.hash(path);
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(hash, bytes);
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+
+        int id = append(bytes, hash);
+        table[slot] = id + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of a path, or -1 if it was never interned.
+     */
+    public synchronized int find(String path) {
+        int slot = findSlot(BloomFilter.hash(path), path.getBytes(StandardCharsets.UTF_8));
+        return table[slot] - 1;
+    }
+
+    public synchronized String get(int id) {
+        int length = decode(id);
+        return new String(decoded, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hash of a path, equal to {@link BloomFilter#hash} of its String.
+     */
+    public synchronized long hash(int id) {
+        return hashes[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Off-heap bytes in use, including the unused tail of the current chunk.
+     */
+    public synchronized long getStoredBytes() {
+        return (long) chunkCount * CHUNK_SIZE;
+    }
+
+    /**
+     * Total UTF-8 length of all stored paths before front coding.
+     */
+    public synchronized long getRawBytes() {
+        return rawBytes;
+    }
+
+    private int findSlot(long hash, byte[] bytes) {
+        int mask = table.length - 1;
+        int slot = (int) hash & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash) {
+                int length = decode(id);
+                if (length == bytes.length && equalsDecoded(bytes)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean equalsDecoded(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (decoded[i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int[] grown = new int[table.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = (int) hashes[id] & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        table = grown;
+    }
+
+    private int append(byte[] bytes, long hash) {
+        if (bytes.length > CHUNK_SIZE - MAX_HEADER) {
+            throw new IllegalArgumentException("Path too long: " + bytes.length + " bytes");
+        }
+
+        int shared = 0;
+        if (size % RESTART_INTERVAL != 0) {
+            int limit = Math.min(previousLength, bytes.length);
+            while (shared < limit && previous[shared] == bytes[shared]) {
+                shared++;
+            }
+        }
+        int suffix = bytes.length - shared;
+
+        // Entries never span chunks, so a read only ever touches one buffer
+        if (writePosition + MAX_HEADER + suffix > CHUNK_SIZE) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            chunks[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            writePosition = 0;
+        }
+
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        offsets[id] = ((chunkCount - 1) << CHUNK_BITS) | writePosition;
+        hashes[id] = hash;
+
+        ByteBuffer chunk = chunks[chunkCount - 1];
+        writePosition = writeVarint(chunk, writePosition, shared);
+        writePosition = writeVarint(chunk, writePosition, suffix);
+        for (int i = shared; i < bytes.length; i++) {
+            chunk.put(writePosition++, bytes[i]);
+        }
+
+        if (previous.length < bytes.length) {
+            previous = Arrays.copyOf(previous, bytes.length * 2);
+        }
+        System.arraycopy(bytes, 0, previous, 0, bytes.length);
+        previousLength = bytes.length;
+        rawBytes += bytes.length;
+        return id;
+    }
+
+    /**
+     * Decode a path into the shared buffer, starting at its restart point.
+     *
+     * @return the path's length in bytes
+     */
+    private int decode(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Path id " + id + " of " + size);
+        }
+        int length = 0;
+        for (int entry = id - id % RESTART_INTERVAL; entry <= id; entry++) {
+            int offset = offsets[entry];
+            ByteBuffer chunk = chunks[offset >>> CHUNK_BITS];
+            int position = offset & CHUNK_MASK;
+
+            int shared = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = chunk.get(position++);
+                shared |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int suffix = 0;
+            shift = 0;
+            do {
+                b = chunk.get(position++);
+                suffix |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            length = shared + suffix;
+            if (decoded.length < length) {
+                decoded = Arrays.copyOf(decoded, length * 2);
+            }
+            for (int i = shared; i < length; i++) {
+                decoded[i] = chunk.get(position++);
+            }
+        }
+        return length;
+    }
+
+    private static int writeVarint(ByteBuffer chunk, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            chunk.put(position++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        chunk.put(position++, (byte) value);
+        return position;
+    }
+}
@@ -0,0 +1,157 @@
+package sosModHooks;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Finds objects of one type inside the game's script engine and replaces them, so scripts
+ * and script instances can be wrapped without the engine's cooperation.
+ *
+ * Objects are found in the engine's own fields, in lists and arrays it holds, and one level
+ * down in the fields of the objects those collections hold. Lists and arrays are written
+ * in place, which doesn't disturb a loop the engine may be running over them.
+ */
+final class ScriptEngineWalker {
+
+    private ScriptEngineWalker() {
+    }
+
+    /**
+     * The game's script engine, from GAME.script() once a game exists and from a static
+     * field of ScriptEngine before that. Null if neither is there.
+     */
+    static Object findScriptEngine() {
+        try {
+            Class<?> game = Class.forName("game.GAME");
+            Method script = game.getMethod("script");
+            Object engine = script.invoke(null);
+            if (engine != null) {
+                return engine;
+            }
+        } catch (Exception e) {
+            // No game yet
+        }
+        try {
+            Class<?> engineClass = Class.forName("script.ScriptEngine");
+            for (Field field : engineClass.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && engineClass.isAssignableFrom(field.getType())) {
+                    field.setAccessible(true);
+                    Object engine = field.get(null);
+                    if (engine != null) {
+                        return engine;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Not available in this game version
+        }
+        return null;
+    }
+
+    /**
+     * Replace every object of the given type in the engine with what the wrapper returns.
+     * The wrapper returns its argument for objects that should stay as they are.
+     *
+     * @return the number of objects replaced, or -1 if there is no engine
+     */
+    static <T> int replaceAll(Object engine, Class<T> type, UnaryOperator<T> wrapper) {
+        if (engine == null) {
+            return -1;
+        }
+        int replaced = 0;
+        try {
+            for (Field field : instanceFields(engine.getClass())) {
+                replaced += replaceValue(engine, field, field.get(engine), type, wrapper, true);
+            }
+        } catch (Exception e) {
+            System.err.println("sosModHooks: Error walking script engine: " + e.getMessage());
+        }
+        return replaced;
+    }
+
+    private static <T> int replaceValue(Object holder, Field field, Object value, Class<T> type,
+                                        UnaryOperator<T> wrapper, boolean descend) throws Exception {
+        if (value == null) {
+            return 0;
+        }
+        if (type.isInstance(value)) {
+            T replacement = wrapper.apply(type.cast(value));
+            if (replacement == value) {
+                return 0;
+            }
+            field.set(holder, replacement);
+            return 1;
+        }
+        if (!descend) {
+            return 0;
+        }
+
+        int replaced = 0;
+        if (value instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<Object> list = (List<Object>) value;
+            for (int i = 0; i < list.size(); i++) {
+                Object element = list.get(i);
+                if (type.isInstance(element)) {
+                    T replacement = wrapper.apply(type.cast(element));
+                    if (replacement != element) {
+                        list.set(i, replacement);
+                        replaced++;
+                    }
+                } else {
+                    replaced += replaceInFields(element, type, wrapper);
+                }
+            }
+        } else if (value.getClass().isArray() && !value.getClass().getComponentType().isPrimitive()) {
+            for (int i = 0; i < Array.getLength(value); i++) {
+                Object element = Array.get(value, i);
+                if (type.isInstance(element)) {
+                    T replacement = wrapper.apply(type.cast(element));
+                    if (replacement != element) {
+                        Array.set(value, i, replacement);
+                        replaced++;
+                    }
+                } else {
+                    replaced += replaceInFields(element, type, wrapper);
+                }
+            }
+        } else if (value instanceof Iterable) {
+            // Other collections can't be written back, but their elements' fields can
+            for (Object element : (Iterable<?>) value) {
+                replaced += replaceInFields(element, type, wrapper);
+            }
+        }
+        return replaced;
+    }
+
+    private static <T> int replaceInFields(Object holder, Class<T> type, UnaryOperator<T> wrapper) throws Exception {
+        if (holder == null || holder.getClass().getName().startsWith("java.")) {
+            return 0;
+        }
+        int replaced = 0;
+        for (Field field : instanceFields(holder.getClass())) {
+            if (type.isAssignableFrom(field.getType()) || field.getType() == Object.class) {
+                replaced += replaceValue(holder, field, field.get(holder), type, wrapper, false);
+            }
+        }
+        return replaced;
+    }
+
+    private static List<Field> instanceFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,295 @@
+package sosModHooks;
+
+import script.SCRIPT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Startup cost of every mod's {@link SCRIPT}: initBeforeGameCreated, initBeforeGameInited
+ * and createInstance.
+ *
+ * Off unless sosModHooks.scripts.initTiming=true. {@link #install()} runs from our own
+ * initBeforeGameCreated and replaces the other scripts in the engine with timing wrappers,
+ * so every later init call goes through a wrapper. Scripts the engine initialized before
+ * ours have no measurement for the first phase. Each measured call is also a span in the
+ * {@link StartupTracer}, so the startup trace shows the mods side by side.
+ *
+ * The phases run again for every game started or loaded. Each mod keeps the time of its most
+ * recent call per phase, so the ranking shows the cost of one start however long the session.
+ */
+public final class ScriptInitTimer {
+
+    private static ScriptInitTimer instance;
+
+    private final boolean enabled = ModHooksConfig.getInstance().getBoolean("sosModHooks.scripts.initTiming", false);
+    private final Map<String, ModInitCost> costs = new LinkedHashMap<>();
+    private boolean installed = false;
+    private List<ModInitCost> ranking = Collections.emptyList();
+    // Set by every measured call, so the ranking is only sorted again after init work ran
+    private volatile boolean rankingStale = false;
+
+    private ScriptInitTimer() {
+    }
+
+    public static synchronized ScriptInitTimer getInstance() {
+        if (instance == null) {
+            instance = new ScriptInitTimer();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Wrap the other mods' scripts. Does nothing when init timing is off or already installed.
+     *
+     * @return the number of scripts wrapped
+     */
+    public synchronized int install() {
+        if (!enabled || installed) {
+            return 0;
+        }
+        installed = true;
+
+        int wrapped = ScriptEngineWalker.replaceAll(ScriptEngineWalker.findScriptEngine(), SCRIPT.class, this::wrap);
+        if (wrapped < 0) {
+            System.out.println("sosModHooks: Script engine not found, init timing unavailable");
+            return 0;
+        }
+        System.out.println("sosModHooks: Timing init phases of " + wrapped + " scripts");
+        return wrapped;
+    }
+
+    private SCRIPT wrap(SCRIPT script) {
+        if (script instanceof MainScript || script instanceof TimedScript) {
+            return script;
+        }
+        String modId = ClassLoadMonitor.getInstance().findModFor(script.getClass());
+        if (modId == null) {
+            modId = script.getClass().getName();
+        }
+        ModInitCost cost = costs.get(modId);
+        if (cost == null) {
+            cost = new ModInitCost(modId, costs.size(), String.valueOf(script.name()));
+            costs.put(modId, cost);
+            rankingStale = true;
+        }
+        return new TimedScript(script, cost);
+    }
+
+    public synchronized ModInitCost getCost(String modId) {
+        return costs.get(modId);
+    }
+
+    /**
+     * All timed mods, slowest total startup first. Sorted again only when init calls were
+     * measured since the last call, so the overlay can ask every frame.
+     */
+    public synchronized List<ModInitCost> getRanking() {
+        if (rankingStale) {
+            rankingStale = false;
+            List<ModInitCost> sorted = new ArrayList<>(costs.values());
+            sorted.sort((a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+            for (int i = 0; i < sorted.size(); i++) {
+                sorted.get(i).rank = i + 1;
+            }
+            ranking = Collections.unmodifiableList(sorted);
+        }
+        return ranking;
+    }
+
+    /**
+     * 1-based position of a mod in {@link #getRanking()}, or 0 if it wasn't timed.
+     */
+    public synchronized int getRank(String modId) {
+        ModInitCost cost = costs.get(modId);
+        if (cost == null) {
+            return 0;
+        }
+        getRanking();
+        return cost.rank;
+    }
+
+    /**
+     * Log the slowest mods' startup cost.
+     */
+    public void printRanking() {
+        List<ModInitCost> ranking = getRanking();
+        if (ranking.isEmpty()) {
+            return;
+        }
+        System.out.println("sosModHooks: Slowest mod startup (created / inited / instance, ms):");
+        for (int i = 0; i < ranking.size() && i < 10; i++) {
+            ModInitCost cost = ranking.get(i);
+            String created = millis(cost.getCreatedNanos());
+            System.out.println("sosModHooks:   " + (i + 1) + ". " + cost.getModId() + ": "
+                + (created.isEmpty() ? "-" : created) + " / " + millis(cost.getInitedNanos()) + " / "
+                + millis(cost.getInstanceNanos()));
+        }
+    }
+
+    /**
+     * Write the ranking to a new CSV file in the output directory.
+     *
+     * @return the written file, or null if there was nothing to write or writing failed
+     */
+    public File export() {
+        if (costs.isEmpty()) {
+            return null;
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = new File(ModHooksFiles.getOutputDirectory(), "startup-costs-" + stamp + ".csv");
+        try {
+            writeCsv(file);
+            System.out.println("sosModHooks: Startup costs written to " + file.getPath());
+            return file;
+        } catch (IOException e) {
+            System.err.println("sosModHooks: Error writing startup costs: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * One row per mod, slowest first. Phases that weren't measured are left empty.
+     */
+    public void writeCsv(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("rank,mod_id,script,engine_order,init_before_game_created_ms,init_before_game_inited_ms,create_instance_ms,total_ms");
+            int rank = 1;
+            for (ModInitCost cost : getRanking()) {
+                out.println(rank++ + "," + csv(cost.getModId()) + "," + csv(cost.getScriptName()) + "," + cost.getOrder() + ","
+                    + millis(cost.getCreatedNanos()) + "," + millis(cost.getInitedNanos()) + ","
+                    + millis(cost.getInstanceNanos()) + "," + millis(cost.getTotalNanos()));
+            }
+        }
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "" : String.format(java.util.Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Forwards to a mod's script and times its init calls.
+     */
+    private static final class TimedScript implements SCRIPT {
+        private final SCRIPT target;
+        private final ModInitCost cost;
+
+        TimedScript(SCRIPT target, ModInitCost cost) {
+            this.target = target;
+            this.cost = cost;
+        }
+
+        @Override
+        public CharSequence name() {
+            return target.name();
+        }
+
+        @Override
+        public CharSequence desc() {
+            return target.desc();
+        }
+
+        @Override
+        public void initBeforeGameCreated() {
+            String span = cost.getModId() + " initBeforeGameCreated";
+            StartupTracer.getInstance().begin(span);
+            long start = System.nanoTime();
+            try {
+                target.initBeforeGameCreated();
+            } finally {
+                cost.createdNanos = System.nanoTime() - start;
+                cost.createdMissed = false;
+                getInstance().rankingStale = true;
+                StartupTracer.getInstance().end(span);
+            }
+        }
+
+        @Override
+        public void initBeforeGameInited() {
+            String span = cost.getModId() + " initBeforeGameInited";
+            StartupTracer.getInstance().begin(span);
+            long start = System.nanoTime();
+            try {
+                target.initBeforeGameInited();
+            } finally {
+                cost.initedNanos = System.nanoTime() - start;
+                getInstance().rankingStale = true;
+                StartupTracer.getInstance().end(span);
+            }
+        }
+
+        @Override
+        public boolean isSelectable() {
+            return target.isSelectable();
+        }
+
+        @Override
+        public boolean forceInit() {
+            return target.forceInit();
+        }
+
+        @Override
+        public SCRIPT_INSTANCE createInstance() {
+            String span = cost.getModId() + " createInstance";
+            StartupTracer.getInstance().begin(span);
+            long start = System.nanoTime();
+            try {
+                return target.createInstance();
+            } finally {
+                cost.instanceNanos = System.nanoTime() - start;
+                getInstance().rankingStale = true;
+                StartupTracer.getInstance().end(span);
+            }
+        }
+    }
+
+    /**
+     * Time one mod's script spent in each init phase the last time it ran.
+     */
+    public static final class ModInitCost {
+        private final String modId;
+        private final int order;
+        private final String scriptName;
+        private long createdNanos = 0;
+        private long initedNanos = 0;
+        private long instanceNanos = 0;
+        // Cleared when initBeforeGameCreated runs through the wrapper; scripts before ours never do
+        private boolean createdMissed = true;
+        private int rank = 0;
+
+        ModInitCost(String modId, int order, String scriptName) {
+            this.modId = modId;
+            this.order = order;
+            this.scriptName = scriptName;
+        }
+
+        public String getModId() { return modId; }
+        /** Position of the script in the engine, counting timed scripts only. */
+        public int getOrder() { return order; }
+        public String getScriptName() { return scriptName; }
+        /** Nanos in initBeforeGameCreated, or -1 if it ran before timing was installed. */
+        public long getCreatedNanos() { return createdMissed ? -1 : createdNanos; }
+        public long getInitedNanos() { return initedNanos; }
+        public long getInstanceNanos() { return instanceNanos; }
+        public long getTotalNanos() { return Math.max(0, getCreatedNanos()) + initedNanos + instanceNanos; }
+    }
+}
@@ -0,0 +1,702 @@
+package sosModHooks;
+
+import script.SCRIPT;
+import snake2d.Renderer;
+import snake2d.util.datatypes.COORDINATE;
+import snake2d.util.file.FileGetter;
+import snake2d.util.file.FilePutter;
+import util.gui.misc.GBox;
+import view.keyboard.KEYS;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-mod cost of the script instances the game runs every frame.
+ *
+ * Off unless sosModHooks.scripts.profile=true; when off nothing is wrapped and the game calls
+ * the instances directly. When on, {@link #install()} finds the script engine with {@link ScriptEngineWalker} and
+ * swaps every mod's {@link SCRIPT} for one whose createInstance returns a wrapper around the
+ * mod's {@link SCRIPT.SCRIPT_INSTANCE}, so the instances of every new or loaded game are wrapped
+ * from the start. The wrapper times update, render and hover with System.nanoTime. Call times go into fixed log-scale histograms of primitive
+ * counters, so recording allocates nothing. {@link #endFrame()} closes a frame and keeps each
+ * mod's worst frame total.
+ *
+ * With sosModHooks.scripts.saveCost=true the same wrappers time save and load and measure the
+ * bytes each instance writes or reads, by reading the position of the game's FilePutter or
+ * FileGetter before and after the call. Sizes are unknown in game versions without a position
+ * to read. Instances are wrapped when they are created, so the load of the save a game starts
+ * from is measured too. The last saves and loads of every mod are kept as a
+ * rolling history. Either setting installs the wrappers; call timing stays off unless
+ * sosModHooks.scripts.profile is set.
+ *
+ * With sosModHooks.scripts.breaker=true, update and render of every mod go through an
+ * {@link ExceptionBreaker}: a mod that keeps throwing is skipped for a while instead of
+ * failing every frame. Anything it throws, errors included, reaches the game as before until
+ * the breaker opens.
+ *
+ * Mods listed in sosModHooks.throttle.mods get their update throttled as described in
+ * {@link UpdateThrottle}, which also installs the wrappers.
+ *
+ * Only the methods of SCRIPT_INSTANCE known at compile time are forwarded; everything runs on
+ * the game thread.
+ */
+public final class ScriptProfiler {
+
+    private static ScriptProfiler instance;
+
+    private final boolean profileCalls = ModHooksConfig.getInstance().getBoolean("sosModHooks.scripts.profile", false);
+    private final boolean profileSaves = ModHooksConfig.getInstance().getBoolean("sosModHooks.scripts.saveCost", false);
+    private final boolean guardErrors = ModHooksConfig.getInstance().getBoolean("sosModHooks.scripts.breaker", false);
+    private final Map<String, ModScriptCost> costs = new LinkedHashMap<>();
+    private volatile ModScriptCost[] costArray = new ModScriptCost[0];
+    // Throttled instances of the running game, refreshed on its first tick
+    private final List<TimedInstance> throttled = new ArrayList<>();
+    private boolean installed = false;
+    private volatile boolean savesToReport = false;
+    private volatile boolean loadsToReport = false;
+
+    private ScriptProfiler() {
+    }
+
+    public static synchronized ScriptProfiler getInstance() {
+        if (instance == null) {
+            instance = new ScriptProfiler();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return profileCalls || profileSaves || guardErrors || UpdateThrottle.isAnyThrottled();
+    }
+
+    public boolean isProfilingCalls() {
+        return profileCalls;
+    }
+
+    /**
+     * Replace the scripts of all mods so the instances they create are wrapped. Runs from our
+     * own initBeforeGameCreated, before the first game creates its instances. Does nothing when
+     * profiling is off or the scripts are already replaced.
+     *
+     * @return the number of scripts replaced
+     */
+    public synchronized int install() {
+        if (!isEnabled() || installed) {
+            return 0;
+        }
+        installed = true;
+
+        int wrapped = ScriptEngineWalker.replaceAll(ScriptEngineWalker.findScriptEngine(), SCRIPT.class, this::wrapScript);
+        if (wrapped < 0) {
+            System.out.println("sosModHooks: Script engine not found, script profiling unavailable");
+            return 0;
+        }
+        System.out.println("sosModHooks: Profiling the script instances of " + wrapped + " scripts");
+        return wrapped;
+    }
+
+    /**
+     * Wrap the running game's instances that weren't created through a replaced script, as
+     * when the engine couldn't be reached at startup, and note which of them are throttled.
+     * Called on the first tick of every game; instances that are already wrapped are left alone.
+     *
+     * @return the number of instances wrapped
+     */
+    public synchronized int wrapInstances() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        throttled.clear();
+        int wrapped = ScriptEngineWalker.replaceAll(ScriptEngineWalker.findScriptEngine(), SCRIPT.SCRIPT_INSTANCE.class, target -> {
+            SCRIPT.SCRIPT_INSTANCE instance = wrap(target);
+            if (instance instanceof TimedInstance && ((TimedInstance) instance).throttle != null) {
+                throttled.add((TimedInstance) instance);
+            }
+            return instance;
+        });
+        if (wrapped > 0) {
+            System.out.println("sosModHooks: Profiling " + wrapped + " script instances created before profiling was installed");
+        }
+        return Math.max(0, wrapped);
+    }
+
+    /**
+     * Pass the time of skipped ticks on to every throttled instance of the running game, so
+     * the state they save includes it. Called by the first save of a save pass, before any
+     * mod's state is written; later saves of the pass find nothing pending.
+     */
+    public synchronized void flushPendingUpdates() {
+        for (int i = 0; i < throttled.size(); i++) {
+            throttled.get(i).flushPending();
+        }
+    }
+
+    /**
+     * Close the current frame. Called once per frame by the framework.
+     */
+    public void endFrame() {
+        for (ModScriptCost cost : costArray) {
+            cost.endFrame();
+        }
+        if (savesToReport || loadsToReport) {
+            reportIo();
+        }
+    }
+
+    /**
+     * Log the cost of the save or load that just finished, most expensive mods first.
+     */
+    private synchronized void reportIo() {
+        for (int pass = 0; pass < 2; pass++) {
+            boolean saves = pass == 0;
+            if (saves ? !savesToReport : !loadsToReport) {
+                continue;
+            }
+            List<ModScriptCost> involved = new ArrayList<>();
+            long totalNanos = 0;
+            long totalBytes = 0;
+            for (ModScriptCost cost : costs.values()) {
+                IoHistory history = saves ? cost.saves : cost.loads;
+                if (history.pending) {
+                    history.pending = false;
+                    involved.add(cost);
+                    totalNanos += history.getLastNanos();
+                    totalBytes += Math.max(0, history.getLastBytes());
+                }
+            }
+            involved.sort((a, b) -> Long.compare((saves ? b.saves : b.loads).getLastNanos(), (saves ? a.saves : a.loads).getLastNanos()));
+            System.out.println("sosModHooks: " + (saves ? "Save" : "Load") + " spent " + (totalNanos / 1_000_000) + " ms and "
+                + (totalBytes / 1024) + " KB in " + involved.size() + " mods");
+            for (int i = 0; i < involved.size() && i < 5; i++) {
+                IoHistory history = saves ? involved.get(i).saves : involved.get(i).loads;
+                System.out.println("sosModHooks:   " + involved.get(i).getModId() + ": " + (history.getLastNanos() / 1_000_000) + " ms, "
+                    + (history.getLastBytes() < 0 ? "unknown size" : (history.getLastBytes() / 1024) + " KB"));
+            }
+        }
+        savesToReport = false;
+        loadsToReport = false;
+    }
+
+    public synchronized ModScriptCost getCost(String modId) {
+        return costs.get(modId);
+    }
+
+    /**
+     * Costs of all profiled mods, most expensive per frame first.
+     */
+    public synchronized List<ModScriptCost> getCosts() {
+        List<ModScriptCost> sorted = new ArrayList<>(costs.values());
+        sorted.sort((a, b) -> Long.compare(b.getMeanFrameNanos(), a.getMeanFrameNanos()));
+        return Collections.unmodifiableList(sorted);
+    }
+
+    private SCRIPT wrapScript(SCRIPT script) {
+        if (script instanceof MainScript || script instanceof ProfiledScript) {
+            return script;
+        }
+        return new ProfiledScript(script);
+    }
+
+    private synchronized SCRIPT.SCRIPT_INSTANCE wrap(SCRIPT.SCRIPT_INSTANCE target) {
+        // Our own instance does the bookkeeping and is left alone
+        if (target == null || target instanceof TimedInstance || target instanceof ModCompatibilityFramework.CompatibilityFrameworkInstance) {
+            return target;
+        }
+        String modId = ClassLoadMonitor.getInstance().findModFor(target.getClass());
+        if (modId == null) {
+            modId = target.getClass().getName();
+        }
+        ModScriptCost cost = costs.get(modId);
+        if (cost == null) {
+            cost = new ModScriptCost(modId);
+            costs.put(modId, cost);
+            costArray = costs.values().toArray(new ModScriptCost[0]);
+        }
+        UpdateThrottle throttle = UpdateThrottle.forMod(modId);
+        if (throttle != null) {
+            cost.throttles.add(throttle);
+            System.out.println("sosModHooks: Throttling updates of " + modId);
+        }
+        return new TimedInstance(target, cost, profileCalls, profileSaves, throttle, guardErrors);
+    }
+
+    /**
+     * Log how many updates throttling skipped and the frame time that saved.
+     */
+    public synchronized void printThrottleSummary() {
+        for (ModScriptCost cost : costs.values()) {
+            if (!cost.throttles.isEmpty()) {
+                System.out.println("sosModHooks: Throttled " + cost.getModId() + ": " + cost.getSkippedUpdates() + " of "
+                    + (cost.getSkippedUpdates() + cost.getThrottledRuns()) + " updates skipped, ~"
+                    + (cost.getRecoveredNanos() / 1_000_000) + " ms recovered");
+            }
+        }
+    }
+
+    /**
+     * Position of a FilePutter in bytes, or -1 if it can't be read.
+     */
+    static long positionOf(FilePutter file) {
+        return readPosition(PUTTER_POSITION, file);
+    }
+
+    /**
+     * Position of a FileGetter in bytes, or -1 if it can't be read.
+     */
+    static long positionOf(FileGetter file) {
+        return readPosition(GETTER_POSITION, file);
+    }
+
+    private static final Method PUTTER_POSITION = positionMethod(FilePutter.class);
+    private static final Method GETTER_POSITION = positionMethod(FileGetter.class);
+
+    /**
+     * The game's own getPosition() of a file class. Sizes are reported as unknown when this
+     * game version doesn't have it; nothing else is guessed at.
+     */
+    private static Method positionMethod(Class<?> type) {
+        try {
+            Method method = type.getMethod("getPosition");
+            if (method.getReturnType() == int.class || method.getReturnType() == long.class) {
+                return method;
+            }
+        } catch (NoSuchMethodException | SecurityException e) {
+            // Not in this game version
+        }
+        return null;
+    }
+
+    private static long readPosition(Method method, Object file) {
+        if (method == null || file == null) {
+            return -1;
+        }
+        try {
+            return ((Number) method.invoke(file)).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Forwards to a mod's script and wraps every instance it creates.
+     */
+    private static final class ProfiledScript implements SCRIPT {
+        private final SCRIPT target;
+
+        ProfiledScript(SCRIPT target) {
+            this.target = target;
+        }
+
+        @Override
+        public CharSequence name() {
+            return target.name();
+        }
+
+        @Override
+        public CharSequence desc() {
+            return target.desc();
+        }
+
+        @Override
+        public void initBeforeGameCreated() {
+            target.initBeforeGameCreated();
+        }
+
+        @Override
+        public void initBeforeGameInited() {
+            target.initBeforeGameInited();
+        }
+
+        @Override
+        public boolean isSelectable() {
+            return target.isSelectable();
+        }
+
+        @Override
+        public boolean forceInit() {
+            return target.forceInit();
+        }
+
+        @Override
+        public SCRIPT_INSTANCE createInstance() {
+            return getInstance().wrap(target.createInstance());
+        }
+    }
+
+    /**
+     * Forwards to a mod's instance and times the per-frame calls.
+     */
+    private static final class TimedInstance implements SCRIPT.SCRIPT_INSTANCE {
+        private final SCRIPT.SCRIPT_INSTANCE target;
+        private final ModScriptCost cost;
+        private final boolean timeCalls;
+        private final boolean timeSaves;
+        private final UpdateThrottle throttle;
+        private final ExceptionBreaker updateBreaker;
+        private final ExceptionBreaker renderBreaker;
+
+        TimedInstance(SCRIPT.SCRIPT_INSTANCE target, ModScriptCost cost, boolean timeCalls, boolean timeSaves,
+                      UpdateThrottle throttle, boolean guardErrors) {
+            this.target = target;
+            this.cost = cost;
+            this.timeCalls = timeCalls;
+            this.timeSaves = timeSaves;
+            this.throttle = throttle;
+            this.updateBreaker = guardErrors ? ExceptionBreaker.get(cost.getModId() + " update") : null;
+            this.renderBreaker = guardErrors ? ExceptionBreaker.get(cost.getModId() + " render") : null;
+        }
+
+        @Override
+        public void update(double ds) {
+            if (updateBreaker == null) {
+                runUpdate(ds);
+                return;
+            }
+            if (!updateBreaker.allows()) {
+                return;
+            }
+            try {
+                runUpdate(ds);
+                updateBreaker.recordSuccess();
+            } catch (Throwable e) {
+                // Errors count too; only an open breaker swallows them
+                if (updateBreaker.recordFailure(e)) {
+                    throw e;
+                }
+            }
+        }
+
+        private void runUpdate(double ds) {
+            if (throttle != null) {
+                if (throttle.skip(ds)) {
+                    return;
+                }
+                ds = throttle.takeDelta(ds);
+            } else if (!timeCalls) {
+                target.update(ds);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                target.update(ds);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                if (timeCalls) {
+                    cost.record(cost.update, nanos);
+                }
+                if (throttle != null) {
+                    throttle.ran(nanos);
+                }
+            }
+        }
+
+        @Override
+        public void render(Renderer r, float ds) {
+            if (renderBreaker == null) {
+                runRender(r, ds);
+                return;
+            }
+            if (!renderBreaker.allows()) {
+                return;
+            }
+            try {
+                runRender(r, ds);
+                renderBreaker.recordSuccess();
+            } catch (Throwable e) {
+                if (renderBreaker.recordFailure(e)) {
+                    throw e;
+                }
+            }
+        }
+
+        private void runRender(Renderer r, float ds) {
+            if (!timeCalls) {
+                target.render(r, ds);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                target.render(r, ds);
+            } finally {
+                cost.record(cost.render, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void hover(COORDINATE mCoo, boolean mouseHasMoved) {
+            if (!timeCalls) {
+                target.hover(mCoo, mouseHasMoved);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                target.hover(mCoo, mouseHasMoved);
+            } finally {
+                cost.record(cost.hover, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void hoverTimer(double mouseTimer, GBox text) {
+            if (!timeCalls) {
+                target.hoverTimer(mouseTimer, text);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                target.hoverTimer(mouseTimer, text);
+            } finally {
+                cost.record(cost.hover, System.nanoTime() - start);
+            }
+        }
+
+        void flushPending() {
+            if (throttle != null && throttle.hasPending()) {
+                target.update(throttle.takeDelta(0));
+            }
+        }
+
+        @Override
+        public void save(snake2d.util.file.FilePutter file) {
+            // Saved state must include the time of skipped ticks, of all mods before any saves
+            getInstance().flushPendingUpdates();
+            if (!timeSaves) {
+                target.save(file);
+                return;
+            }
+            long before = positionOf(file);
+            long start = System.nanoTime();
+            try {
+                target.save(file);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                long after = positionOf(file);
+                cost.saves.record(nanos, before >= 0 && after >= before ? after - before : -1);
+                getInstance().savesToReport = true;
+            }
+        }
+
+        @Override
+        public void load(snake2d.util.file.FileGetter file) throws java.io.IOException {
+            if (!timeSaves) {
+                target.load(file);
+                return;
+            }
+            long before = positionOf(file);
+            long start = System.nanoTime();
+            try {
+                target.load(file);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                long after = positionOf(file);
+                cost.loads.record(nanos, before >= 0 && after >= before ? after - before : -1);
+                getInstance().loadsToReport = true;
+            }
+        }
+
+        @Override
+        public void keyPush(KEYS key) {
+            target.keyPush(key);
+        }
+
+        @Override
+        public void mouseClick(snake2d.MButt button) {
+            target.mouseClick(button);
+        }
+
+        @Override
+        public boolean handleBrokenSavedState() {
+            return target.handleBrokenSavedState();
+        }
+    }
+
+    /**
+     * Call and frame costs of one mod's script instances.
+     */
+    public static final class ModScriptCost {
+        private final String modId;
+        final CallHistogram update = new CallHistogram();
+        final CallHistogram render = new CallHistogram();
+        final CallHistogram hover = new CallHistogram();
+        final IoHistory saves = new IoHistory();
+        final IoHistory loads = new IoHistory();
+        final List<UpdateThrottle> throttles = new ArrayList<>(1);
+        private long frameNanos = 0;
+        private long worstFrameNanos = 0;
+        private long totalFrameNanos = 0;
+        private long frames = 0;
+
+        ModScriptCost(String modId) {
+            this.modId = modId;
+        }
+
+        void record(CallHistogram histogram, long nanos) {
+            histogram.record(nanos);
+            frameNanos += nanos;
+        }
+
+        void endFrame() {
+            if (frameNanos > worstFrameNanos) {
+                worstFrameNanos = frameNanos;
+            }
+            totalFrameNanos += frameNanos;
+            frames++;
+            frameNanos = 0;
+        }
+
+        public String getModId() { return modId; }
+        public CallHistogram getUpdate() { return update; }
+        public CallHistogram getRender() { return render; }
+        public CallHistogram getHover() { return hover; }
+        public IoHistory getSaves() { return saves; }
+        public IoHistory getLoads() { return loads; }
+        public boolean isThrottled() { return !throttles.isEmpty(); }
+
+        public long getSkippedUpdates() {
+            long total = 0;
+            for (UpdateThrottle throttle : throttles) {
+                total += throttle.getSkipped();
+            }
+            return total;
+        }
+
+        public long getThrottledRuns() {
+            long total = 0;
+            for (UpdateThrottle throttle : throttles) {
+                total += throttle.getRuns();
+            }
+            return total;
+        }
+
+        /** Estimated update time saved by skipping. */
+        public long getRecoveredNanos() {
+            long total = 0;
+            for (UpdateThrottle throttle : throttles) {
+                total += throttle.getRecoveredNanos();
+            }
+            return total;
+        }
+        /** Highest sum of all of the mod's calls within one frame. */
+        public long getWorstFrameNanos() { return worstFrameNanos; }
+        public long getMeanFrameNanos() { return frames == 0 ? 0 : totalFrameNanos / frames; }
+    }
+
+    /**
+     * Time and bytes of a mod's most recent saves or loads. Bytes are -1 when unknown.
+     */
+    public static final class IoHistory {
+        private static final int CAPACITY = 16;
+
+        private final long[] nanos = new long[CAPACITY];
+        private final long[] bytes = new long[CAPACITY];
+        private int count = 0;
+        // Set until the finished save or load has been reported
+        boolean pending = false;
+
+        void record(long callNanos, long callBytes) {
+            nanos[count % CAPACITY] = callNanos;
+            bytes[count % CAPACITY] = callBytes;
+            count++;
+            pending = true;
+        }
+
+        /** Number of saves or loads recorded, including those no longer kept. */
+        public int getCount() { return count; }
+        public int getKeptCount() { return Math.min(count, CAPACITY); }
+        public long getLastNanos() { return count == 0 ? 0 : nanos[(count - 1) % CAPACITY]; }
+        public long getLastBytes() { return count == 0 ? -1 : bytes[(count - 1) % CAPACITY]; }
+
+        /** Nanos of a kept entry, 0 being the most recent. */
+        public long getNanos(int back) { return nanos[(count - 1 - back) % CAPACITY]; }
+        public long getBytes(int back) { return bytes[(count - 1 - back) % CAPACITY]; }
+
+        public long getMeanNanos() {
+            int kept = getKeptCount();
+            long total = 0;
+            for (int i = 0; i < kept; i++) {
+                total += nanos[i];
+            }
+            return kept == 0 ? 0 : total / kept;
+        }
+
+        public long getMaxNanos() {
+            long max = 0;
+            for (int i = 0; i < getKeptCount(); i++) {
+                max = Math.max(max, nanos[i]);
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Histogram of call times with eight buckets per power of two, about 12% wide.
+     */
+    public static final class CallHistogram {
+        private static final int SUB_BITS = 3;
+        private static final int LINEAR = 1 << (SUB_BITS + 1);
+
+        private final long[] counts = new long[LINEAR + (64 - SUB_BITS - 1) * (1 << SUB_BITS)];
+        private long count = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            counts[bucket(nanos)]++;
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+
+        static int bucket(long nanos) {
+            if (nanos < LINEAR) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+            return LINEAR + (exponent - SUB_BITS - 1) * (1 << SUB_BITS) + sub;
+        }
+
+        /** Largest value that falls into a bucket. */
+        static long bucketLimit(int bucket) {
+            if (bucket < LINEAR) {
+                return bucket;
+            }
+            int exponent = (bucket - LINEAR) / (1 << SUB_BITS) + SUB_BITS + 1;
+            int sub = (bucket - LINEAR) % (1 << SUB_BITS);
+            long base = (1L << exponent) + ((long) sub << (exponent - SUB_BITS));
+            return base + (1L << (exponent - SUB_BITS)) - 1;
+        }
+
+        public long getCount() { return count; }
+        public long getMaxNanos() { return maxNanos; }
+        public long getMeanNanos() { return count == 0 ? 0 : totalNanos / count; }
+
+        /**
+         * Upper bound of the call time below which the given fraction of calls fall.
+         */
+        public long getPercentileNanos(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketLimit(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package sosModHooks;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Read-only table of sorted UTF-8 strings stored in a memory-mapped file.
+ *
+ * File layout: magic, entry count, (count + 1) offsets into the string blob, then the
+ * blob itself. Lookups are a binary search over the mapped bytes, so nothing but the
+ * query is allocated on the heap.
+ */
+public final class SortedPathTable {
+
+    private static final int MAGIC = 0x534F5354; // "SOST"
+    private static final int HEADER_SIZE = 8;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int blobStart;
+
+    private SortedPathTable(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a path table");
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(4);
+        this.blobStart = HEADER_SIZE + (count + 1) * 4;
+    }
+
+    /**
+     * Sort and deduplicate the given strings and write them as a table file.
+     */
+    public static void write(Collection<String> values, File file) throws IOException {
+        byte[][] encoded = new byte[values.size()][];
+        int count = 0;
+        for (String value : values) {
+            encoded[count++] = value.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(encoded, SortedPathTable::compareBytes);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || compareBytes(encoded[unique - 1], encoded[i]) != 0) {
+                encoded[unique++] = encoded[i];
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(unique);
+            int offset = 0;
+            for (int i = 0; i < unique; i++) {
+                out.writeInt(offset);
+                offset += encoded[i].length;
+            }
+            out.writeInt(offset);
+            for (int i = 0; i < unique; i++) {
+                out.write(encoded[i]);
+            }
+        }
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not replace " + file);
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not move " + temp + " to " + file);
+        }
+    }
+
+    /**
+     * Map an existing table file into memory.
+     */
+    public static SortedPathTable open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            return new SortedPathTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the entry at a sorted position.
+     */
+    public String get(int index) {
+        int start = offset(index);
+        byte[] bytes = new byte[offset(index + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(blobStart + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public boolean contains(String value) {
+        return indexOf(value.getBytes(StandardCharsets.UTF_8)) >= 0;
+    }
+
+    /**
+     * Whether any entry starts with the given prefix.
+     */
+    public boolean containsPrefix(String prefix) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareEntry(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low >= count) {
+            return false;
+        }
+        int start = blobStart + offset(low);
+        if (offset(low + 1) - offset(low) < key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Binary search for UTF-8 encoded bytes, returning the sorted position or -1.
+     */
+    public int indexOf(byte[] key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareEntry(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int offset(int index) {
+        return buffer.getInt(HEADER_SIZE + index * 4);
+    }
+
+    private int compareEntry(int index, byte[] key) {
+        int start = blobStart + offset(index);
+        int length = offset(index + 1) - offset(index);
+        int shared = Math.min(length, key.length);
+        for (int i = 0; i < shared; i++) {
+            int cmp = (buffer.get(start + i) & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int shared = Math.min(a.length, b.length);
+        for (int i = 0; i < shared; i++) {
+            int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+}
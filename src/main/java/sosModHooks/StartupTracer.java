@@ -0,0 +1,184 @@
+package sosModHooks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lightweight span tracer for the framework's startup phases.
+ *
+ * Begin/end events are stored as nanosecond timestamps in preallocated arrays, so tracing
+ * a span costs two array writes. The buffer can be written on demand as Chrome trace-event
+ * JSON, which chrome://tracing and Perfetto open directly.
+ */
+public final class StartupTracer {
+
+    private static final int CAPACITY = 65536;
+    private static final byte BEGIN = 'B';
+    private static final byte END = 'E';
+    private static final byte INSTANT = 'i';
+
+    private static StartupTracer instance;
+
+    private final long originNanos = System.nanoTime();
+    private final long originMillis = System.currentTimeMillis();
+    private final StringPool names = new StringPool();
+    private final Map<Long, String> threadNames = new HashMap<>();
+
+    private final long[] times = new long[CAPACITY];
+    private final int[] nameIds = new int[CAPACITY];
+    private final long[] threadIds = new long[CAPACITY];
+    private final byte[] phases = new byte[CAPACITY];
+    private int count = 0;
+    private int dropped = 0;
+
+    private StartupTracer() {
+    }
+
+    public static synchronized StartupTracer getInstance() {
+        if (instance == null) {
+            instance = new StartupTracer();
+        }
+        return instance;
+    }
+
+    /**
+     * Open a span. Every begin must be matched by an {@link #end(String)} on the same thread.
+     */
+    public void begin(String name) {
+        record(BEGIN, name);
+    }
+
+    /**
+     * Close the innermost open span of the current thread.
+     */
+    public void end(String name) {
+        record(END, name);
+    }
+
+    /**
+     * Record a point in time, such as the first game tick.
+     */
+    public void instant(String name) {
+        record(INSTANT, name);
+    }
+
+    public synchronized int getEventCount() {
+        return count;
+    }
+
+    /**
+     * Write all events recorded so far to a new file in the output directory.
+     *
+     * @return the written file, or null if writing failed
+     */
+    public File export() {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = new File(ModHooksFiles.getOutputDirectory(), "startup-trace-" + stamp + ".json");
+        try {
+            writeChromeTrace(file);
+            System.out.println("sosModHooks: Startup trace written to " + file.getPath());
+            return file;
+        } catch (IOException e) {
+            System.err.println("sosModHooks: Error writing startup trace: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write all events recorded so far in Chrome trace-event format.
+     */
+    public synchronized void writeChromeTrace(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.write("{\"displayTimeUnit\":\"ms\",\"otherData\":{");
+            out.write("\"framework\":\"sosModHooks " + escape(frameworkVersion()) + "\",");
+            out.write("\"startedAt\":" + originMillis + ",");
+            out.write("\"activeMods\":" + ModRegistry.getInstance().getActiveMods().size() + ",");
+            out.write("\"droppedEvents\":" + dropped);
+            out.write("},\"traceEvents\":[\n");
+
+            boolean first = true;
+            for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+                if (!first) out.write(",\n");
+                first = false;
+                out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey() +
+                          ",\"args\":{\"name\":\"" + escape(thread.getValue()) + "\"}}");
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (!first) out.write(",\n");
+                first = false;
+                out.write("{\"name\":\"");
+                out.write(escape(names.get(nameIds[i])));
+                out.write("\",\"cat\":\"sosModHooks\",\"ph\":\"");
+                out.write((char) phases[i]);
+                out.write("\",\"ts\":");
+                out.write(String.format(java.util.Locale.ROOT, "%.3f", (times[i] - originNanos) / 1000.0));
+                out.write(",\"pid\":1,\"tid\":");
+                out.write(Long.toString(threadIds[i]));
+                if (phases[i] == INSTANT) {
+                    out.write(",\"s\":\"g\"");
+                }
+                out.write("}");
+            }
+            out.write("\n]}\n");
+        }
+    }
+
+    private void record(byte phase, String name) {
+        long now = System.nanoTime();
+        Thread thread = Thread.currentThread();
+        synchronized (this) {
+            if (count == CAPACITY) {
+                dropped++;
+                return;
+            }
+            if (!threadNames.containsKey(thread.getId())) {
+                threadNames.put(thread.getId(), thread.getName());
+            }
+            times[count] = now;
+            nameIds[count] = names.intern(name);
+            threadIds[count] = thread.getId();
+            phases[count] = phase;
+            count++;
+        }
+    }
+
+    private static String frameworkVersion() {
+        String version = StartupTracer.class.getPackage() != null ? StartupTracer.class.getPackage().getImplementationVersion() : null;
+        return version != null ? version : "dev";
+    }
+
+    static String escape(String value) {
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = null;
+            if (c == '"') replacement = "\\\"";
+            else if (c == '\\') replacement = "\\\\";
+            else if (c == '\n') replacement = "\\n";
+            else if (c == '\r') replacement = "\\r";
+            else if (c == '\t') replacement = "\\t";
+            else if (c < 0x20) replacement = String.format("\\u%04x", (int) c);
+
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(value.length() + 16);
+                    sb.append(value, 0, i);
+                }
+                sb.append(replacement);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : value;
+    }
+}
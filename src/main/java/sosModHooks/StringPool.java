@@ -0,0 +1,48 @@
+package sosModHooks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns strings to dense integer ids so indexes can store ints instead of strings.
+ */
+final class StringPool {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] values = new String[64];
+    private int size = 0;
+
+    /**
+     * Get the id of a string, assigning the next free id if it has not been seen before.
+     */
+    int intern(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        ids.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Get the id of a string, or -1 if it was never interned.
+     */
+    int find(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    String get(int id) {
+        return values[id];
+    }
+
+    int size() {
+        return size;
+    }
+}
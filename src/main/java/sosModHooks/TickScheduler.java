@@ -0,0 +1,126 @@
+package sosModHooks;
+
+import java.util.ArrayDeque;
+
+/**
+ * Cooperative scheduler that spreads framework work across game ticks.
+ *
+ * Work is submitted as tasks that do one small step per call. {@link #runSlice()} is called
+ * once per tick and keeps stepping tasks round-robin until the per-tick budget measured
+ * with System.nanoTime is used up. A step is not started when the previous step's duration
+ * would no longer fit. Steps are never interrupted, so tasks should keep them well below
+ * the budget; at least one step runs per tick so work always progresses.
+ */
+public final class TickScheduler {
+
+    /**
+     * A unit of work that can be done in steps.
+     */
+    public interface Task {
+        /**
+         * Do one bounded step of work.
+         *
+         * @return true when the task is finished
+         */
+        boolean step();
+    }
+
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+    private final long budgetNanos;
+
+    private long lastSliceNanos = 0;
+    private long maxSliceNanos = 0;
+    private long overrunCount = 0;
+
+    public TickScheduler(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Queue a task. Safe to call from any thread.
+     */
+    public synchronized void submit(Task task) {
+        tasks.addLast(task);
+    }
+
+    /**
+     * Queue a piece of work that is done in a single step.
+     */
+    public void submit(Runnable work) {
+        submit(() -> {
+            work.run();
+            return true;
+        });
+    }
+
+    public synchronized int getPendingCount() {
+        return tasks.size();
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    public long getLastSliceNanos() {
+        return lastSliceNanos;
+    }
+
+    public long getMaxSliceNanos() {
+        return maxSliceNanos;
+    }
+
+    /**
+     * Number of ticks whose slice ran over the budget.
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * Run queued work until this tick's budget is spent. Call once per tick on the game thread.
+     */
+    public void runSlice() {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        long now = start;
+        long stepNanos = 0;
+        int steps = 0;
+
+        do {
+            Task task;
+            synchronized (this) {
+                task = tasks.pollFirst();
+            }
+            if (task == null) {
+                break;
+            }
+
+            boolean finished;
+            try {
+                finished = task.step();
+            } catch (Exception e) {
+                System.err.println("sosModHooks: Scheduled task failed: " + e.getMessage());
+                finished = true;
+            }
+
+            if (!finished) {
+                synchronized (this) {
+                    tasks.addLast(task);
+                }
+            }
+            long stepEnd = System.nanoTime();
+            stepNanos = stepEnd - now;
+            now = stepEnd;
+            steps++;
+        } while (now + stepNanos <= deadline);
+
+        lastSliceNanos = now - start;
+        if (steps > 0) {
+            FlightRecorder.getInstance().record(FlightRecorder.Kind.WORK, "scheduled work", start, lastSliceNanos, steps);
+        }
+        maxSliceNanos = Math.max(maxSliceNanos, lastSliceNanos);
+        if (lastSliceNanos > budgetNanos) {
+            overrunCount++;
+        }
+    }
+}
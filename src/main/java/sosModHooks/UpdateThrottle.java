@@ -0,0 +1,114 @@
+package sosModHooks;
+
+/**
+ * Decides, per tick, whether a throttled script instance's update runs.
+ *
+ * Two limits, configured per mod id and usable together:
+ * <ul>
+ * <li>sosModHooks.throttle.&lt;modId&gt;.every=N runs update on every Nth tick only</li>
+ * <li>sosModHooks.throttle.&lt;modId&gt;.budgetMicros=B lets update cost B per frame on average:
+ * a call that takes longer leaves a debt that the following ticks pay off by skipping</li>
+ * </ul>
+ * The ds of skipped ticks is added to the next call, so the total time the mod sees is the
+ * same as without throttling. sosModHooks.throttle.&lt;modId&gt;.maxSkip (default 30) bounds how
+ * many ticks in a row can be skipped. Throttled mods are listed in sosModHooks.throttle.mods.
+ *
+ * Recovered frame time is estimated as the mean cost of the calls that ran, times the
+ * number of calls skipped.
+ */
+final class UpdateThrottle {
+
+    private final int every;
+    private final long budgetNanos;
+    private final int maxSkip;
+
+    private double pendingDs = 0;
+    private int ticksSinceRun = 0;
+    private long debtNanos = 0;
+
+    private long runs = 0;
+    private long runNanos = 0;
+    private long skipped = 0;
+    private long recoveredNanos = 0;
+
+    UpdateThrottle(int every, long budgetNanos, int maxSkip) {
+        this.every = Math.max(1, every);
+        this.budgetNanos = Math.max(0, budgetNanos);
+        this.maxSkip = Math.max(maxSkip, this.every - 1);
+    }
+
+    /**
+     * The throttle configured for a mod, or null if the mod isn't throttled.
+     */
+    static UpdateThrottle forMod(String modId) {
+        ModHooksConfig config = ModHooksConfig.getInstance();
+        if (!isThrottled(modId)) {
+            return null;
+        }
+        String prefix = "sosModHooks.throttle." + modId + ".";
+        int every = config.getInt(prefix + "every", 1);
+        long budgetNanos = config.getInt(prefix + "budgetMicros", 0) * 1000L;
+        if (every <= 1 && budgetNanos <= 0) {
+            return null;
+        }
+        return new UpdateThrottle(every, budgetNanos, config.getInt(prefix + "maxSkip", 30));
+    }
+
+    static boolean isThrottled(String modId) {
+        for (String throttled : ModHooksConfig.getInstance().getString("sosModHooks.throttle.mods", "").split(",")) {
+            if (throttled.trim().equals(modId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isAnyThrottled() {
+        return !ModHooksConfig.getInstance().getString("sosModHooks.throttle.mods", "").isEmpty();
+    }
+
+    /**
+     * Whether this tick's update is skipped. A skipped tick's ds is kept for the next call.
+     */
+    boolean skip(double ds) {
+        ticksSinceRun++;
+        boolean due = ticksSinceRun >= every && debtNanos <= 0;
+        if (due || ticksSinceRun > maxSkip) {
+            return false;
+        }
+        pendingDs += ds;
+        debtNanos = Math.max(0, debtNanos - budgetNanos);
+        skipped++;
+        recoveredNanos += runs == 0 ? 0 : runNanos / runs;
+        return true;
+    }
+
+    /**
+     * The ds to pass to the update that runs this tick, including all skipped ticks.
+     */
+    double takeDelta(double ds) {
+        double delta = pendingDs + ds;
+        pendingDs = 0;
+        ticksSinceRun = 0;
+        return delta;
+    }
+
+    /**
+     * Whether skipped ticks are waiting to be passed on, as before a save.
+     */
+    boolean hasPending() {
+        return pendingDs > 0;
+    }
+
+    void ran(long nanos) {
+        runs++;
+        runNanos += nanos;
+        if (budgetNanos > 0) {
+            debtNanos = Math.max(0, debtNanos + nanos - budgetNanos);
+        }
+    }
+
+    long getRuns() { return runs; }
+    long getSkipped() { return skipped; }
+    long getRecoveredNanos() { return recoveredNanos; }
+}
@@ -0,0 +1,284 @@
+package sosModHooks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Index of what the base game ships, so mod files can be classified as
+ * additions or as overrides of vanilla content.
+ *
+ * The game's data/asset paths and the class list of SongsOfSyx.jar are scanned
+ * once per game version and cached on disk as {@link SortedPathTable}s. Class
+ * lookups go through a persisted {@link BloomFilter} first, so the common case of
+ * a mod's own class is rejected without touching the table.
+ */
+public final class VanillaBaseline {
+
+    public static final String ADDED = "ADDED";
+    public static final String REPLACED = "REPLACED";
+
+    private static VanillaBaseline instance;
+
+    private volatile SortedPathTable assets;
+    private volatile SortedPathTable classes;
+    private volatile BloomFilter classFilter;
+    private boolean loadAttempted = false;
+    private volatile String cacheKey = "";
+
+    private VanillaBaseline() {
+    }
+
+    public static synchronized VanillaBaseline getInstance() {
+        if (instance == null) {
+            instance = new VanillaBaseline();
+        }
+        return instance;
+    }
+
+    /**
+     * Open the cached index for the running game version, building it first if needed.
+     * Safe to call repeatedly; only the first call does any work.
+     */
+    public synchronized void load() {
+        if (loadAttempted) {
+            return;
+        }
+        loadAttempted = true;
+
+        try {
+            File gameJar = findGameJar();
+            if (gameJar == null) {
+                System.out.println("sosModHooks: Game JAR not found, vanilla baseline unavailable");
+                return;
+            }
+            load(gameJar, getGameVersion());
+        } catch (Exception e) {
+            System.err.println("sosModHooks: Error loading vanilla baseline: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Open or build the index for a specific game JAR, for use outside the game.
+     */
+    public synchronized void load(File gameJar, String gameVersion) throws IOException {
+        loadAttempted = true;
+
+        String cacheKey = gameVersion + "-" + Long.toHexString(gameJar.length() ^ gameJar.lastModified());
+        File cacheDir = ModHooksFiles.getCacheDirectory();
+        File assetFile = new File(cacheDir, "vanilla-assets-" + cacheKey + ".idx");
+        File classFile = new File(cacheDir, "vanilla-classes-" + cacheKey + ".idx");
+        File classFilterFile = new File(cacheDir, "vanilla-classes-" + cacheKey + ".bloom");
+
+        if (!assetFile.exists() || !classFile.exists()) {
+            long start = System.currentTimeMillis();
+            build(gameJar, assetFile, classFile);
+            System.out.println("sosModHooks: Built vanilla baseline for " + gameVersion + " in " + (System.currentTimeMillis() - start) + "ms");
+        }
+
+        assets = SortedPathTable.open(assetFile);
+        classes = SortedPathTable.open(classFile);
+        this.cacheKey = cacheKey;
+        classFilter = loadClassFilter(classes, classFilterFile);
+        System.out.println("sosModHooks: Vanilla baseline loaded - Assets: " + assets.size() + ", Classes: " + classes.size());
+    }
+
+    public boolean isAvailable() {
+        return assets != null && classes != null;
+    }
+
+    /**
+     * Game version and JAR stamp of the loaded baseline, or "" if none is loaded.
+     * Analysis results that depend on the baseline are only valid for the same key.
+     */
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * Check whether the base game ships a data or asset file at the same place.
+     */
+    public boolean isVanillaAsset(String path) {
+        SortedPathTable table = assets;
+        return table != null && table.contains(normalizeAssetPath(path));
+    }
+
+    /**
+     * Check whether the base game has any asset in the directory a glob like "sprite/race/*" points into.
+     */
+    public boolean hasVanillaAssetsUnder(String glob) {
+        SortedPathTable table = assets;
+        if (table == null) {
+            return false;
+        }
+        String normalized = normalizeAssetPath(glob);
+        int wildcard = normalized.indexOf('*');
+        int question = normalized.indexOf('?');
+        if (wildcard < 0 || (question >= 0 && question < wildcard)) {
+            wildcard = question;
+        }
+        String prefix = wildcard >= 0 ? normalized.substring(0, wildcard) : normalized;
+        return table.containsPrefix(prefix);
+    }
+
+    /**
+     * Check whether the base game JAR contains a class.
+     */
+    public boolean isVanillaClass(String className) {
+        SortedPathTable table = classes;
+        BloomFilter filter = classFilter;
+        if (table == null) {
+            return false;
+        }
+        if (filter != null && !filter.mightContain(className)) {
+            return false;
+        }
+        return table.contains(className);
+    }
+
+    /**
+     * Classify a mod's asset path as REPLACED or ADDED, or return the fallback if the baseline isn't loaded.
+     */
+    public String classifyAsset(String path, String fallback) {
+        if (assets == null) {
+            return fallback;
+        }
+        return isVanillaAsset(path) ? REPLACED : ADDED;
+    }
+
+    /**
+     * Classify a mod's class as REPLACED or ADDED, or return the fallback if the baseline isn't loaded.
+     */
+    public String classifyClass(String className, String fallback) {
+        if (classes == null) {
+            return fallback;
+        }
+        return isVanillaClass(className) ? REPLACED : ADDED;
+    }
+
+    /**
+     * Reduce a path to its location below the assets root, so mod and game paths compare equal.
+     * "/data/assets/init/race/HUMAN.txt" and "V69/assets/init/race/HUMAN.txt" both become "init/race/HUMAN.txt".
+     */
+    static String normalizeAssetPath(String path) {
+        String normalized = path.replace('\\', '/');
+        int assetsIndex = normalized.indexOf("assets/");
+        if (assetsIndex >= 0) {
+            normalized = normalized.substring(assetsIndex + "assets/".length());
+        }
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        return normalized;
+    }
+
+    private void build(File gameJar, File assetFile, File classFile) throws IOException {
+        List<String> assetPaths = new ArrayList<>();
+        List<String> classNames = new ArrayList<>();
+
+        indexArchive(gameJar, assetPaths, classNames);
+
+        // Game data lives next to the JAR, either as loose files or inside zips
+        File installDir = gameJar.getAbsoluteFile().getParentFile();
+        for (String dataDirName : new String[] {"base", "data"}) {
+            File dataDir = new File(installDir, dataDirName);
+            if (dataDir.isDirectory()) {
+                indexDirectory(dataDir, "", assetPaths, classNames);
+            }
+        }
+
+        SortedPathTable.write(assetPaths, assetFile);
+        SortedPathTable.write(classNames, classFile);
+    }
+
+    private static BloomFilter loadClassFilter(SortedPathTable table, File filterFile) throws IOException {
+        if (filterFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filterFile)))) {
+                return BloomFilter.readFrom(in);
+            } catch (IOException e) {
+                System.err.println("sosModHooks: Rebuilding corrupt class filter: " + e.getMessage());
+            }
+        }
+
+        BloomFilter filter = BloomFilter.create(table.size(), 0.01);
+        for (int i = 0; i < table.size(); i++) {
+            filter.add(table.get(i));
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filterFile)))) {
+            filter.writeTo(out);
+        }
+        return filter;
+    }
+
+    private void indexDirectory(File dir, String relativePath, List<String> assetPaths, List<String> classNames) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String path = relativePath.isEmpty() ? file.getName() : relativePath + "/" + file.getName();
+            if (file.isDirectory()) {
+                indexDirectory(file, path, assetPaths, classNames);
+            } else if (file.getName().toLowerCase().endsWith(".zip")) {
+                indexArchive(file, assetPaths, classNames);
+            } else {
+                assetPaths.add(normalizeAssetPath(path));
+            }
+        }
+    }
+
+    private void indexArchive(File archive, List<String> assetPaths, List<String> classNames) throws IOException {
+        try (ZipFile zip = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                String name = entry.getName();
+                if (name.endsWith(".class")) {
+                    classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                } else if (!name.startsWith("META-INF/")) {
+                    assetPaths.add(normalizeAssetPath(name));
+                }
+            }
+        }
+    }
+
+    private static File findGameJar() {
+        try {
+            Class<?> versionClass = Class.forName("game.VERSION");
+            File location = new File(versionClass.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return location.isFile() ? location : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String getGameVersion() {
+        try {
+            Class<?> versionClass = Class.forName("game.VERSION");
+            int major = (Integer) versionClass.getField("VERSION_MAJOR").get(null);
+            try {
+                int minor = (Integer) versionClass.getField("VERSION_MINOR").get(null);
+                return "V" + major + "." + minor;
+            } catch (Exception e) {
+                return "V" + major;
+            }
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package sosModHooks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Header parsing of the asset memory estimate, on small hand-built PNG, WAV and Ogg files
+ */
+public class AssetMemoryEstimatorTest {
+
+    @Test
+    @DisplayName("Should read width and height from a PNG's IHDR chunk")
+    void testPng() throws IOException {
+        byte[] png = png(300, 200);
+        assertEquals(300L * 200 * 4, estimate("sprite.png", png), "PNG should count 4 bytes per pixel");
+        assertEquals(300L * 200 * 4, estimate("SPRITE.PNG", png), "Extensions should match in any case");
+
+        byte[] huge = png(0x10000, 0x10000);
+        assertEquals(0x10000L * 0x10000 * 4, estimate("huge.png", huge), "Dimensions should not overflow an int");
+
+        assertEquals(0, estimate("sprite.png", Arrays.copyOf(png, 25)), "PNG cut inside IHDR should count nothing");
+        byte[] wrongMagic = png.clone();
+        wrongMagic[1] = 'X';
+        assertEquals(0, estimate("sprite.png", wrongMagic), "PNG without its signature should count nothing");
+        byte[] wrongChunk = png.clone();
+        wrongChunk[12] = 'X';
+        assertEquals(0, estimate("sprite.png", wrongChunk), "PNG without IHDR first should count nothing");
+    }
+
+    @Test
+    @DisplayName("Should walk WAV chunks to fmt and data, skipping padded chunks")
+    void testWav() throws IOException {
+        assertEquals(400, estimate("step.wav", wav(2, 16, 400, false)), "16-bit stereo should keep its size");
+        assertEquals(200, estimate("step.wav", wav(1, 8, 100, false)), "8-bit samples should count as 16-bit");
+        assertEquals(400, estimate("step.wav", wav(2, 24, 600, false)), "24-bit samples should count as 16-bit");
+        assertEquals(400, estimate("step.wav", wav(2, 16, 400, true)), "An odd-sized chunk before fmt should be skipped with its pad byte");
+
+        byte[] valid = wav(2, 16, 400, false);
+        assertEquals(0, estimate("step.wav", Arrays.copyOf(valid, 30)), "WAV cut inside fmt should count nothing");
+        assertEquals(0, estimate("step.wav", Arrays.copyOf(valid, 40)), "WAV cut before the data chunk should count nothing");
+        byte[] wrongMagic = valid.clone();
+        wrongMagic[8] = 'X';
+        assertEquals(0, estimate("step.wav", wrongMagic), "WAV without WAVE should count nothing");
+        byte[] noFormat = valid.clone();
+        noFormat[12] = 'X';
+        assertEquals(0, estimate("step.wav", noFormat), "data before any fmt chunk should count nothing");
+    }
+
+    @Test
+    @DisplayName("Should take an Ogg's length from the granule of its last page")
+    void testOgg() throws IOException {
+        byte[] ogg = ogg(2, 44100, 128000, 88200);
+        assertEquals(88200L * 2 * 2, estimate("music.ogg", ogg), "Samples of the last page times channels should count as 16-bit");
+
+        // Only the head is available, as when estimating from a JAR entry's first bytes
+        int size = 100_000;
+        AssetMemoryEstimator.Source head = AssetMemoryEstimator.headSource(ogg, ogg.length, size);
+        assertEquals((long) size * 8 * 44100 / 128000 * 2 * 2, AssetMemoryEstimator.estimate("music.ogg", head),
+            "Without the last page the length should come from the nominal bitrate");
+
+        assertEquals(0, estimate("music.ogg", Arrays.copyOf(ogg, 40)), "Ogg cut inside the identification header should count nothing");
+        assertEquals(0, estimate("music.ogg", Arrays.copyOf(ogg, 20)), "Ogg cut inside the page header should count nothing");
+        byte[] wrongMagic = ogg.clone();
+        wrongMagic[0] = 'X';
+        assertEquals(0, estimate("music.ogg", wrongMagic), "Ogg without OggS should count nothing");
+        byte[] notVorbis = ogg.clone();
+        notVorbis[28] = 'X';
+        assertEquals(0, estimate("music.ogg", notVorbis), "Ogg without a Vorbis header should count nothing");
+    }
+
+    @Test
+    @DisplayName("Should count nothing for formats that are only counted by file size")
+    void testOtherFormats() throws IOException {
+        byte[] png = png(10, 10);
+        assertEquals(0, estimate("photo.jpg", png), "JPEG should not be decoded");
+        assertEquals(0, estimate("track.mp3", png), "MP3 should not be decoded");
+        assertEquals(0, estimate("empty.png", new byte[0]), "Empty files should count nothing");
+    }
+
+    private static long estimate(String path, byte[] file) throws IOException {
+        return AssetMemoryEstimator.estimate(path, AssetMemoryEstimator.headSource(file, file.length, file.length));
+    }
+
+    private static byte[] png(int width, int height) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' }, 0, 8);
+        intBE(out, 13);
+        ascii(out, "IHDR");
+        intBE(out, width);
+        intBE(out, height);
+        out.write(8);
+        out.write(6);
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        intBE(out, 0);
+        return out.toByteArray();
+    }
+
+    private static byte[] wav(int channels, int bits, int dataBytes, boolean oddChunkFirst) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ascii(out, "RIFF");
+        intLE(out, 0);
+        ascii(out, "WAVE");
+        if (oddChunkFirst) {
+            ascii(out, "LIST");
+            intLE(out, 3);
+            out.write(new byte[] { 1, 2, 3, 0 }, 0, 4);
+        }
+        ascii(out, "fmt ");
+        intLE(out, 16);
+        shortLE(out, 1);
+        shortLE(out, channels);
+        intLE(out, 44100);
+        intLE(out, 44100 * channels * bits / 8);
+        shortLE(out, channels * bits / 8);
+        shortLE(out, bits);
+        ascii(out, "data");
+        intLE(out, dataBytes);
+        out.write(new byte[dataBytes], 0, dataBytes);
+        return out.toByteArray();
+    }
+
+    /**
+     * Two pages: the Vorbis identification header, then an empty page carrying the final granule.
+     */
+    private static byte[] ogg(int channels, int sampleRate, int nominalBitrate, long samples) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        oggPageHeader(out, 0, 30);
+        out.write(1);
+        ascii(out, "vorbis");
+        intLE(out, 0);
+        out.write(channels);
+        intLE(out, sampleRate);
+        intLE(out, 0);
+        intLE(out, nominalBitrate);
+        intLE(out, 0);
+        out.write(0xB8);
+        out.write(1);
+        oggPageHeader(out, samples, 0);
+        return out.toByteArray();
+    }
+
+    private static void oggPageHeader(ByteArrayOutputStream out, long granule, int packetLength) {
+        ascii(out, "OggS");
+        out.write(0);
+        out.write(0);
+        intLE(out, (int) granule);
+        intLE(out, (int) (granule >>> 32));
+        intLE(out, 1);
+        intLE(out, 0);
+        intLE(out, 0);
+        out.write(1);
+        out.write(packetLength);
+    }
+
+    private static void ascii(ByteArrayOutputStream out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            out.write(text.charAt(i));
+        }
+    }
+
+    private static void intBE(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void intLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static void shortLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+    }
+}
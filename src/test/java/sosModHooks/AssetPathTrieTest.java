@@ -0,0 +1,109 @@
+package sosModHooks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Glob matching and overlap detection of the asset path tree
+ */
+public class AssetPathTrieTest {
+
+    @Test
+    @DisplayName("Should match single segments against globs")
+    void testMatches() {
+        assertTrue(AssetPathTrie.matches("*", "human.png"), "* should match any segment");
+        assertTrue(AssetPathTrie.matches("*", ""), "* should match an empty segment");
+        assertTrue(AssetPathTrie.matches("*.png", "human.png"), "*.png should match a png");
+        assertFalse(AssetPathTrie.matches("*.png", "human.txt"), "*.png should not match a txt");
+        assertTrue(AssetPathTrie.matches("h?man.png", "human.png"), "? should match one character");
+        assertFalse(AssetPathTrie.matches("h?man.png", "hman.png"), "? should not match zero characters");
+        assertTrue(AssetPathTrie.matches("a*b*c", "aXXbYc"), "Several stars should backtrack");
+        assertFalse(AssetPathTrie.matches("a*b*c", "aXXbYcd"), "Trailing characters should not match");
+        assertTrue(AssetPathTrie.matches("human.png", "human.png"), "Plain segments should match themselves");
+        assertFalse(AssetPathTrie.matches("human.png", "Human.png"), "Matching should be case sensitive");
+    }
+
+    @Test
+    @DisplayName("Should report concrete paths declared by several mods")
+    void testConcreteOverlap() {
+        AssetPathTrie trie = new AssetPathTrie();
+        trie.add("/data/assets/sprite/race/human.png", "modA");
+        trie.add("/data/assets/sprite/race/human.png", "modB");
+        trie.add("/data/assets/sprite/race/human.png", "modB");
+        trie.add("/data/assets/sprite/race/dwarf.png", "modA");
+
+        assertEquals(3, trie.size(), "Repeated declarations by one mod should count once");
+        List<String> overlaps = overlaps(trie);
+        assertEquals(Collections.singletonList("/data/assets/sprite/race/human.png false modA,modB"), overlaps,
+            "Only the shared path should be reported");
+    }
+
+    @Test
+    @DisplayName("Should match globs in any segment against concrete paths")
+    void testGlobOverlap() {
+        AssetPathTrie trie = new AssetPathTrie();
+        trie.add("/data/assets/sprite/race/human.png", "concrete");
+        trie.add("/data/assets/sprite/*/human.png", "middle");
+        trie.add("/data/assets/sprite/race/*.png", "last");
+        trie.add("/data/assets/*/race/*", "two");
+        trie.add("/data/assets/sprite/*/dwarf.png", "other");
+
+        List<String> overlaps = overlaps(trie);
+        assertTrue(overlaps.contains("/data/assets/sprite/race/human.png false concrete,last,middle,two"),
+            "Every glob covering the path should be reported with it, got " + overlaps);
+        for (String overlap : overlaps) {
+            assertFalse(overlap.contains("other"), "A glob that matches no declared path should not overlap: " + overlap);
+        }
+    }
+
+    @Test
+    @DisplayName("Should match any-depth globs and overlapping globs")
+    void testAnyDepthOverlap() {
+        AssetPathTrie trie = new AssetPathTrie();
+        trie.add("/data/assets/**", "everything");
+        trie.add("/data/assets/init/race/human.txt", "modA");
+        trie.add("/data/assets/text/*", "texts");
+        trie.add("/data/assets/text/*", "moreTexts");
+        trie.add("/data/other.txt", "modB");
+
+        List<String> overlaps = overlaps(trie);
+        assertTrue(overlaps.contains("/data/assets/init/race/human.txt false everything,modA"),
+            "** should cover paths at any depth, got " + overlaps);
+        assertTrue(overlaps.contains("/data/assets/text/* true everything,moreTexts,texts"),
+            "Globs declared by several mods should be reported as wildcards, got " + overlaps);
+        for (String overlap : overlaps) {
+            assertFalse(overlap.startsWith("/data/other.txt"), "Paths outside ** should not be covered by it");
+        }
+    }
+
+    @Test
+    @DisplayName("Should report nothing when no two mods cover the same path")
+    void testNoOverlap() {
+        AssetPathTrie trie = new AssetPathTrie();
+        trie.add("/data/assets/sprite/*/human.png", "modA");
+        trie.add("/data/assets/sprite/race/dwarf.png", "modB");
+        trie.add("/data/assets/sound/*.ogg", "modC");
+        trie.add("/data/assets/sound/step.wav", "modD");
+
+        assertTrue(overlaps(trie).isEmpty(), "Disjoint declarations should not overlap");
+    }
+
+    private static List<String> overlaps(AssetPathTrie trie) {
+        List<String> found = new ArrayList<>();
+        trie.forEachOverlap((path, owners, wildcard) -> {
+            // Sorted, the order owners are found in doesn't matter
+            List<String> sorted = new ArrayList<>();
+            for (int i = 0; i < owners.size(); i++) {
+                sorted.add(owners.get(i));
+            }
+            Collections.sort(sorted);
+            found.add(path + " " + wildcard + " " + String.join(",", sorted));
+        });
+        return found;
+    }
+}
@@ -81,4 +81,32 @@ public class BasicFunctionalityTest {
         ModKeyBindings keyBindings = ModKeyBindings.getInstance();
         assertNotNull(keyBindings, "ModKeyBindings should be created");
     }
+    
+    @Test
+    @DisplayName("Should parse only top-level keys of data files")
+    void testDataFileTopLevelKeys() {
+        String content = "** comment KEY: 1\n" +
+                         "NAME: \"Human: the race\",\n" +
+                         "PROPERTIES: {\n" +
+                         "    HEIGHT: 6,\n" +
+                         "},\n" +
+                         "WIDTH : 2,\n";
+        
+        assertEquals(java.util.Arrays.asList("NAME", "PROPERTIES", "WIDTH"), DataConflictIndex.parseTopLevelKeys(content),
+                     "Nested keys, strings and comments should be ignored");
+    }
+    
+    @Test
+    @DisplayName("Should look up paths in a sorted path table")
+    void testSortedPathTable() throws Exception {
+        java.io.File file = java.io.File.createTempFile("vanilla", ".idx");
+        file.deleteOnExit();
+        SortedPathTable.write(java.util.Arrays.asList("sprite/race/human.png", "init/race/HUMAN.txt", "init/race/HUMAN.txt"), file);
+        
+        SortedPathTable table = SortedPathTable.open(file);
+        assertEquals(2, table.size(), "Duplicates should be removed");
+        assertEquals("init/race/HUMAN.txt", table.get(0), "Entries should be sorted");
+        assertTrue(table.contains("sprite/race/human.png"), "Stored path should be found");
+        assertFalse(table.contains("init/race/DWARF.txt"), "Missing path should not be found");
+    }
 }
@@ -0,0 +1,157 @@
+package sosModHooks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The pair screen never rules out a pair that shares a target, and rules out pairs that share none
+ */
+public class ModPairScreenTest {
+
+    private final ModRegistry registry = ModRegistry.getInstance();
+
+    @Test
+    @DisplayName("Should screen in mods replacing the same class")
+    void testSharedClass() {
+        String a = mod("class.a");
+        String b = mod("class.b");
+        String c = mod("class.c");
+        registry.declareClassReplacement(a, "settlement.main.SETT", "world.WORLD");
+        registry.declareClassReplacement(b, "game.GAME", "settlement.main.SETT");
+        registry.declareClassReplacement(c, "game.faction.FACTIONS");
+
+        assertTrue(registry.mightConflict(a, b), "Mods replacing the same class should screen true");
+        assertTrue(registry.mightConflict(b, a), "The screen should not depend on the order of the pair");
+        assertFalse(registry.mightConflict(a, c), "Mods replacing different classes should screen false");
+    }
+
+    @Test
+    @DisplayName("Should screen in a shared asset among many, whichever mod is larger")
+    void testSharedAsset() {
+        String large = mod("asset.large");
+        String small = mod("asset.small");
+        String other = mod("asset.other");
+        String[] paths = new String[5000];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = "/data/assets/sprite/large/" + i + ".png";
+        }
+        registry.declareAssetModification(large, paths);
+        registry.declareAssetModification(small, "/data/assets/sound/click.ogg", "/data/assets/sprite/large/4321.png");
+        registry.declareAssetModification(other, "/data/assets/sound/click.ogg", "/data/assets/sprite/small/1.png");
+
+        assertTrue(registry.mightConflict(large, small), "A single shared asset should screen true");
+        assertTrue(registry.mightConflict(small, large), "The screen should not depend on the order of the pair");
+        assertTrue(registry.mightConflict(small, other), "Mods modifying the same asset should screen true");
+        assertFalse(registry.mightConflict(large, other), "Mods with disjoint assets should screen false");
+
+        String named = mod("asset.named");
+        registry.declareClassReplacement(named, "/data/assets/sprite/small/1.png");
+        assertFalse(registry.mightConflict(named, other), "A class and an asset with the same name should not match");
+    }
+
+    @Test
+    @DisplayName("Should screen in wildcards that may match another mod's assets or wildcards")
+    void testGlobs() {
+        String glob = mod("glob.races");
+        String human = mod("glob.human");
+        String sound = mod("glob.sound");
+        String nested = mod("glob.nested");
+        String everything = mod("glob.everything");
+        registry.declareAssetModification(glob, "/data/assets/sprite/*/human.png");
+        registry.declareAssetModification(human, "/data/assets/sprite/race/human.png");
+        registry.declareAssetModification(sound, "/data/assets/sound/click.ogg");
+        registry.declareAssetModification(nested, "/data/assets/sprite/race/*.png");
+        registry.declareAssetModification(everything, "*.png");
+
+        assertTrue(registry.mightConflict(glob, human), "A wildcard over the directory of an asset should screen true");
+        assertTrue(registry.mightConflict(human, glob), "The screen should not depend on the order of the pair");
+        assertFalse(registry.mightConflict(glob, sound), "A wildcard outside every directory of the other mod should screen false");
+        assertTrue(registry.mightConflict(glob, nested), "Wildcards with nested prefixes should screen true");
+        assertFalse(registry.mightConflict(nested, sound), "Wildcards with unrelated prefixes should screen false");
+        assertTrue(registry.mightConflict(everything, sound), "A wildcard without a directory should screen true");
+    }
+
+    @Test
+    @DisplayName("Should screen in mods defining the same field of the same data record")
+    void testSharedDataRecord() throws IOException {
+        String a = mod("data.a");
+        String b = mod("data.b");
+        String c = mod("data.c");
+        registry.indexDataFile(a, "init/race/HUMAN.txt", dataFile("NAME: \"Human\",\nAGE: 40,\n"));
+        registry.indexDataFile(b, "init/race/HUMAN.txt", dataFile("AGE: 60,\n"));
+        registry.indexDataFile(c, "init/race/DWARF.txt", dataFile("AGE: 60,\n"));
+
+        assertTrue(registry.mightConflict(a, b), "The same field of the same record should screen true");
+        assertFalse(registry.mightConflict(b, c), "The same field of different records should screen false");
+    }
+
+    @Test
+    @DisplayName("Should never screen out a pair that shares a target, across random mods")
+    void testRandomPairs() {
+        Random random = new Random(42);
+        int mods = 40;
+        String[] ids = new String[mods];
+        Set<String>[] targets = newSetArray(mods);
+        for (int m = 0; m < mods; m++) {
+            ids[m] = mod("random." + m);
+            for (int i = random.nextInt(4); i > 0; i--) {
+                String className = "mod.Class" + random.nextInt(60);
+                registry.declareClassReplacement(ids[m], className);
+                targets[m].add("class:" + className);
+            }
+            for (int i = random.nextInt(6); i > 0; i--) {
+                String path = "/data/assets/sprite/" + random.nextInt(5) + "/" + random.nextInt(40) + ".png";
+                registry.declareAssetModification(ids[m], path);
+                targets[m].add("asset:" + path);
+            }
+        }
+
+        for (int a = 0; a < mods; a++) {
+            for (int b = a + 1; b < mods; b++) {
+                Set<String> shared = new HashSet<>(targets[a]);
+                shared.retainAll(targets[b]);
+                assertEquals(!shared.isEmpty(), registry.mightConflict(ids[a], ids[b]),
+                    ids[a] + " and " + ids[b] + " should screen " + (shared.isEmpty() ? "false" : "true"));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should take the literal directory before the first wildcard")
+    void testLiteralPrefix() {
+        assertEquals("/data/assets/sprite/", ModPairScreen.literalPrefix("/data/assets/sprite/*/human.png"), "The prefix should end at the directory holding the wildcard");
+        assertEquals("/data/assets/sprite/race/", ModPairScreen.literalPrefix("/data/assets/sprite/race/h?man.png"), "A ? should count as a wildcard");
+        assertEquals("", ModPairScreen.literalPrefix("*.png"), "A wildcard in the first name should leave no prefix");
+    }
+
+    private String mod(String name) {
+        String modId = "pairscreen." + name;
+        registry.registerMod(modId, name, "1.0");
+        return modId;
+    }
+
+    private static File dataFile(String content) throws IOException {
+        File file = File.createTempFile("pairscreen", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] newSetArray(int size) {
+        Set<String>[] sets = new Set[size];
+        for (int i = 0; i < size; i++) {
+            sets[i] = new HashSet<>();
+        }
+        return sets;
+    }
+}
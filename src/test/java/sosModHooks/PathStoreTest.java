@@ -0,0 +1,138 @@
+package sosModHooks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Round trips through the front-coded path store and the id lists built on it
+ */
+public class PathStoreTest {
+
+    @Test
+    @DisplayName("Should read back every path across restart points")
+    void testRoundTripAcrossRestartPoints() {
+        PathStore store = new PathStore();
+        List<String> paths = new ArrayList<>();
+        // Shared prefixes of varying length, so entries between restarts are front coded
+        for (int i = 0; i < 100; i++) {
+            paths.add("/data/assets/sprite/race/" + (i % 7) + "/body_" + i + ".png");
+        }
+        paths.add("");
+        paths.add("/data/assets/sprite/race/0/body_0.png.bak");
+        paths.add("/data");
+
+        int[] ids = new int[paths.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = store.intern(paths.get(i));
+            assertEquals(i, ids[i], "New paths should get consecutive ids");
+        }
+        assertEquals(paths.size(), store.size(), "Every distinct path should be stored once");
+
+        // Read in reverse so no entry is decoded right after its predecessor
+        for (int i = ids.length - 1; i >= 0; i--) {
+            assertEquals(paths.get(i), store.get(ids[i]), "Path " + i + " should round trip");
+            assertEquals(BloomFilter.hash(paths.get(i)), store.hash(ids[i]), "Stored hash should match the path");
+        }
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], store.intern(paths.get(i)), "Interning again should return the same id");
+            assertEquals(ids[i], store.find(paths.get(i)), "find should return the interned id");
+        }
+        assertEquals(paths.size(), store.size(), "Interning again should not store anything");
+        assertEquals(-1, store.find("/data/assets/sprite/race/0/body_100.png"), "Unknown paths should not be found");
+    }
+
+    @Test
+    @DisplayName("Should keep paths readable when the store grows past one chunk")
+    void testChunkOverflow() {
+        PathStore store = new PathStore();
+        List<String> paths = new ArrayList<>();
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            padding.append('x');
+        }
+        // Unrelated paths defeat front coding, so these need well over one 1 MB chunk
+        int i = 0;
+        while (store.getStoredBytes() <= 2L << 20) {
+            String path = "/" + Integer.toHexString(i * 0x9E3779B1) + "/" + padding + "/" + i + ".txt";
+            paths.add(path);
+            assertEquals(i, store.intern(path), "New paths should get consecutive ids");
+            i++;
+        }
+        assertTrue(store.getStoredBytes() > 2L << 20, "Store should span several chunks");
+
+        for (int id = 0; id < paths.size(); id++) {
+            assertEquals(paths.get(id), store.get(id), "Path " + id + " should round trip");
+            assertEquals(id, store.find(paths.get(id)), "Path " + id + " should be found");
+        }
+    }
+
+    @Test
+    @DisplayName("Should store long and non-ASCII paths and reject oversized ones")
+    void testLongPaths() {
+        PathStore store = new PathStore();
+        StringBuilder builder = new StringBuilder("/data/assets/");
+        while (builder.length() < 70000) {
+            builder.append("deeply/nested/ÄÖÜ/");
+        }
+        String longPath = builder.toString();
+        String sibling = longPath + "end.png";
+
+        int longId = store.intern(longPath);
+        int siblingId = store.intern(sibling);
+        int shortId = store.intern("/a.png");
+        assertEquals(longPath, store.get(longId), "Long path should round trip");
+        assertEquals(sibling, store.get(siblingId), "Path sharing a long prefix should round trip");
+        assertEquals("/a.png", store.get(shortId), "Short path after a long one should round trip");
+
+        // Largest path a chunk can hold goes into a fresh chunk of its own
+        char[] largest = new char[(1 << 20) - 10];
+        java.util.Arrays.fill(largest, 'p');
+        String largestPath = new String(largest);
+        int largestId = store.intern(largestPath);
+        assertEquals(largestPath, store.get(largestId), "Path filling a whole chunk should round trip");
+        assertEquals("/a.png", store.get(shortId), "Earlier paths should still be readable");
+
+        assertThrows(IllegalArgumentException.class, () -> store.intern(largestPath + "p"),
+            "Paths longer than a chunk should be rejected");
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(store.size()),
+            "Unknown ids should be rejected");
+    }
+
+    @Test
+    @DisplayName("Should hold paths in a PathList by id")
+    void testPathList() {
+        PathStore store = new PathStore();
+        PathList list = new PathList(store);
+        assertTrue(list.isEmpty(), "New list should be empty");
+
+        for (int i = 0; i < 40; i++) {
+            list.add("/data/assets/init/race/" + i + ".txt");
+        }
+        list.add("/data/assets/init/race/3.txt");
+
+        assertEquals(41, list.size(), "Duplicates are kept by the list");
+        assertEquals(40, store.size(), "Duplicates are interned once");
+        assertEquals(list.getId(3), list.getId(40), "Duplicate paths should share an id");
+        assertEquals("/data/assets/init/race/17.txt", list.get(17), "Paths should round trip through the list");
+        assertTrue(list.contains("/data/assets/init/race/39.txt"), "Added paths should be contained");
+        assertFalse(list.contains("/data/assets/init/race/40.txt"), "Other paths should not be contained");
+
+        PathList other = new PathList(store);
+        other.add("/data/assets/init/race/0.txt");
+        other.add("/data/other.txt");
+        assertFalse(list.contains("/data/other.txt"), "Paths interned for another list should not be contained");
+
+        Iterator<String> iterator = list.iterator();
+        for (int i = 0; i < 40; i++) {
+            assertEquals("/data/assets/init/race/" + i + ".txt", iterator.next(), "Iteration should keep insertion order");
+        }
+        assertEquals("/data/assets/init/race/3.txt", iterator.next(), "Iteration should include duplicates");
+        assertFalse(iterator.hasNext(), "Iteration should stop at the end");
+        assertThrows(IndexOutOfBoundsException.class, () -> list.getId(41), "Indexes past the end should be rejected");
+    }
+}
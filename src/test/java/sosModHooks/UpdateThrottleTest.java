@@ -0,0 +1,101 @@
+package sosModHooks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The time a throttled update sees adds up to the time that passed, however ticks are skipped
+ */
+public class UpdateThrottleTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    @DisplayName("Should pass the ds of skipped ticks on with every Nth update")
+    void testEveryNth() {
+        UpdateThrottle throttle = new UpdateThrottle(4, 0, 30);
+        Run run = run(throttle, 100, 1000);
+
+        assertEquals(run.elapsed, run.seen, EPSILON, "Updates should see all elapsed time");
+        assertEquals(25, run.calls, "Every 4th tick should run");
+        assertEquals(75, throttle.getSkipped(), "The other ticks should be skipped");
+        assertEquals(3, run.longestSkip, "No more than every - 1 ticks should be skipped in a row");
+    }
+
+    @Test
+    @DisplayName("Should skip to pay off budget debt and conserve ds while doing so")
+    void testBudgetDebt() {
+        // Each call costs three frames' budget, so two of every three ticks are skipped
+        UpdateThrottle throttle = new UpdateThrottle(1, 1000, 30);
+        Run run = run(throttle, 300, 3000);
+
+        assertEquals(run.elapsed, run.seen, EPSILON, "Updates should see all elapsed time");
+        assertEquals(100, run.calls, "Debt should hold calls to the budget on average");
+        assertEquals(2, run.longestSkip, "Debt should be paid off by skipping");
+    }
+
+    @Test
+    @DisplayName("Should run after maxSkip ticks even while in debt")
+    void testMaxSkip() {
+        UpdateThrottle throttle = new UpdateThrottle(1, 1000, 5);
+        Run run = run(throttle, 200, 1_000_000);
+
+        assertEquals(run.elapsed, run.seen, EPSILON, "Updates should see all elapsed time");
+        assertEquals(5, run.longestSkip, "No more than maxSkip ticks should be skipped in a row");
+        assertTrue(run.calls >= 200 / 6, "A call should run at least every maxSkip + 1 ticks");
+    }
+
+    @Test
+    @DisplayName("Should hand pending ds over once when flushed before a save")
+    void testFlushPending() {
+        UpdateThrottle throttle = new UpdateThrottle(10, 0, 30);
+        assertFalse(throttle.hasPending(), "Nothing should be pending before the first tick");
+
+        double skippedDs = 0;
+        for (int i = 0; i < 4; i++) {
+            assertTrue(throttle.skip(0.25), "Ticks before the 10th should be skipped");
+            skippedDs += 0.25;
+        }
+        assertTrue(throttle.hasPending(), "Skipped ds should be pending");
+        assertEquals(skippedDs, throttle.takeDelta(0), EPSILON, "Flushing should pass on exactly the skipped ds");
+        assertFalse(throttle.hasPending(), "Nothing should be pending after a flush");
+        assertEquals(0, throttle.takeDelta(0), EPSILON, "A second flush should pass on nothing");
+        assertTrue(throttle.skip(0.25), "A flush should restart the count to the next due tick");
+    }
+
+    /**
+     * Drive a throttle the way the script wrapper does, with ds varying per tick and every call
+     * costing the given time, then flush what is pending.
+     */
+    private static Run run(UpdateThrottle throttle, int ticks, long callNanos) {
+        Run run = new Run();
+        int skippedInRow = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            double ds = 1.0 / 60 + (tick % 7) * 0.001;
+            run.elapsed += ds;
+            if (throttle.skip(ds)) {
+                skippedInRow++;
+                run.longestSkip = Math.max(run.longestSkip, skippedInRow);
+                continue;
+            }
+            skippedInRow = 0;
+            run.seen += throttle.takeDelta(ds);
+            run.calls++;
+            throttle.ran(callNanos);
+        }
+        if (throttle.hasPending()) {
+            run.seen += throttle.takeDelta(0);
+        }
+        assertEquals(run.calls, throttle.getRuns(), "Every call that ran should be counted");
+        assertEquals(ticks - run.calls, throttle.getSkipped(), "Every tick that didn't run should be counted as skipped");
+        return run;
+    }
+
+    private static final class Run {
+        double elapsed = 0;
+        double seen = 0;
+        int calls = 0;
+        int longestSkip = 0;
+    }
+}